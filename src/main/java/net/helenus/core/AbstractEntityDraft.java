@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -13,6 +14,7 @@ import net.helenus.core.reflect.Drafted;
 import net.helenus.core.reflect.MapExportable;
 import net.helenus.mapping.HelenusProperty;
 import net.helenus.mapping.MappingUtil;
+import net.helenus.mapping.value.EntityValueMap;
 import org.apache.commons.lang3.SerializationUtils;
 
 public abstract class AbstractEntityDraft<E> implements Drafted<E> {
@@ -64,8 +66,10 @@ public abstract class AbstractEntityDraft<E> implements Drafted<E> {
           return (T) type.getDefaultValue();
         }
       } else {
-        // Collections fetched from the valuesMap
-        if (value instanceof Collection) {
+        // Collections fetched from the valuesMap record their changes, see DraftCollections.
+        if (value instanceof List || value instanceof Set || value instanceof Map) {
+          value = (T) DraftCollections.track(this, key, value);
+        } else if (value instanceof Collection) {
           value = (T) SerializationUtils.<Serializable>clone((Serializable) value);
         }
       }
@@ -171,13 +175,13 @@ public abstract class AbstractEntityDraft<E> implements Drafted<E> {
 
   public Map<String, Object> toMap(Map<String, Object> entityMap) {
     Map<String, Object> combined;
-    if (entityMap != null && entityMap.size() > 0) {
-      combined = new HashMap<String, Object>(entityMap.size());
-      for (Map.Entry<String, Object> e : entityMap.entrySet()) {
-        combined.put(e.getKey(), e.getValue());
-      }
+    if (entityMap instanceof EntityValueMap) {
+      combined = new EntityValueMap((EntityValueMap) entityMap);
     } else {
-      combined = new HashMap<String, Object>(mutationsMap.size());
+      combined = new EntityValueMap(Helenus.entity(getEntityClass()));
+      if (entityMap != null) {
+        combined.putAll(entityMap);
+      }
     }
     for (String key : mutated()) {
       combined.put(key, mutationsMap.get(key));
@@ -43,6 +43,9 @@ public abstract class AbstractSessionOperations {
 
   public abstract boolean showValues();
 
+  /** Whether a select which would scan the whole table must be refused rather than logged. */
+  public abstract boolean isRefusingFullScans();
+
   public abstract PrintStream getPrintStream();
 
   public abstract Executor getExecutor();
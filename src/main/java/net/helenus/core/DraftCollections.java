@@ -0,0 +1,369 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import net.helenus.support.CopyOnWrite;
+
+/**
+ * The collections handed out by {@link AbstractEntityDraft#get(String, Class)}. They record the
+ * changes made to them so that {@code HelenusSession.update(Drafted)} can write those changes as
+ * element assignments (e.g. {@code s = s + {x}}) rather than overwrite the whole column. Changes
+ * which can't be expressed that way, e.g. inserting into the middle of a list, mark the collection
+ * as overwritten and it is written as a whole, as before. The collection read from the entity is
+ * only copied when first modified.
+ */
+public final class DraftCollections {
+
+  private DraftCollections() {}
+
+  /** A collection recording its changes. */
+  public interface Tracked {
+
+    /**
+     * True when the collection was obtained from the property of the draft and its changes can be
+     * written as element assignments.
+     */
+    boolean isChangeOf(AbstractEntityDraft<?> draft, String key);
+  }
+
+  /** Wraps a list, set or map read from the draft's entity, other values are returned as is. */
+  @SuppressWarnings("unchecked")
+  static Object track(AbstractEntityDraft<?> draft, String key, Object value) {
+    if (value instanceof List) {
+      return new TrackedList<Object>(draft, key, (List<Object>) value);
+    } else if (value instanceof Set) {
+      return new TrackedSet<Object>(draft, key, (Set<Object>) value);
+    } else if (value instanceof Map) {
+      return new TrackedMap<Object, Object>(draft, key, (Map<Object, Object>) value);
+    }
+    return value;
+  }
+
+  /** Records values set at existing indexes and values appended. */
+  public static final class TrackedList<E> extends AbstractList<E>
+      implements RandomAccess, Serializable, Tracked {
+    private static final long serialVersionUID = 6190437529185240913L;
+
+    private final AbstractEntityDraft<?> draft;
+    private final String key;
+    private final List<E> values;
+    private final int originalSize;
+    private final SortedMap<Integer, E> indexSets = new TreeMap<Integer, E>();
+    private final List<E> appended = new ArrayList<E>();
+    private boolean overwritten;
+
+    TrackedList(AbstractEntityDraft<?> draft, String key, List<E> values) {
+      this.draft = draft;
+      this.key = key;
+      this.values = CopyOnWrite.list(values);
+      this.originalSize = values.size();
+    }
+
+    @Override
+    public boolean isChangeOf(AbstractEntityDraft<?> draft, String key) {
+      return !overwritten && this.draft == draft && this.key.equals(key);
+    }
+
+    /** The values set at indexes of the original list. */
+    public SortedMap<Integer, E> getIndexSets() {
+      return Collections.unmodifiableSortedMap(indexSets);
+    }
+
+    public List<E> getAppended() {
+      return Collections.unmodifiableList(appended);
+    }
+
+    @Override
+    public E get(int index) {
+      return values.get(index);
+    }
+
+    @Override
+    public int size() {
+      return values.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+      E previous = values.set(index, element);
+      if (!overwritten) {
+        if (index < originalSize) {
+          indexSets.put(index, element);
+        } else {
+          appended.set(index - originalSize, element);
+        }
+      }
+      return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+      boolean append = index == values.size();
+      values.add(index, element);
+      if (append) {
+        appended.add(element);
+      } else {
+        overwritten = true;
+      }
+      modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+      E previous = values.remove(index);
+      if (!overwritten && index >= originalSize) {
+        appended.remove(index - originalSize);
+      } else {
+        overwritten = true;
+      }
+      modCount++;
+      return previous;
+    }
+
+    private Object writeReplace() {
+      return new ArrayList<E>(values);
+    }
+  }
+
+  /** Records the net additions and removals. */
+  public static final class TrackedSet<E> extends AbstractSet<E> implements Serializable, Tracked {
+    private static final long serialVersionUID = -2937016478823751840L;
+
+    private final AbstractEntityDraft<?> draft;
+    private final String key;
+    private final Set<E> values;
+    private final Set<E> added = new LinkedHashSet<E>();
+    private final Set<E> removed = new LinkedHashSet<E>();
+
+    TrackedSet(AbstractEntityDraft<?> draft, String key, Set<E> values) {
+      this.draft = draft;
+      this.key = key;
+      this.values = CopyOnWrite.set(values);
+    }
+
+    @Override
+    public boolean isChangeOf(AbstractEntityDraft<?> draft, String key) {
+      return this.draft == draft && this.key.equals(key);
+    }
+
+    public Set<E> getAdded() {
+      return Collections.unmodifiableSet(added);
+    }
+
+    public Set<E> getRemoved() {
+      return Collections.unmodifiableSet(removed);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return values.contains(o);
+    }
+
+    @Override
+    public int size() {
+      return values.size();
+    }
+
+    @Override
+    public boolean add(E e) {
+      if (!values.add(e)) {
+        return false;
+      }
+      if (!removed.remove(e)) {
+        added.add(e);
+      }
+      return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      if (!values.remove(o)) {
+        return false;
+      }
+      removed(o);
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removed(Object o) {
+      if (!added.remove(o)) {
+        removed.add((E) o);
+      }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      final Iterator<E> iterator = values.iterator();
+      return new Iterator<E>() {
+        private E last;
+
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+          return last = iterator.next();
+        }
+
+        @Override
+        public void remove() {
+          iterator.remove();
+          removed(last);
+        }
+      };
+    }
+
+    private Object writeReplace() {
+      return new LinkedHashSet<E>(values);
+    }
+  }
+
+  /** Records the net puts and the removed keys of the original map. */
+  public static final class TrackedMap<K, V> extends AbstractMap<K, V>
+      implements Serializable, Tracked {
+    private static final long serialVersionUID = 3315738604871069249L;
+
+    private final AbstractEntityDraft<?> draft;
+    private final String key;
+    private final Map<K, V> original;
+    private final Map<K, V> values;
+    private final Map<K, V> puts = new LinkedHashMap<K, V>();
+    private final Set<K> removedKeys = new LinkedHashSet<K>();
+
+    TrackedMap(AbstractEntityDraft<?> draft, String key, Map<K, V> values) {
+      this.draft = draft;
+      this.key = key;
+      this.original = values;
+      this.values = CopyOnWrite.map(values);
+    }
+
+    @Override
+    public boolean isChangeOf(AbstractEntityDraft<?> draft, String key) {
+      return this.draft == draft && this.key.equals(key);
+    }
+
+    public Map<K, V> getPuts() {
+      return Collections.unmodifiableMap(puts);
+    }
+
+    public Set<K> getRemovedKeys() {
+      return Collections.unmodifiableSet(removedKeys);
+    }
+
+    @Override
+    public V get(Object key) {
+      return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return values.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return values.size();
+    }
+
+    @Override
+    public V put(K key, V value) {
+      V previous = values.put(key, value);
+      puts.put(key, value);
+      removedKeys.remove(key);
+      return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+      if (!values.containsKey(key)) {
+        return null;
+      }
+      V previous = values.remove(key);
+      removed(key);
+      return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removed(Object key) {
+      puts.remove(key);
+      if (original.containsKey(key)) {
+        removedKeys.add((K) key);
+      }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return new AbstractSet<Map.Entry<K, V>>() {
+        @Override
+        public int size() {
+          return values.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          final Iterator<Map.Entry<K, V>> iterator = values.entrySet().iterator();
+          return new Iterator<Map.Entry<K, V>>() {
+            private Map.Entry<K, V> last;
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+              last = iterator.next();
+              return new SimpleEntry<K, V>(last) {
+                @Override
+                public V setValue(V value) {
+                  super.setValue(value);
+                  return put(getKey(), value);
+                }
+              };
+            }
+
+            @Override
+            public void remove() {
+              iterator.remove();
+              removed(last.getKey());
+            }
+          };
+        }
+      };
+    }
+
+    private Object writeReplace() {
+      return new LinkedHashMap<K, V>(values);
+    }
+  }
+}
@@ -115,6 +115,10 @@ public final class Filter<V> {
     return postulate.values();
   }
 
+  public Operator getOperator() {
+    return postulate.operator();
+  }
+
   @Override
   public String toString() {
     return node.getColumnName() + postulate.toString();
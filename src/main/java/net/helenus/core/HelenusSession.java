@@ -35,6 +35,7 @@ import net.helenus.core.operation.*;
 import net.helenus.core.reflect.Drafted;
 import net.helenus.core.reflect.HelenusPropertyNode;
 import net.helenus.core.reflect.MapExportable;
+import net.helenus.core.reflect.PropertyNodeGetter;
 import net.helenus.mapping.HelenusEntity;
 import net.helenus.mapping.HelenusProperty;
 import net.helenus.mapping.MappingUtil;
@@ -52,6 +53,7 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
   private final ConsistencyLevel defaultConsistencyLevel;
   private final boolean defaultQueryIdempotency;
   private final MetricRegistry metricRegistry;
+  private final UnitOfWorkTelemetry unitOfWorkTelemetry;
   private final PrintStream printStream;
   private final SessionRepository sessionRepository;
   private final Executor executor;
@@ -63,6 +65,7 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
   private volatile String usingKeyspace;
   private volatile boolean showCql;
   private volatile boolean showValues;
+  private volatile boolean refuseFullScans;
 
   HelenusSession(
       Session session,
@@ -77,7 +80,9 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
       ConsistencyLevel consistencyLevel,
       boolean defaultQueryIdempotency,
       CacheManager cacheManager,
-      MetricRegistry metricRegistry) {
+      MetricRegistry metricRegistry,
+      UnitOfWorkTelemetry unitOfWorkTelemetry,
+      boolean refuseFullScans) {
     this.session = session;
     this.registry = registry == null ? CodecRegistry.DEFAULT_INSTANCE : registry;
     this.usingKeyspace =
@@ -85,6 +90,7 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
             usingKeyspace, "keyspace needs to be selected before creating session");
     this.showCql = showCql;
     this.showValues = showValues;
+    this.refuseFullScans = refuseFullScans;
     this.printStream = printStream;
     this.sessionRepository =
         sessionRepositoryBuilder == null ? null : sessionRepositoryBuilder.build();
@@ -93,6 +99,8 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
     this.defaultConsistencyLevel = consistencyLevel;
     this.defaultQueryIdempotency = defaultQueryIdempotency;
     this.metricRegistry = metricRegistry;
+    this.unitOfWorkTelemetry =
+        unitOfWorkTelemetry == null ? UnitOfWorkTelemetry.NONE : unitOfWorkTelemetry;
     this.cacheManager = cacheManager;
 
     this.valueProvider = new RowColumnValueProvider(this.sessionRepository);
@@ -108,6 +116,19 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
     return new UnitOfWork(this, parent).begin();
   }
 
+  /**
+   * Begins a lightweight unit of work for requests that only read: entities are cached by identity
+   * within it but writes are rejected and its commit merges nothing into the session.
+   */
+  public UnitOfWork beginReadOnly() {
+    return new UnitOfWork(this, null, false, true).begin();
+  }
+
+  /** Begins a unit of work whose operations may run on several threads at once. */
+  public UnitOfWork beginConcurrent() {
+    return new UnitOfWork(this, null, true).begin();
+  }
+
   @Override
   public Session currentSession() {
     return session;
@@ -144,6 +165,16 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
     return this;
   }
 
+  @Override
+  public boolean isRefusingFullScans() {
+    return refuseFullScans;
+  }
+
+  public HelenusSession refuseFullScans(boolean refuseFullScans) {
+    this.refuseFullScans = refuseFullScans;
+    return this;
+  }
+
   public HelenusSession showQueryValuesInLog(boolean showValues) {
     this.showValues = showValues;
     return this;
@@ -183,6 +214,10 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
     return metricRegistry;
   }
 
+  public UnitOfWorkTelemetry getUnitOfWorkTelemetry() {
+    return unitOfWorkTelemetry;
+  }
+
   @Override
   public ConsistencyLevel getDefaultConsistencyLevel() {
     return defaultConsistencyLevel;
@@ -598,14 +633,9 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
                   if (mutatedProperties.contains(propertyName)) {
                     Object value = map.get(propertyName);
                     Getter<Object> getter =
-                        new Getter<Object>() {
-                          @Override
-                          public Object get() {
-                            throw new DslPropertyException(
-                                new HelenusPropertyNode(property, Optional.empty()));
-                          }
-                        };
-                    update.set(getter, value);
+                        new PropertyNodeGetter<Object>(
+                            new HelenusPropertyNode(property, Optional.empty()));
+                    update.setChanges(getter, value);
                   }
               }
             });
@@ -622,13 +652,8 @@ public class HelenusSession extends AbstractSessionOperations implements Closeab
                   String propertyName = property.getPropertyName();
                   Object value = map.get(propertyName);
                   Getter<Object> getter =
-                      new Getter<Object>() {
-                        @Override
-                        public Object get() {
-                          throw new DslPropertyException(
-                              new HelenusPropertyNode(property, Optional.empty()));
-                        }
-                      };
+                      new PropertyNodeGetter<Object>(
+                          new HelenusPropertyNode(property, Optional.empty()));
                   update.where(getter, eq(value));
               }
             });
@@ -0,0 +1,109 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records unit of work statistics into a {@link MetricRegistry}: a latency timer per purpose and
+ * outcome, cache hit/miss meters, and histograms of database time, cache lookup time and nesting
+ * depth. A fraction of units of work, {@code logSampleRate}, is also logged in human readable
+ * form. Only the first {@code maxPurposes} distinct purposes get timers of their own, the others
+ * share the timers of the purpose {@value #OTHER}.
+ */
+public class MetricsUnitOfWorkTelemetry implements UnitOfWorkTelemetry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UnitOfWork.class);
+  private static final String PREFIX = "net.helenus.UOW";
+
+  public static final int DEFAULT_MAX_PURPOSES = 100;
+  public static final String OTHER = "other";
+
+  private final MetricRegistry metrics;
+  private final double logSampleRate;
+  private final int maxPurposes;
+  private final Set<String> purposes = ConcurrentHashMap.newKeySet();
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+  private final Meter cacheHits;
+  private final Meter cacheMisses;
+  private final Meter databaseLookups;
+  private final Histogram databaseTime;
+  private final Histogram cacheLookupTime;
+  private final Histogram nestingDepth;
+
+  public MetricsUnitOfWorkTelemetry(MetricRegistry metrics, double logSampleRate) {
+    this(metrics, logSampleRate, DEFAULT_MAX_PURPOSES);
+  }
+
+  public MetricsUnitOfWorkTelemetry(MetricRegistry metrics, double logSampleRate, int maxPurposes) {
+    this.metrics = metrics == null ? new MetricRegistry() : metrics;
+    this.logSampleRate = logSampleRate;
+    this.maxPurposes = maxPurposes;
+    this.cacheHits = this.metrics.meter(PREFIX + ".cache-hits");
+    this.cacheMisses = this.metrics.meter(PREFIX + ".cache-misses");
+    this.databaseLookups = this.metrics.meter(PREFIX + ".database-lookups");
+    this.databaseTime = this.metrics.histogram(PREFIX + ".database-time-micros");
+    this.cacheLookupTime = this.metrics.histogram(PREFIX + ".cache-lookup-time-micros");
+    this.nestingDepth = this.metrics.histogram(PREFIX + ".nesting-depth");
+  }
+
+  @Override
+  public void record(UnitOfWork uow, boolean committed) {
+    String purpose = uow.getPurpose() == null ? "unnamed" : uow.getPurpose();
+    timer(purpose, committed).update(uow.elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+    cacheHits.mark(uow.cacheHits.sum());
+    cacheMisses.mark(uow.cacheMisses.sum());
+    databaseLookups.mark(uow.databaseLookups.sum());
+    databaseTime.update(uow.totalDatabaseTimeMicros());
+    cacheLookupTime.update(uow.cacheLookupTimeMicros.sum());
+    nestingDepth.update(uow.nestingDepth);
+
+    if (logSampleRate > 0.0
+        && LOG.isInfoEnabled()
+        && (logSampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < logSampleRate)) {
+      LOG.info(uow.logTimers(committed ? "committed" : "aborted"));
+    }
+  }
+
+  private Timer timer(String purpose, boolean committed) {
+    if (!purposes.contains(purpose)) {
+      synchronized (purposes) {
+        if (purposes.size() < maxPurposes) {
+          purposes.add(purpose);
+        } else if (!purposes.contains(purpose)) {
+          purpose = OTHER;
+        }
+      }
+    }
+    String name = PREFIX + "." + purpose + (committed ? ".committed" : ".aborted");
+    Timer timer = timers.get(name);
+    if (timer == null) {
+      timer = timers.computeIfAbsent(name, metrics::timer);
+    }
+    return timer;
+  }
+}
@@ -74,6 +74,10 @@ public final class Postulate<V> {
     return values;
   }
 
+  public Operator operator() {
+    return operator;
+  }
+
   @Override
   public String toString() {
 
@@ -0,0 +1,160 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core;
+
+import com.datastax.driver.core.schemabuilder.SchemaStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import net.helenus.support.HelenusException;
+
+/**
+ * The schema changes an {@link AutoDdl} mode makes to a keyspace, as a graph of steps: each step
+ * runs its statements in order once the steps it depends on are done (e.g. a table after the user
+ * types of its columns, a view after its base table). Steps which do not depend on each other are
+ * applied concurrently. See {@link SessionInitializer#planSchema()} to inspect a plan without
+ * applying it.
+ */
+public final class SchemaPlan {
+
+  static final class Step {
+    private final List<SchemaStatement> statements;
+    private final List<Step> after;
+
+    private Step(List<SchemaStatement> statements, List<Step> after) {
+      this.statements = statements;
+      this.after = after;
+    }
+  }
+
+  // In the order they were added, which is a topological order as a step only depends on steps
+  // added before it.
+  private final List<Step> steps = new ArrayList<Step>();
+
+  SchemaPlan() {}
+
+  /** Adds a step running the statements after the given (non null) steps. */
+  Step add(List<SchemaStatement> statements, Step... after) {
+    List<Step> dependencies = new ArrayList<Step>(after.length);
+    for (Step step : after) {
+      if (step != null) {
+        dependencies.add(step);
+      }
+    }
+    Step step = new Step(statements, dependencies);
+    steps.add(step);
+    return step;
+  }
+
+  Step add(SchemaStatement statement, Step... after) {
+    return add(Collections.singletonList(statement), after);
+  }
+
+  /** Adds an empty step, done once all the given steps are. */
+  Step join(List<Step> after) {
+    return add(Collections.<SchemaStatement>emptyList(), after.toArray(new Step[0]));
+  }
+
+  public boolean isEmpty() {
+    return steps.stream().allMatch(step -> step.statements.isEmpty());
+  }
+
+  /** The CQL of the statements, in an order in which they can be applied one by one. */
+  public List<String> getStatements() {
+    List<String> statements = new ArrayList<String>();
+    for (Step step : steps) {
+      for (SchemaStatement statement : step.statements) {
+        statements.add(statement.getQueryString());
+      }
+    }
+    return statements;
+  }
+
+  /**
+   * Applies the steps, concurrently on the executor or, without one, one after the other. Before a
+   * step whose dependencies changed the schema, and once at the end, schema agreement is awaited.
+   */
+  void apply(
+      AbstractSessionOperations sessionOps, Executor executor, Runnable awaitSchemaAgreement) {
+    if (executor == null) {
+      Set<Step> changed = new HashSet<Step>();
+      for (Step step : steps) {
+        boolean dependenciesChanged = step.after.stream().anyMatch(changed::contains);
+        if (!step.statements.isEmpty() && dependenciesChanged) {
+          awaitSchemaAgreement.run();
+        }
+        step.statements.forEach(sessionOps::execute);
+        if (!step.statements.isEmpty() || dependenciesChanged) {
+          changed.add(step);
+        }
+      }
+    } else {
+      Map<Step, CompletableFuture<Boolean>> applied =
+          new HashMap<Step, CompletableFuture<Boolean>>();
+      for (Step step : steps) {
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[step.after.size()];
+        for (int i = 0; i < dependencies.length; i++) {
+          dependencies[i] = applied.get(step.after.get(i));
+        }
+        applied.put(
+            step,
+            CompletableFuture.allOf(dependencies)
+                .thenApplyAsync(
+                    v -> {
+                      boolean changed = !step.statements.isEmpty();
+                      boolean dependenciesChanged = false;
+                      for (CompletableFuture<?> dependency : dependencies) {
+                        dependenciesChanged |= (Boolean) dependency.join();
+                      }
+                      if (changed && dependenciesChanged) {
+                        awaitSchemaAgreement.run();
+                      }
+                      step.statements.forEach(sessionOps::execute);
+                      // An empty step passes on whether its own dependencies changed anything.
+                      return changed || dependenciesChanged;
+                    },
+                    executor));
+      }
+      try {
+        CompletableFuture.allOf(applied.values().toArray(new CompletableFuture<?>[0])).join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new HelenusException(e.getCause());
+      }
+    }
+    if (!isEmpty()) {
+      awaitSchemaAgreement.run();
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder cql = new StringBuilder();
+    for (String statement : getStatements()) {
+      cql.append(statement).append(";\n");
+    }
+    return cql.toString();
+  }
+}
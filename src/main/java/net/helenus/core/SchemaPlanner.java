@@ -0,0 +1,251 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core;
+
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.UserType;
+import com.datastax.driver.core.schemabuilder.SchemaStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import net.helenus.mapping.HelenusCoveringIndex;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusEntityType;
+import net.helenus.support.HelenusMappingException;
+
+/**
+ * Builds the {@link SchemaPlan} of an {@link AutoDdl} mode for the entities of a session from one
+ * snapshot of the keyspace's metadata. Dependencies: a user type or table on the user types of its
+ * columns, an index on its table, a view on its base table, and every drop before the create (or
+ * update) it makes way for. The lookup tables of covering indexes depend on nothing else.
+ */
+final class SchemaPlanner {
+
+  private final SessionRepositoryBuilder repository;
+  private final String keyspace;
+  private final boolean dropUnusedColumns;
+  private final boolean dropUnusedIndexes;
+
+  private final SchemaPlan plan = new SchemaPlan();
+  // The step after which the entity no longer exists, respectively exists as mapped.
+  private final Map<HelenusEntity, SchemaPlan.Step> dropped =
+      new HashMap<HelenusEntity, SchemaPlan.Step>();
+  private final Map<HelenusEntity, SchemaPlan.Step> ready =
+      new HashMap<HelenusEntity, SchemaPlan.Step>();
+  private final Map<HelenusCoveringIndex, SchemaPlan.Step> droppedIndexes =
+      new HashMap<HelenusCoveringIndex, SchemaPlan.Step>();
+
+  SchemaPlanner(
+      SessionRepositoryBuilder repository,
+      String keyspace,
+      boolean dropUnusedColumns,
+      boolean dropUnusedIndexes) {
+    this.repository = repository;
+    this.keyspace = keyspace;
+    this.dropUnusedColumns = dropUnusedColumns;
+    this.dropUnusedIndexes = dropUnusedIndexes;
+  }
+
+  /** @param keyspaceMetadata the current schema, only used by {@link AutoDdl#UPDATE} */
+  SchemaPlan plan(AutoDdl autoDdl, KeyspaceMetadata keyspaceMetadata) {
+    List<HelenusEntity> userTypes = userTypesInOrder();
+    List<HelenusEntity> tables = entities(HelenusEntityType.TABLE);
+    List<HelenusEntity> views = entities(HelenusEntityType.VIEW);
+
+    switch (autoDdl) {
+      case CREATE_DROP:
+        // Views before their tables, tables and user types before the user types they use.
+        for (HelenusEntity view : views) {
+          dropped.put(view, plan.add(dropView(view)));
+        }
+        for (HelenusEntity table : tables) {
+          dropped.put(table, plan.add(SchemaUtil.dropTable(table), droppedViewsOf(table)));
+          for (HelenusCoveringIndex index : table.getCoveringIndexes()) {
+            droppedIndexes.put(index, plan.add(SchemaUtil.dropTable(index)));
+          }
+        }
+        Map<HelenusEntity, List<SchemaPlan.Step>> droppedUsers = new HashMap<>();
+        for (HelenusEntity entity : tables) {
+          for (HelenusEntity used : repository.getUserTypeUses(entity)) {
+            droppedUsers.computeIfAbsent(used, e -> new ArrayList<>()).add(dropped.get(entity));
+          }
+        }
+        for (int i = userTypes.size() - 1; i >= 0; i--) {
+          HelenusEntity userType = userTypes.get(i);
+          SchemaPlan.Step after =
+              plan.join(droppedUsers.getOrDefault(userType, Collections.emptyList()));
+          SchemaPlan.Step drop = plan.add(SchemaUtil.dropUserType(userType), after);
+          dropped.put(userType, drop);
+          for (HelenusEntity used : repository.getUserTypeUses(userType)) {
+            droppedUsers.computeIfAbsent(used, e -> new ArrayList<>()).add(drop);
+          }
+        }
+        // FALLTHRU to CREATE
+      case CREATE:
+        for (HelenusEntity userType : userTypes) {
+          ready.put(
+              userType,
+              plan.add(
+                  Collections.singletonList(SchemaUtil.createUserType(userType)),
+                  dependencies(userType)));
+        }
+        for (HelenusEntity table : tables) {
+          SchemaPlan.Step created =
+              plan.add(
+                  Collections.singletonList(SchemaUtil.createTable(table)), dependencies(table));
+          addIndexes(SchemaUtil.createIndexes(table), created);
+          ready.put(table, created);
+          for (HelenusCoveringIndex index : table.getCoveringIndexes()) {
+            plan.add(SchemaUtil.createTable(index), droppedIndexes.get(index));
+          }
+        }
+        for (HelenusEntity view : views) {
+          plan.add(createView(view), dropped.get(view), ready.get(baseTableOf(view)));
+        }
+        break;
+
+      case UPDATE:
+        for (HelenusEntity userType : userTypes) {
+          UserType current =
+              keyspaceMetadata == null
+                  ? null
+                  : keyspaceMetadata.getUserType(userType.getName().getName());
+          List<SchemaStatement> statements =
+              current == null
+                  ? Collections.singletonList(SchemaUtil.createUserType(userType))
+                  : SchemaUtil.alterUserType(current, userType, dropUnusedColumns);
+          ready.put(userType, plan.add(statements, dependencies(userType)));
+        }
+        // Views are recreated, any of them may select a column being altered.
+        for (HelenusEntity view : views) {
+          dropped.put(view, plan.add(dropView(view)));
+        }
+        for (HelenusEntity table : tables) {
+          TableMetadata current =
+              keyspaceMetadata == null
+                  ? null
+                  : keyspaceMetadata.getTable(table.getName().getName());
+          SchemaPlan.Step updated;
+          if (current == null) {
+            updated =
+                plan.add(
+                    Collections.singletonList(SchemaUtil.createTable(table)),
+                    dependencies(table));
+            addIndexes(SchemaUtil.createIndexes(table), updated);
+          } else {
+            List<SchemaPlan.Step> after = new ArrayList<SchemaPlan.Step>();
+            Collections.addAll(after, dependencies(table));
+            Collections.addAll(after, droppedViewsOf(table));
+            updated =
+                plan.add(
+                    SchemaUtil.alterTable(current, table, dropUnusedColumns),
+                    after.toArray(new SchemaPlan.Step[0]));
+            addIndexes(SchemaUtil.alterIndexes(current, table, dropUnusedIndexes), updated);
+          }
+          ready.put(table, updated);
+          for (HelenusCoveringIndex index : table.getCoveringIndexes()) {
+            TableMetadata lookup =
+                keyspaceMetadata == null
+                    ? null
+                    : keyspaceMetadata.getTable(index.getTableName().getName());
+            if (lookup == null) {
+              plan.add(SchemaUtil.createTable(index));
+            } else {
+              plan.add(SchemaUtil.alterTable(lookup, index));
+            }
+          }
+        }
+        for (HelenusEntity view : views) {
+          plan.add(createView(view), dropped.get(view), ready.get(baseTableOf(view)));
+        }
+        break;
+
+      default:
+        throw new HelenusMappingException("no schema changes to plan for " + autoDdl);
+    }
+    return plan;
+  }
+
+  private void addIndexes(List<SchemaStatement> statements, SchemaPlan.Step table) {
+    for (SchemaStatement statement : statements) {
+      plan.add(statement, table);
+    }
+  }
+
+  /** The steps creating the user types the entity uses, and dropping the entity itself. */
+  private SchemaPlan.Step[] dependencies(HelenusEntity entity) {
+    List<SchemaPlan.Step> after = new ArrayList<SchemaPlan.Step>();
+    after.add(dropped.get(entity));
+    for (HelenusEntity used : repository.getUserTypeUses(entity)) {
+      after.add(ready.get(used));
+    }
+    return after.toArray(new SchemaPlan.Step[0]);
+  }
+
+  private SchemaPlan.Step[] droppedViewsOf(HelenusEntity table) {
+    return entities(HelenusEntityType.VIEW)
+        .stream()
+        .filter(view -> baseTableOf(view) == table)
+        .map(dropped::get)
+        .toArray(SchemaPlan.Step[]::new);
+  }
+
+  private SchemaStatement dropView(HelenusEntity view) {
+    return SchemaUtil.dropMaterializedView(keyspace, view.getName().toCql(), view);
+  }
+
+  private SchemaStatement createView(HelenusEntity view) {
+    return SchemaUtil.createMaterializedView(keyspace, view.getName().toCql(), view);
+  }
+
+  private HelenusEntity baseTableOf(HelenusEntity view) {
+    Class<?> table = SessionRepository.baseTableOf(view);
+    return table == null ? null : repository.getEntityMap().get(table);
+  }
+
+  private List<HelenusEntity> entities(HelenusEntityType type) {
+    return repository
+        .entities()
+        .stream()
+        .filter(e -> e.getType() == type)
+        .collect(Collectors.toList());
+  }
+
+  /** The user types of the session, each after the user types it uses. */
+  private List<HelenusEntity> userTypesInOrder() {
+    Set<HelenusEntity> ordered = new LinkedHashSet<HelenusEntity>();
+    for (HelenusEntity userType : entities(HelenusEntityType.UDT)) {
+      visit(userType, ordered, new LinkedHashSet<HelenusEntity>());
+    }
+    return new ArrayList<HelenusEntity>(ordered);
+  }
+
+  private void visit(HelenusEntity userType, Set<HelenusEntity> ordered, Set<HelenusEntity> stack) {
+    if (ordered.contains(userType) || !stack.add(userType)) {
+      return;
+    }
+    for (HelenusEntity used : repository.getUserTypeUses(userType)) {
+      visit(used, ordered, stack);
+    }
+    ordered.add(userType);
+  }
+}
@@ -121,6 +121,16 @@ public final class SchemaUtil {
       }
     }
 
+    for (HelenusCompoundIndex index : entity.getCompoundIndexes()) {
+      String columnName = index.getColumnName().getName();
+      if (dropUnusedColumns) {
+        visitedColumns.add(columnName);
+      }
+      if (tmd.getColumn(columnName) == null) {
+        result.add(alter.addColumn(index.getColumnName().toCql()).type(index.getDataType()));
+      }
+    }
+
     if (dropUnusedColumns) {
       for (String field : userType.getFieldNames()) {
         if (!visitedColumns.contains(field)) {
@@ -268,6 +278,10 @@ public final class SchemaUtil {
       prop.getDataType().addColumn(create, prop.getColumnName());
     }
 
+    for (HelenusCompoundIndex index : entity.getCompoundIndexes()) {
+      create.addColumn(index.getColumnName().toCql(), index.getDataType());
+    }
+
     if (!clusteringColumns.isEmpty()) {
       Options options = create.withOptions();
       clusteringColumns.forEach(
@@ -326,6 +340,47 @@ public final class SchemaUtil {
     return result;
   }
 
+  public static SchemaStatement createTable(HelenusCoveringIndex index) {
+    CreateTable create = new CreateTable(index.getTableName().toCql());
+
+    create.ifNotExists();
+
+    for (HelenusProperty prop : index.getPartitionKeys()) {
+      create.addPartitionKey(prop.getColumnName().toCql(), index.getDataType(prop));
+    }
+    for (HelenusProperty prop : index.getClusteringColumns()) {
+      create.addClusteringColumn(prop.getColumnName().toCql(), index.getDataType(prop));
+    }
+    for (HelenusProperty prop : index.getColumns()) {
+      if (!index.isKey(prop)) {
+        create.addColumn(prop.getColumnName().toCql(), index.getDataType(prop));
+      }
+    }
+
+    return create;
+  }
+
+  /** Adds the covered columns missing from the lookup table, its keys can't be altered. */
+  public static List<SchemaStatement> alterTable(TableMetadata tmd, HelenusCoveringIndex index) {
+    List<SchemaStatement> result = new ArrayList<SchemaStatement>();
+    Alter alter = SchemaBuilder.alterTable(index.getTableName().toCql());
+    for (HelenusProperty prop : index.getColumns()) {
+      if (index.isKey(prop)) {
+        if (tmd.getColumn(prop.getColumnName().getName()) == null) {
+          throw new HelenusMappingException(
+              "the keys of covering index " + index + " changed, drop the table to recreate it");
+        }
+      } else if (tmd.getColumn(prop.getColumnName().getName()) == null) {
+        result.add(alter.addColumn(prop.getColumnName().toCql()).type(index.getDataType(prop)));
+      }
+    }
+    return result;
+  }
+
+  public static SchemaStatement dropTable(HelenusCoveringIndex index) {
+    return SchemaBuilder.dropTable(index.getTableName().toCql()).ifExists();
+  }
+
   public static SchemaStatement dropTable(HelenusEntity entity) {
 
     if (entity.getType() != HelenusEntityType.TABLE) {
@@ -349,14 +404,24 @@ public final class SchemaUtil {
     }
   }
 
+  public static SchemaStatement createIndex(HelenusCompoundIndex index) {
+    return SchemaBuilder.createIndex(index.getIndexName().toCql())
+        .ifNotExists()
+        .onTable(index.getEntity().getName().toCql())
+        .andColumn(index.getColumnName().toCql());
+  }
+
   public static List<SchemaStatement> createIndexes(HelenusEntity entity) {
 
-    return entity
-        .getOrderedProperties()
-        .stream()
-        .filter(p -> p.getIndexName().isPresent())
-        .map(p -> SchemaUtil.createIndex(p))
-        .collect(Collectors.toList());
+    List<SchemaStatement> list =
+        entity
+            .getOrderedProperties()
+            .stream()
+            .filter(p -> p.getIndexName().isPresent())
+            .map(p -> SchemaUtil.createIndex(p))
+            .collect(Collectors.toList());
+    entity.getCompoundIndexes().forEach(index -> list.add(createIndex(index)));
+    return list;
   }
 
   public static List<SchemaStatement> alterIndexes(
@@ -391,6 +456,15 @@ public final class SchemaUtil {
               }
             });
 
+    for (HelenusCompoundIndex index : entity.getCompoundIndexes()) {
+      if (dropUnusedIndexes) {
+        visitedColumns.add(index.getColumnName().getName());
+      }
+      if (tmd.getIndex(index.getIndexName().getName()) == null) {
+        list.add(createIndex(index));
+      }
+    }
+
     if (dropUnusedIndexes) {
 
       tmd.getColumns()
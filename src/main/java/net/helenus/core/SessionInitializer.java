@@ -21,8 +21,12 @@ import com.google.common.util.concurrent.MoreExecutors;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import javax.cache.CacheManager;
 import net.helenus.core.reflect.DslExportable;
@@ -34,18 +38,27 @@ import net.helenus.mapping.value.ColumnValueProvider;
 import net.helenus.support.Either;
 import net.helenus.support.HelenusException;
 import net.helenus.support.PackageUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public final class SessionInitializer extends AbstractSessionOperations {
 
+  private static final Logger LOG = LoggerFactory.getLogger(SessionInitializer.class);
+
+  private static final int DEFAULT_SCHEMA_AGREEMENT_WAIT_SECONDS = 10;
+
   private final Session session;
   private final List<Either<Object, Class<?>>> initList = new ArrayList<Either<Object, Class<?>>>();
   private CodecRegistry registry;
   private String usingKeyspace;
   private boolean showCql = false;
   private boolean showValues = true;
+  private boolean refuseFullScans = false;
   private ConsistencyLevel consistencyLevel;
   private boolean idempotent = false;
   private MetricRegistry metricRegistry = new MetricRegistry();
+  private UnitOfWorkTelemetry unitOfWorkTelemetry;
+  private double unitOfWorkLogSampleRate = 0.0;
   private PrintStream printStream = System.out;
   private Executor executor = MoreExecutors.directExecutor();
   private SessionRepositoryBuilder sessionRepository;
@@ -54,6 +67,7 @@ public final class SessionInitializer extends AbstractSessionOperations {
   private KeyspaceMetadata keyspaceMetadata;
   private AutoDdl autoDdl = AutoDdl.UPDATE;
   private CacheManager cacheManager = null;
+  private int initParallelism = Math.min(8, Runtime.getRuntime().availableProcessors() * 2);
 
   SessionInitializer(Session session, String keyspace) {
     this.session = session;
@@ -109,6 +123,17 @@ public final class SessionInitializer extends AbstractSessionOperations {
     return this;
   }
 
+  /** Refuses selects which would scan the whole table unless they call allowFiltering(). */
+  public SessionInitializer refuseFullScans() {
+    this.refuseFullScans = true;
+    return this;
+  }
+
+  public SessionInitializer refuseFullScans(boolean enabled) {
+    this.refuseFullScans = enabled;
+    return this;
+  }
+
   public SessionInitializer showQueryValuesInLog(boolean showValues) {
     this.showValues = showValues;
     return this;
@@ -128,6 +153,17 @@ public final class SessionInitializer extends AbstractSessionOperations {
     return this;
   }
 
+  public SessionInitializer unitOfWorkTelemetry(UnitOfWorkTelemetry telemetry) {
+    this.unitOfWorkTelemetry = telemetry;
+    return this;
+  }
+
+  /** The fraction of units of work whose statistics are also logged, between 0.0 and 1.0. */
+  public SessionInitializer unitOfWorkLogSampleRate(double sampleRate) {
+    this.unitOfWorkLogSampleRate = sampleRate;
+    return this;
+  }
+
   public SessionInitializer consistencyLevel(ConsistencyLevel consistencyLevel) {
     this.consistencyLevel = consistencyLevel;
     return this;
@@ -177,6 +213,19 @@ public final class SessionInitializer extends AbstractSessionOperations {
     return this;
   }
 
+  /**
+   * How many entities are mapped, and have their schema changed, at the same time; 1 initializes
+   * them one after the other. Schema changes of different tables (or views) run concurrently, and
+   * schema agreement is awaited once all the changes of a kind are done.
+   */
+  public SessionInitializer initParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.initParallelism = parallelism;
+    return this;
+  }
+
   public SessionInitializer dropUnusedColumns(boolean enabled) {
     this.dropUnusedColumns = enabled;
     return this;
@@ -197,9 +246,18 @@ public final class SessionInitializer extends AbstractSessionOperations {
     return showCql;
   }
 
+  @Override
+  public boolean isRefusingFullScans() {
+    return refuseFullScans;
+  }
+
   public SessionInitializer addPackage(String packageName) {
     try {
-      PackageUtil.getClasses(packageName)
+      Set<Class<?>> classes = PackageUtil.getIndexedClasses(packageName);
+      if (classes == null) {
+        classes = PackageUtil.getClasses(packageName);
+      }
+      classes
           .stream()
           .filter(c -> c.isInterface() && !c.isAnnotation())
           .forEach(
@@ -280,116 +338,163 @@ public final class SessionInitializer extends AbstractSessionOperations {
         consistencyLevel,
         idempotent,
         cacheManager,
-        metricRegistry);
+        metricRegistry,
+        unitOfWorkTelemetry != null
+            ? unitOfWorkTelemetry
+            : new MetricsUnitOfWorkTelemetry(metricRegistry, unitOfWorkLogSampleRate),
+        refuseFullScans);
+  }
+
+  /**
+   * Maps the entities added so far and returns the schema changes {@link #get()} would make for the
+   * auto DDL mode ({@link AutoDdl#VALIDATE} is planned as {@link AutoDdl#UPDATE}), without applying
+   * them. The keyspace metadata is read once per call.
+   */
+  public synchronized SchemaPlan planSchema() {
+    if (session == null) {
+      throw new HelenusException("no session to read the keyspace metadata from");
+    }
+    Objects.requireNonNull(usingKeyspace, "please define keyspace by 'use' operator");
+    mapEntities(null);
+    keyspaceMetadata = null;
+    AutoDdl mode = autoDdl == AutoDdl.VALIDATE ? AutoDdl.UPDATE : autoDdl;
+    return newSchemaPlanner().plan(mode, getKeyspaceMetadata());
   }
 
   private void initialize() {
 
     Objects.requireNonNull(usingKeyspace, "please define keyspace by 'use' operator");
 
+    ExecutorService pool =
+        initParallelism > 1 ? Executors.newFixedThreadPool(initParallelism) : null;
+    try {
+      initialize(pool);
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
+    }
+  }
+
+  private void initialize(ExecutorService pool) {
+
+    mapEntities(pool);
+
+    if (session == null) return;
+
+    if (autoDdl == AutoDdl.VALIDATE) {
+      TableOperations tableOps = new TableOperations(this, dropUnusedColumns, dropUnusedIndexes);
+      UserTypeOperations userTypeOps = new UserTypeOperations(this, dropUnusedColumns);
+
+      eachUserTypeInOrder(userTypeOps, e -> userTypeOps.validateUserType(getUserType(e), e));
+
+      sessionRepository
+          .entities()
+          .stream()
+          .filter(e -> e.getType() == HelenusEntityType.TABLE)
+          .forEach(e -> tableOps.validateTable(getTableMetadata(e), e));
+
+      sessionRepository
+          .entities()
+          .stream()
+          .flatMap(e -> e.getCoveringIndexes().stream())
+          .forEach(
+              index ->
+                  tableOps.validateCoveringIndex(
+                      getKeyspaceMetadata().getTable(index.getTableName().getName()), index));
+    } else {
+      SchemaPlan plan = newSchemaPlanner().plan(autoDdl, getKeyspaceMetadata());
+      plan.apply(this, pool, this::awaitSchemaAgreement);
+      // The changes are not in the metadata fetched before them.
+      keyspaceMetadata = null;
+    }
+
+    KeyspaceMetadata km = getKeyspaceMetadata();
+
+    for (UserType userType : km.getUserTypes()) {
+      sessionRepository.addUserType(userType.getTypeName(), userType);
+    }
+  }
+
+  /** Maps the added entities, concurrently on the pool if any, and registers them in order. */
+  private void mapEntities(ExecutorService pool) {
+
+    Set<Class<?>> ifaces = new LinkedHashSet<Class<?>>();
     initList.forEach(
         (either) -> {
-          Class<?> iface = null;
           if (either.isLeft()) {
-            iface = MappingUtil.getMappingInterface(either.getLeft());
+            ifaces.add(MappingUtil.getMappingInterface(either.getLeft()));
           } else {
-            iface = either.getRight();
+            ifaces.add(either.getRight());
           }
+        });
 
+    // Mapping an entity is independent of the others, only registering them is ordered.
+    Metadata metadata = session != null ? session.getCluster().getMetadata() : null;
+    inParallel(
+        pool,
+        ifaces,
+        iface -> {
           DslExportable dsl = (DslExportable) Helenus.dsl(iface);
-          if (session != null) {
-            dsl.setCassandraMetadataForHelenusSession(session.getCluster().getMetadata());
-          }
-          if (sessionRepository != null) {
-            sessionRepository.add(dsl);
+          if (metadata != null) {
+            dsl.setCassandraMetadataForHelenusSession(metadata);
           }
         });
+    if (sessionRepository != null) {
+      ifaces.forEach(iface -> sessionRepository.add(Helenus.dsl(iface)));
+    }
+  }
 
-    if (session == null) return;
+  private SchemaPlanner newSchemaPlanner() {
+    return new SchemaPlanner(
+        sessionRepository, usingKeyspace, dropUnusedColumns, dropUnusedIndexes);
+  }
 
-    TableOperations tableOps = new TableOperations(this, dropUnusedColumns, dropUnusedIndexes);
-    UserTypeOperations userTypeOps = new UserTypeOperations(this, dropUnusedColumns);
-
-    switch (autoDdl) {
-      case CREATE_DROP:
-
-        // Drop view first, otherwise a `DROP TABLE ...` will fail as the type is still
-        // referenced
-        // by a view.
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.VIEW)
-            .forEach(e -> tableOps.dropView(e));
-
-        // Drop tables second, before DROP TYPE otherwise a `DROP TYPE ...` will fail as
-        // the type is
-        // still referenced by a table.
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.TABLE)
-            .forEach(e -> tableOps.dropTable(e));
-
-        eachUserTypeInReverseOrder(userTypeOps, e -> userTypeOps.dropUserType(e));
-
-        // FALLTHRU to CREATE case (read: the absence of a `break;` statement here is
-        // intentional!)
-      case CREATE:
-        eachUserTypeInOrder(userTypeOps, e -> userTypeOps.createUserType(e));
-
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.TABLE)
-            .forEach(e -> tableOps.createTable(e));
-
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.VIEW)
-            .forEach(e -> tableOps.createView(e));
-
-        break;
-
-      case VALIDATE:
-        eachUserTypeInOrder(userTypeOps, e -> userTypeOps.validateUserType(getUserType(e), e));
-
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.TABLE)
-            .forEach(e -> tableOps.validateTable(getTableMetadata(e), e));
-
-        break;
-
-      case UPDATE:
-        eachUserTypeInOrder(userTypeOps, e -> userTypeOps.updateUserType(getUserType(e), e));
-
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.VIEW)
-            .forEach(e -> tableOps.dropView(e));
-
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.TABLE)
-            .forEach(e -> tableOps.updateTable(getTableMetadata(e), e));
-
-        sessionRepository
-            .entities()
-            .stream()
-            .filter(e -> e.getType() == HelenusEntityType.VIEW)
-            .forEach(e -> tableOps.createView(e));
-        break;
+  private static <T> void inParallel(
+      ExecutorService pool, Collection<T> items, Consumer<? super T> action) {
+    if (pool == null || items.size() < 2) {
+      items.forEach(action);
+      return;
     }
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[items.size()];
+    int i = 0;
+    for (T item : items) {
+      futures[i++] = CompletableFuture.runAsync(() -> action.accept(item), pool);
+    }
+    try {
+      CompletableFuture.allOf(futures).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new HelenusException(e.getCause());
+    }
+  }
 
-    KeyspaceMetadata km = getKeyspaceMetadata();
-
-    for (UserType userType : km.getUserTypes()) {
-      sessionRepository.addUserType(userType.getTypeName(), userType);
+  /**
+   * The driver already waits for agreement after each schema change, up to the cluster's
+   * maxSchemaAgreementWaitSeconds; a cluster configured with 0 only waits here, before a step of
+   * the {@link SchemaPlan} which depends on changed steps.
+   */
+  private void awaitSchemaAgreement() {
+    Cluster cluster = session.getCluster();
+    int seconds =
+        cluster.getConfiguration().getProtocolOptions().getMaxSchemaAgreementWaitSeconds();
+    long deadline =
+        System.nanoTime()
+            + TimeUnit.SECONDS.toNanos(
+                seconds > 0 ? seconds : DEFAULT_SCHEMA_AGREEMENT_WAIT_SECONDS);
+    while (!cluster.getMetadata().checkSchemaAgreement()) {
+      if (System.nanoTime() > deadline) {
+        LOG.warn("no schema agreement in keyspace {}, continuing", usingKeyspace);
+        return;
+      }
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new HelenusException(e);
+      }
     }
   }
 
@@ -410,18 +515,6 @@ public final class SessionInitializer extends AbstractSessionOperations {
             });
   }
 
-  private void eachUserTypeInReverseOrder(
-      UserTypeOperations userTypeOps, Consumer<? super HelenusEntity> action) {
-    ArrayDeque<HelenusEntity> deque = new ArrayDeque<>();
-    eachUserTypeInOrder(userTypeOps, e -> deque.addFirst(e));
-    deque
-        .stream()
-        .forEach(
-            e -> {
-              action.accept(e);
-            });
-  }
-
   private void eachUserTypeInRecursion(
       HelenusEntity e,
       Set<HelenusEntity> processedSet,
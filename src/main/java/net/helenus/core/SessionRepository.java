@@ -16,9 +16,12 @@
 package net.helenus.core;
 
 import com.datastax.driver.core.UserType;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import java.util.Collection;
+import java.util.List;
 import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusEntityType;
 
 public final class SessionRepository {
 
@@ -26,12 +29,23 @@ public final class SessionRepository {
 
   private final ImmutableMap<Class<?>, HelenusEntity> entityMap;
 
+  private final ImmutableListMultimap<Class<?>, HelenusEntity> viewMap;
+
   public SessionRepository(SessionRepositoryBuilder builder) {
 
     userTypeMap = ImmutableMap.<String, UserType>builder().putAll(builder.getUserTypeMap()).build();
 
     entityMap =
         ImmutableMap.<Class<?>, HelenusEntity>builder().putAll(builder.getEntityMap()).build();
+
+    ImmutableListMultimap.Builder<Class<?>, HelenusEntity> views = ImmutableListMultimap.builder();
+    for (HelenusEntity entity : entityMap.values()) {
+      Class<?> table = baseTableOf(entity);
+      if (table != null) {
+        views.put(table, entity);
+      }
+    }
+    viewMap = views.build();
   }
 
   public UserType findUserType(String name) {
@@ -41,4 +55,15 @@ public final class SessionRepository {
   public Collection<HelenusEntity> entities() {
     return entityMap.values();
   }
+
+  /** The mapping interface of the base table of a materialized view, null for other entities. */
+  static Class<?> baseTableOf(HelenusEntity entity) {
+    Class<?>[] ifaces = entity.getMappingInterface().getInterfaces();
+    return entity.getType() == HelenusEntityType.VIEW && ifaces.length > 0 ? ifaces[0] : null;
+  }
+
+  /** The materialized views registered for the table. */
+  public List<HelenusEntity> viewsOf(HelenusEntity table) {
+    return viewMap.get(table.getMappingInterface());
+  }
 }
@@ -18,7 +18,7 @@ package net.helenus.core;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.UDTValue;
 import com.datastax.driver.core.UserType;
-import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import java.util.Collection;
 import java.util.HashMap;
@@ -40,7 +40,7 @@ public final class SessionRepositoryBuilder {
 
   private final Map<String, UserType> userTypeMap = new HashMap<String, UserType>();
 
-  private final Multimap<HelenusEntity, HelenusEntity> userTypeUsesMap = HashMultimap.create();
+  private final Multimap<HelenusEntity, HelenusEntity> userTypeUsesMap = LinkedHashMultimap.create();
 
   private final Session session;
 
@@ -52,8 +52,9 @@ public final class SessionRepositoryBuilder {
     return new SessionRepository(this);
   }
 
-  public Collection<HelenusEntity> getUserTypeUses(HelenusEntity udtName) {
-    return userTypeUsesMap.get(udtName);
+  /** The user types used by the columns of the entity, a user type or a table. */
+  public Collection<HelenusEntity> getUserTypeUses(HelenusEntity entity) {
+    return userTypeUsesMap.get(entity);
   }
 
   public Collection<HelenusEntity> entities() {
@@ -134,9 +135,7 @@ public final class SessionRepositoryBuilder {
 
           HelenusEntity addedUserType = add(udtClass, OPTIONAL_UDT);
 
-          if (HelenusEntityType.UDT == prop.getEntity().getType()) {
-            userTypeUsesMap.put(prop.getEntity(), addedUserType);
-          }
+          userTypeUsesMap.put(prop.getEntity(), addedUserType);
         }
       }
     }
@@ -18,6 +18,7 @@ package net.helenus.core;
 import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.schemabuilder.SchemaStatement;
 import java.util.List;
+import net.helenus.mapping.HelenusCoveringIndex;
 import net.helenus.mapping.HelenusEntity;
 import net.helenus.support.HelenusException;
 
@@ -66,6 +67,29 @@ public final class TableOperations {
     }
   }
 
+  public void validateCoveringIndex(TableMetadata tmd, HelenusCoveringIndex index) {
+
+    if (tmd == null) {
+      throw new HelenusException(
+          "table does not exists "
+              + index.getTableName()
+              + " for covering index of entity "
+              + index.getEntity().getMappingInterface());
+    }
+
+    List<SchemaStatement> list = SchemaUtil.alterTable(tmd, index);
+
+    if (!list.isEmpty()) {
+      throw new HelenusException(
+          "schema changed for covering index "
+              + index
+              + " of entity "
+              + index.getEntity().getMappingInterface()
+              + ", apply this command: "
+              + list);
+    }
+  }
+
   public void updateTable(TableMetadata tmd, HelenusEntity entity) {
     if (tmd == null) {
       createTable(entity);
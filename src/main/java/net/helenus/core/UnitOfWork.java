@@ -17,16 +17,22 @@ package net.helenus.core;
 
 import static net.helenus.core.HelenusSession.deleted;
 
+import com.datastax.driver.core.ResultSetFuture;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import com.google.common.collect.TreeTraverser;
+import com.google.common.util.concurrent.Striped;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -34,8 +40,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.cache.Cache;
@@ -53,6 +63,9 @@ import net.helenus.core.cache.CacheUtil;
 import net.helenus.core.cache.Facet;
 import net.helenus.core.cache.MapCache;
 import net.helenus.core.operation.AbstractOperation;
+import net.helenus.core.operation.AbstractOptionalOperation;
+import net.helenus.core.operation.AbstractStatementOperation;
+import net.helenus.core.operation.AbstractStreamOperation;
 import net.helenus.core.operation.BatchOperation;
 import net.helenus.mapping.MappingUtil;
 import net.helenus.support.CheckedRunnable;
@@ -68,40 +81,100 @@ public class UnitOfWork implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(UnitOfWork.class);
 
   public final UnitOfWork parent;
-  protected final List<UnitOfWork> nested = new ArrayList<>();
-  protected final Table<String, String, Either<Object, List<Facet>>> cache = HashBasedTable.create();
+  // Copy on write, nested units of work may be added from other threads while it is iterated.
+  protected final List<UnitOfWork> nested = new CopyOnWriteArrayList<>();
+  protected final Table<String, String, Either<Object, List<Facet>>> cache;
   protected final EvictTrackingMapCache<String, Object> statementCache;
   protected final HelenusSession session;
   protected String purpose;
-  protected List<String> nestedPurposes = new ArrayList<String>();
+  protected final List<String> nestedPurposes;
   protected String info;
-  protected int cacheHits = 0;
-  protected int cacheMisses = 0;
-  protected int databaseLookups = 0;
+  protected final LongAdder cacheHits = new LongAdder();
+  protected final LongAdder cacheMisses = new LongAdder();
+  protected final LongAdder databaseLookups = new LongAdder();
   protected final Stopwatch elapsedTime;
-  protected Map<String, Double> databaseTime = new HashMap<>();
-  protected double cacheLookupTimeMSecs = 0.0;
-  private List<CheckedRunnable> commitThunks = new ArrayList<>();
-  private List<CheckedRunnable> abortThunks = new ArrayList<>();
+  protected final Map<String, LongAdder> databaseTime = new ConcurrentHashMap<>();
+  protected final LongAdder cacheLookupTimeMicros = new LongAdder();
+  protected volatile int nestingDepth = 0;
+  private final boolean concurrent;
+  private final boolean readOnly;
+  private final Striped<Lock> tableLocks;
+  private final List<CheckedRunnable> commitThunks;
+  private final List<CheckedRunnable> abortThunks;
   private Consumer<? super Throwable> exceptionallyThunk;
-  private List<CompletableFuture<?>> asyncOperationFutures = new ArrayList<CompletableFuture<?>>();
+  private final List<CompletableFuture<?>> asyncOperationFutures;
   private boolean aborted = false;
   private boolean committed = false;
   private long committedAt = 0L;
   private BatchOperation batch;
+  private boolean atomic = false;
+  private int flushAfterStatements = 0;
+  private long flushAfterNanos = 0L;
+  private long lastFlushNanos = 0L;
+  private int maxCachedEntries = 0;
+  private final Set<Map.Entry<String, String>> cachedEntries = new LinkedHashSet<>();
+  private final Set<Map.Entry<String, String>> dirtyEntries = new HashSet<>();
 
   public UnitOfWork(HelenusSession session) {
     this(session, null);
   }
 
   public UnitOfWork(HelenusSession session, UnitOfWork parent) {
+    this(
+        session,
+        parent,
+        parent != null && parent.concurrent,
+        parent != null && parent.readOnly);
+  }
+
+  /**
+   * @param concurrent when true the unit of work may be used from several threads at once, its
+   *     cache is a concurrent table guarded by per-table locks and its bookkeeping lists are
+   *     synchronized. Nested units of work inherit the mode of their parent.
+   */
+  public UnitOfWork(HelenusSession session, UnitOfWork parent, boolean concurrent) {
+    this(session, parent, concurrent, parent != null && parent.readOnly);
+  }
+
+  /**
+   * @param readOnly when true the unit of work only keeps an identity map of the entities read
+   *     within it; it has no statement cache, rejects writes and its commit merges nothing back
+   *     into the session.
+   */
+  UnitOfWork(HelenusSession session, UnitOfWork parent, boolean concurrent, boolean readOnly) {
     Objects.requireNonNull(session, "containing session cannot be null");
 
     this.parent = parent;
+    this.concurrent = concurrent;
+    this.readOnly = readOnly;
+    if (concurrent) {
+      this.cache =
+          Tables.newCustomTable(
+              new ConcurrentHashMap<String, Map<String, Either<Object, List<Facet>>>>(),
+              ConcurrentHashMap::new);
+      this.tableLocks = Striped.lock(16);
+      this.nestedPurposes = Collections.synchronizedList(new ArrayList<String>());
+      this.commitThunks = Collections.synchronizedList(new ArrayList<CheckedRunnable>());
+      this.abortThunks = Collections.synchronizedList(new ArrayList<CheckedRunnable>());
+      this.asyncOperationFutures =
+          Collections.synchronizedList(new ArrayList<CompletableFuture<?>>());
+    } else {
+      this.cache = HashBasedTable.create();
+      this.tableLocks = null;
+      this.nestedPurposes = new ArrayList<String>();
+      this.commitThunks = new ArrayList<CheckedRunnable>();
+      this.abortThunks = new ArrayList<CheckedRunnable>();
+      this.asyncOperationFutures = new ArrayList<CompletableFuture<?>>();
+    }
     if (parent != null) {
       parent.addNestedUnitOfWork(this);
     }
     this.session = session;
+    this.elapsedTime = Stopwatch.createUnstarted();
+    if (readOnly) {
+      this.statementCache = null;
+      return;
+    }
     CacheLoader<String, Object> cacheLoader = null;
     if (parent != null) {
       cacheLoader =
@@ -125,27 +198,49 @@ public class UnitOfWork implements AutoCloseable {
             }
           };
     }
-    this.elapsedTime = Stopwatch.createUnstarted();
     this.statementCache = new EvictTrackingMapCache<String, Object>(null, "UOW(" + hashCode() + ")", cacheLoader, true);
   }
 
   public void addDatabaseTime(String name, Stopwatch amount) {
-    Double time = databaseTime.get(name);
-    if (time == null) {
-      databaseTime.put(name, (double) amount.elapsed(TimeUnit.MICROSECONDS));
-    } else {
-      databaseTime.put(name, time + amount.elapsed(TimeUnit.MICROSECONDS));
-    }
+    addDatabaseTime(name, amount.elapsed(TimeUnit.MICROSECONDS));
+  }
+
+  private void addDatabaseTime(String name, long micros) {
+    databaseTime.computeIfAbsent(name, k -> new LongAdder()).add(micros);
   }
 
   public void addCacheLookupTime(Stopwatch amount) {
-    cacheLookupTimeMSecs += amount.elapsed(TimeUnit.MICROSECONDS);
+    cacheLookupTimeMicros.add(amount.elapsed(TimeUnit.MICROSECONDS));
   }
 
-  public void addNestedUnitOfWork(UnitOfWork uow) {
-    synchronized (nested) {
-      nested.add(uow);
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  public void checkWritable() {
+    if (readOnly) {
+      throw new HelenusException("cannot write within a read-only unit of work");
+    }
+  }
+
+  public long elapsed(TimeUnit unit) {
+    return elapsedTime.elapsed(unit);
+  }
+
+  public long totalDatabaseTimeMicros() {
+    long total = 0L;
+    for (LongAdder time : databaseTime.values()) {
+      total += time.sum();
     }
+    return total;
+  }
+
+  public void addNestedUnitOfWork(UnitOfWork uow) {
+    nested.add(uow);
   }
 
   /**
@@ -160,15 +255,185 @@ public class UnitOfWork implements AutoCloseable {
     return this;
   }
 
+  /**
+   * Executes the given queries concurrently and stores their results in this unit of work's cache,
+   * so the same queries run later within it are answered without a round trip. Waits for them as
+   * long as the read timeout of the session.
+   */
+  public UnitOfWork prefetch(AbstractStatementOperation<?, ?>... queries) {
+    int timeout =
+        session
+            .currentSession()
+            .getCluster()
+            .getConfiguration()
+            .getSocketOptions()
+            .getReadTimeoutMillis();
+    return prefetch(Arrays.asList(queries), timeout, TimeUnit.MILLISECONDS);
+  }
+
+  public UnitOfWork prefetch(
+      List<? extends AbstractStatementOperation<?, ?>> queries, long timeout, TimeUnit units) {
+    if (queries.isEmpty()) {
+      return this;
+    }
+    for (AbstractStatementOperation<?, ?> query : queries) {
+      if (!(query instanceof AbstractOptionalOperation
+          || query instanceof AbstractStreamOperation)) {
+        throw new HelenusException("only queries can be prefetched, not " + query);
+      }
+    }
+
+    Stopwatch timer = Stopwatch.createStarted();
+    try {
+      List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(queries.size());
+      for (AbstractStatementOperation<?, ?> query : queries) {
+        futures.add(session.executeAsync(query.options(query.buildStatement(true)), this, timer));
+      }
+      recordCacheAndDatabaseOperationCount(0, futures.size());
+
+      for (int i = 0; i < futures.size(); i++) {
+        queries.get(i).prefetched(this, futures.get(i).getUninterruptibly(timeout, units));
+      }
+    } catch (TimeoutException e) {
+      throw new HelenusException(e);
+    } finally {
+      timer.stop();
+      addDatabaseTime("Cassandra", timer);
+    }
+    return this;
+  }
+
   public String getPurpose() {
     return purpose;
   }
 
+  /** The reads answered from a cache so far. */
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.sum();
+  }
+
+  /** The statements and batches sent to the database so far. */
+  public long getDatabaseLookups() {
+    return databaseLookups.sum();
+  }
+
   public UnitOfWork setPurpose(String purpose) {
     this.purpose = purpose;
     return this;
   }
 
+  public boolean isAtomic() {
+    return atomic;
+  }
+
+  /**
+   * When true, statements batched for commit that span several partitions are sent as one batch
+   * through the batchlog. By default each partition is sent as its own unlogged batch.
+   */
+  public UnitOfWork setAtomic(boolean atomic) {
+    this.atomic = atomic;
+    return this;
+  }
+
+  /**
+   * Turns this into a streaming unit of work for long running jobs: once the given number of
+   * statements has been batched, or the given time has passed since the last flush, the batch is
+   * written out by {@link #checkpoint()} rather than held until commit. Rows written that way are
+   * no longer rolled back by an abort.
+   */
+  public UnitOfWork setFlushThreshold(int statements, long interval, TimeUnit units) {
+    checkWritable();
+    if (parent != null) {
+      throw new HelenusException("only the outer-most unit of work can flush its batch");
+    }
+    this.flushAfterStatements = statements;
+    this.flushAfterNanos = units.toNanos(interval);
+    this.lastFlushNanos = System.nanoTime();
+    return this;
+  }
+
+  /**
+   * Bounds the number of entries cached by this unit of work. An entity takes one entry per facet
+   * it is cached under: its primary key and each of its distinct constraints. Once exceeded, the
+   * least recently cached entries are evicted, except those written since the last flush.
+   */
+  public UnitOfWork setMaxCachedEntries(int maxCachedEntries) {
+    this.maxCachedEntries = maxCachedEntries;
+    return this;
+  }
+
+  /**
+   * Writes out the statements batched so far and merges what this unit of work has cached into the
+   * session, as a commit would, then carries on with an empty batch.
+   *
+   * @return the write time of the flushed statements, or 0 when there was nothing to write
+   */
+  public synchronized long checkpoint() {
+    checkWritable();
+    if (parent != null) {
+      throw new HelenusException("only the outer-most unit of work can checkpoint");
+    }
+
+    long writtenAt = 0L;
+    if (batch != null) {
+      writtenAt = batch.setLogged(atomic).sync(this);
+      committedAt = writtenAt;
+      batch = null;
+    }
+    lastFlushNanos = System.nanoTime();
+
+    mergeIntoSession();
+    statementCache.clear();
+
+    synchronized (cachedEntries) {
+      dirtyEntries.clear();
+      evictCleanEntries();
+    }
+    return writtenAt;
+  }
+
+  private void trackCacheEntry(String tableName, String columnName) {
+    if (maxCachedEntries > 0) {
+      synchronized (cachedEntries) {
+        Map.Entry<String, String> entry = Maps.immutableEntry(tableName, columnName);
+        cachedEntries.remove(entry);
+        cachedEntries.add(entry);
+        evictCleanEntries();
+      }
+    }
+  }
+
+  private void evictCleanEntries() {
+    if (maxCachedEntries <= 0) {
+      return;
+    }
+    Iterator<Map.Entry<String, String>> it = cachedEntries.iterator();
+    while (cache.size() > maxCachedEntries && it.hasNext()) {
+      Map.Entry<String, String> entry = it.next();
+      if (dirtyEntries.contains(entry)) {
+        continue;
+      }
+      // Waiting for the lock of another table while holding one could deadlock, the entries of a
+      // table whose lock is taken are left to a later eviction.
+      Lock lock = tableLocks != null ? tableLocks.get(entry.getKey()) : null;
+      if (lock != null && !lock.tryLock()) {
+        continue;
+      }
+      try {
+        cache.remove(entry.getKey(), entry.getValue());
+        it.remove();
+      } finally {
+        if (lock != null) {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
   public void addFuture(CompletableFuture<?> future) {
     asyncOperationFutures.add(future);
   }
@@ -179,25 +444,26 @@ public class UnitOfWork implements AutoCloseable {
 
   public void recordCacheAndDatabaseOperationCount(int cache, int ops) {
     if (cache > 0) {
-      cacheHits += cache;
+      cacheHits.add(cache);
     } else {
-      cacheMisses += Math.abs(cache);
+      cacheMisses.add(Math.abs(cache));
     }
     if (ops > 0) {
-      databaseLookups += ops;
+      databaseLookups.add(ops);
     }
   }
 
   public String logTimers(String what) {
     double e = (double) elapsedTime.elapsed(TimeUnit.MICROSECONDS) / 1000.0;
     double d = 0.0;
-    double c = cacheLookupTimeMSecs / 1000.0;
+    double c = cacheLookupTimeMicros.sum() / 1000.0;
+    long lookups = databaseLookups.sum();
     double fc = (c / e) * 100.0;
     String database = "";
     if (databaseTime.size() > 0) {
       List<String> dbt = new ArrayList<>(databaseTime.size());
-      for (Map.Entry<String, Double> dt : databaseTime.entrySet()) {
-        double t = dt.getValue() / 1000.0;
+      for (Map.Entry<String, LongAdder> dt : databaseTime.entrySet()) {
+        double t = dt.getValue().sum() / 1000.0;
         d += t;
         dbt.add(String.format("%s took %,.3fms %,2.2f%%", dt.getKey(), t, (t / e) * 100.0));
       }
@@ -205,18 +471,20 @@ public class UnitOfWork implements AutoCloseable {
       database =
           String.format(
               ", %d quer%s (%,.3fms %,2.2f%% - %s)",
-              databaseLookups, (databaseLookups > 1) ? "ies" : "y", d, fd, String.join(", ", dbt));
+              lookups, (lookups > 1) ? "ies" : "y", d, fd, String.join(", ", dbt));
     }
     String cache = "";
-    if (cacheLookupTimeMSecs > 0) {
-      int cacheLookups = cacheHits + cacheMisses;
+    if (cacheLookupTimeMicros.sum() > 0) {
+      long hits = cacheHits.sum();
+      long misses = cacheMisses.sum();
+      long cacheLookups = hits + misses;
       cache =
           String.format(
               " with %d cache lookup%s (%,.3fms %,2.2f%% - %,d hit, %,d miss)",
-              cacheLookups, cacheLookups > 1 ? "s" : "", c, fc, cacheHits, cacheMisses);
+              cacheLookups, cacheLookups > 1 ? "s" : "", c, fc, hits, misses);
     }
     String da = "";
-    if (databaseTime.size() > 0 || cacheLookupTimeMSecs > 0) {
+    if (databaseTime.size() > 0 || c > 0) {
       double dat = d + c;
       double daf = (dat / e) * 100;
       da =
@@ -300,8 +568,19 @@ public class UnitOfWork implements AutoCloseable {
   }
 
   public List<Facet> cacheEvict(List<Facet> facets) {
+    checkWritable();
     Either<Object, List<Facet>> deletedObjectFacets = Either.right(facets);
     String tableName = CacheUtil.schemaName(facets);
+    lockTable(tableName);
+    try {
+      return cacheEvict(tableName, facets, deletedObjectFacets);
+    } finally {
+      unlockTable(tableName);
+    }
+  }
+
+  private List<Facet> cacheEvict(
+      String tableName, List<Facet> facets, Either<Object, List<Facet>> deletedObjectFacets) {
     Optional<Object> optionalValue = cacheLookup(facets);
 
     for (Facet facet : facets) {
@@ -309,6 +588,7 @@ public class UnitOfWork implements AutoCloseable {
         String columnKey = facet.name() + "==" + facet.value();
         // mark the value identified by the facet to `deleted`
         cache.put(tableName, columnKey, deletedObjectFacets);
+        trackCacheEntry(tableName, columnKey);
       }
     }
 
@@ -335,29 +615,76 @@ public class UnitOfWork implements AutoCloseable {
   }
 
   public Cache<String, Object> getCache() {
+    if (readOnly) {
+      throw new HelenusException("read-only units of work have no statement cache");
+    }
     return statementCache;
   }
 
   public Object cacheUpdate(Object value, List<Facet> facets) {
     Object result = null;
     String tableName = CacheUtil.schemaName(facets);
-    for (Facet facet : facets) {
-      if (!facet.fixed()) {
-        if (facet.alone()) {
-          String columnName = facet.name() + "==" + facet.value();
-          if (result == null) result = cache.get(tableName, columnName);
-          cache.put(tableName, columnName, Either.left(value));
+    lockTable(tableName);
+    try {
+      for (Facet facet : facets) {
+        if (!facet.fixed()) {
+          if (facet.alone()) {
+            String columnName = facet.name() + "==" + facet.value();
+            if (result == null) result = cache.get(tableName, columnName);
+            cache.put(tableName, columnName, Either.left(value));
+            trackCacheEntry(tableName, columnName);
+          }
         }
       }
+    } finally {
+      unlockTable(tableName);
     }
     return result;
   }
 
-  public void batch(AbstractOperation s) {
+  private void lockTable(String tableName) {
+    if (tableLocks != null) {
+      tableLocks.get(tableName).lock();
+    }
+  }
+
+  private void unlockTable(String tableName) {
+    if (tableLocks != null) {
+      tableLocks.get(tableName).unlock();
+    }
+  }
+
+  public synchronized void batch(AbstractOperation s) {
+    checkWritable();
     if (batch == null) {
       batch = new BatchOperation(session);
     }
     batch.add(s);
+
+    markDirty(s.bindFacetValues());
+
+    if ((flushAfterStatements > 0 && batch.size() >= flushAfterStatements)
+        || (flushAfterNanos > 0L && System.nanoTime() - lastFlushNanos >= flushAfterNanos)) {
+      checkpoint();
+    }
+  }
+
+  /**
+   * Keeps the entries cached under these facets from being evicted until the next flush. A write
+   * marks its facets before caching its entity, so the entity can't be evicted before it is
+   * batched.
+   */
+  public void markDirty(List<Facet> facets) {
+    if (maxCachedEntries > 0 && facets != null && !facets.isEmpty()) {
+      String tableName = CacheUtil.schemaName(facets);
+      synchronized (cachedEntries) {
+        for (Facet facet : facets) {
+          if (!facet.fixed()) {
+            dirtyEntries.add(Maps.immutableEntry(tableName, facet.name() + "==" + facet.value()));
+          }
+        }
+      }
+    }
   }
 
   private Iterator<UnitOfWork> getChildNodes() {
@@ -376,9 +703,13 @@ public class UnitOfWork implements AutoCloseable {
       return PostCommitFunction.NULL_ABORT;
     }
 
+    if (readOnly) {
+      return commitReadOnly();
+    }
+
     // Only the outer-most UOW batches statements for commit time, execute them.
     if (batch != null) {
-      committedAt = batch.sync(this); //TODO(gburd): update cache with writeTime...
+      committedAt = batch.setLogged(atomic).sync(this); //TODO(gburd): update cache with writeTime...
     }
 
     // All nested UnitOfWork should be committed (not aborted) before calls to
@@ -404,9 +735,7 @@ public class UnitOfWork implements AutoCloseable {
                 });
 
         elapsedTime.stop();
-        if (LOG.isInfoEnabled()) {
-          LOG.info(logTimers("aborted"));
-        }
+        session.getUnitOfWorkTelemetry().record(this, false);
       }
 
       return PostCommitFunction.NULL_ABORT;
@@ -424,32 +753,7 @@ public class UnitOfWork implements AutoCloseable {
                   applyPostCommitFunctions("committed", uow.commitThunks, exceptionallyThunk);
                 });
 
-        // Merge our statement cache into the session cache if it exists.
-        CacheManager cacheManager = session.getCacheManager();
-        if (cacheManager != null) {
-          for (Map.Entry<String, Object> entry :
-              (Set<Map.Entry<String, Object>>) statementCache.<Map>unwrap(Map.class).entrySet()) {
-            String[] keyParts = entry.getKey().split("\\.");
-            if (keyParts.length == 2) {
-              String cacheName = keyParts[0];
-              String key = keyParts[1];
-              if (!StringUtils.isBlank(cacheName) && !StringUtils.isBlank(key)) {
-                Cache<Object, Object> cache = cacheManager.getCache(cacheName);
-                if (cache != null) {
-                  Object value = entry.getValue();
-                  if (value == deleted) {
-                    cache.remove(key);
-                  } else {
-                    cache.put(key.toString(), value);
-                  }
-                }
-              }
-            }
-          }
-        }
-
-        // Merge our cache into the session cache.
-        session.mergeCache(cache);
+        mergeIntoSession();
 
         // Spoil any lingering futures that may be out there.
         asyncOperationFutures.forEach(
@@ -459,9 +763,7 @@ public class UnitOfWork implements AutoCloseable {
                         "Futures must be resolved before their unit of work has committed/aborted.")));
 
         elapsedTime.stop();
-        if (LOG.isInfoEnabled()) {
-          LOG.info(logTimers("committed"));
-        }
+        session.getUnitOfWorkTelemetry().record(this, true);
 
         return PostCommitFunction.NULL_COMMIT;
       } else {
@@ -469,22 +771,19 @@ public class UnitOfWork implements AutoCloseable {
         parent.statementCache.putAll(statementCache.<Map>unwrap(Map.class));
         parent.statementCache.removeAll(statementCache.getDeletions());
         parent.mergeCache(cache);
-        parent.addBatched(batch);
         if (purpose != null) {
           parent.nestedPurposes.add(purpose);
         }
-        parent.cacheHits += cacheHits;
-        parent.cacheMisses += cacheMisses;
-        parent.databaseLookups += databaseLookups;
-        parent.cacheLookupTimeMSecs += cacheLookupTimeMSecs;
-        for (Map.Entry<String, Double> dt : databaseTime.entrySet()) {
-          String name = dt.getKey();
-          if (parent.databaseTime.containsKey(name)) {
-            double t = parent.databaseTime.get(name);
-            parent.databaseTime.put(name, t + dt.getValue());
-          } else {
-            parent.databaseTime.put(name, dt.getValue());
-          }
+        parent.cacheHits.add(cacheHits.sum());
+        parent.cacheMisses.add(cacheMisses.sum());
+        parent.databaseLookups.add(databaseLookups.sum());
+        parent.cacheLookupTimeMicros.add(cacheLookupTimeMicros.sum());
+        synchronized (parent) {
+          parent.addBatched(batch);
+          parent.nestingDepth = Math.max(parent.nestingDepth, nestingDepth + 1);
+        }
+        for (Map.Entry<String, LongAdder> dt : databaseTime.entrySet()) {
+          parent.addDatabaseTime(dt.getKey(), dt.getValue().sum());
         }
       }
     }
@@ -496,6 +795,57 @@ public class UnitOfWork implements AutoCloseable {
     return new PostCommitFunction<Void, Void>(commitThunks, abortThunks, exceptionallyThunk, true);
   }
 
+  private void mergeIntoSession() {
+    // Merge our statement cache into the session cache if it exists.
+    CacheManager cacheManager = session.getCacheManager();
+    if (cacheManager != null) {
+      for (Map.Entry<String, Object> entry :
+          (Set<Map.Entry<String, Object>>) statementCache.<Map>unwrap(Map.class).entrySet()) {
+        String[] keyParts = entry.getKey().split("\\.");
+        if (keyParts.length == 2) {
+          String cacheName = keyParts[0];
+          String key = keyParts[1];
+          if (!StringUtils.isBlank(cacheName) && !StringUtils.isBlank(key)) {
+            Cache<Object, Object> cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+              Object value = entry.getValue();
+              if (value == deleted) {
+                cache.remove(key);
+              } else {
+                cache.put(key.toString(), value);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    // Merge our cache into the session cache.
+    session.mergeCache(cache);
+  }
+
+  /**
+   * Nothing was written so there is nothing to apply or merge into the session, only the identity
+   * map of a nested unit of work is passed to its parent.
+   */
+  private PostCommitFunction<Void, Void> commitReadOnly() {
+    committed = true;
+    if (parent == null) {
+      elapsedTime.stop();
+      session.getUnitOfWorkTelemetry().record(this, true);
+    } else {
+      parent.mergeCache(cache);
+      parent.cacheHits.add(cacheHits.sum());
+      parent.cacheMisses.add(cacheMisses.sum());
+      parent.databaseLookups.add(databaseLookups.sum());
+      parent.cacheLookupTimeMicros.add(cacheLookupTimeMicros.sum());
+      for (Map.Entry<String, LongAdder> dt : databaseTime.entrySet()) {
+        parent.addDatabaseTime(dt.getKey(), dt.getValue().sum());
+      }
+    }
+    return PostCommitFunction.NULL_COMMIT;
+  }
+
   private void addBatched(BatchOperation batchArg) {
     if (batchArg != null) {
       if (this.batch == null) {
@@ -534,9 +884,7 @@ public class UnitOfWork implements AutoCloseable {
         if (elapsedTime.isRunning()) {
           elapsedTime.stop();
         }
-        if (LOG.isInfoEnabled()) {
-          LOG.info(logTimers("aborted"));
-        }
+        session.getUnitOfWorkTelemetry().record(this, false);
       }
 
       // TODO(gburd): when we integrate the transaction support we'll need to...
@@ -550,23 +898,36 @@ public class UnitOfWork implements AutoCloseable {
     from.rowMap()
         .forEach(
             (rowKey, columnMap) -> {
-              columnMap.forEach(
-                  (columnKey, value) -> {
-                    if (to.contains(rowKey, columnKey)) {
-                      to.put(
-                          rowKey,
-                          columnKey,
-                          Either.left(
-                              CacheUtil.merge(
-                                  to.get(rowKey, columnKey).getLeft(),
-                                  from.get(rowKey, columnKey).getLeft())));
-                    } else {
-                      to.put(rowKey, columnKey, from.get(rowKey, columnKey));
-                    }
-                  });
+              lockTable(rowKey);
+              try {
+                mergeRow(to, from, rowKey, columnMap);
+              } finally {
+                unlockTable(rowKey);
+              }
             });
   }
 
+  private static void mergeRow(
+      Table<String, String, Either<Object, List<Facet>>> to,
+      Table<String, String, Either<Object, List<Facet>>> from,
+      String rowKey,
+      Map<String, Either<Object, List<Facet>>> columnMap) {
+    columnMap.forEach(
+        (columnKey, value) -> {
+          if (to.contains(rowKey, columnKey)) {
+            to.put(
+                rowKey,
+                columnKey,
+                Either.left(
+                    CacheUtil.merge(
+                        to.get(rowKey, columnKey).getLeft(),
+                        from.get(rowKey, columnKey).getLeft())));
+          } else {
+            to.put(rowKey, columnKey, from.get(rowKey, columnKey));
+          }
+        });
+  }
+
   public boolean isDone() {
     return aborted || committed;
   }
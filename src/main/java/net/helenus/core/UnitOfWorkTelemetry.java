@@ -0,0 +1,27 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core;
+
+/**
+ * Receives the statistics of each outer-most unit of work once it has committed or aborted. Called
+ * on the thread completing the unit of work, so implementations should be cheap.
+ */
+public interface UnitOfWorkTelemetry {
+
+  UnitOfWorkTelemetry NONE = (uow, committed) -> {};
+
+  void record(UnitOfWork uow, boolean committed);
+}
@@ -0,0 +1,131 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import net.helenus.core.Helenus;
+import net.helenus.core.reflect.MapExportable;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
+import net.helenus.mapping.MappingUtil;
+
+/**
+ * The merge of two instances of an entity (see {@link CacheUtil#merge(Object, Object)}), prepared
+ * once per entity implementation class: the value, TTL and write time keys of each regular column
+ * are computed up front so a merge is only map reads and the puts of the values which win.
+ */
+final class MergePlan {
+
+  private static final ConcurrentMap<Class<?>, MergePlan> plans =
+      new ConcurrentHashMap<Class<?>, MergePlan>();
+
+  private final String[] names;
+  private final String[] ttlKeys;
+  private final String[] writeTimeKeys;
+
+  private MergePlan(HelenusEntity entity) {
+    List<HelenusProperty> columns = new ArrayList<HelenusProperty>();
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          break;
+        default:
+          columns.add(prop);
+      }
+    }
+    int count = columns.size();
+    this.names = new String[count];
+    this.ttlKeys = new String[count];
+    this.writeTimeKeys = new String[count];
+    for (int i = 0; i < count; i++) {
+      HelenusProperty prop = columns.get(i);
+      names[i] = prop.getPropertyName();
+      ttlKeys[i] = CacheUtil.ttlKey(prop);
+      writeTimeKeys[i] = CacheUtil.writeTimeKey(prop);
+    }
+  }
+
+  static MergePlan of(Object instance) {
+    MergePlan plan = plans.get(instance.getClass());
+    if (plan == null) {
+      plan = new MergePlan(Helenus.resolve(MappingUtil.getMappingInterface(instance)));
+      plans.putIfAbsent(instance.getClass(), plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Copies into `to` the columns of `from` which were written later, or which `to` lacks. Without
+   * write times a differing value of `from` wins.
+   */
+  void merge(MapExportable to, MapExportable from) {
+    Map<String, Object> toValues = to.toMap();
+    Map<String, Object> fromValues = from.toMap();
+    for (int i = 0; i < names.length; i++) {
+      Object toVal = toValues.get(names[i]);
+      Object fromVal = fromValues.get(names[i]);
+      if (fromVal == null) {
+        continue;
+      }
+      int[] fromTtl = (int[]) fromValues.get(ttlKeys[i]);
+      long fromWriteTime = writeTimeOf(fromValues.get(writeTimeKeys[i]));
+      if (toVal == null) {
+        copy(to, i, fromVal, fromWriteTime, fromTtl);
+        continue;
+      }
+      long toWriteTime = writeTimeOf(toValues.get(writeTimeKeys[i]));
+      if (toVal == fromVal) {
+        // Same value, only keep the write time and TTL in sync.
+        if (fromWriteTime != 0L && (toWriteTime == 0L || fromWriteTime > toWriteTime)) {
+          to.put(writeTimeKeys[i], fromWriteTime);
+        }
+        if (ttlOf(fromTtl) > 0 && ttlOf(fromTtl) > ttlOf((int[]) toValues.get(ttlKeys[i]))) {
+          to.put(ttlKeys[i], fromTtl);
+        }
+      } else if (fromWriteTime != 0L) {
+        if (toWriteTime == 0L || fromWriteTime > toWriteTime) {
+          copy(to, i, fromVal, fromWriteTime, fromTtl);
+        }
+      } else if (toWriteTime == 0L && !toVal.equals(fromVal)) {
+        // The values diverge without anything to tell which is newer, from wins.
+        copy(to, i, fromVal, 0L, fromTtl);
+      }
+    }
+  }
+
+  private void copy(MapExportable to, int i, Object value, long writeTime, int[] ttl) {
+    to.put(names[i], value);
+    if (writeTime != 0L) {
+      to.put(writeTimeKeys[i], writeTime);
+    }
+    if (ttlOf(ttl) > 0) {
+      to.put(ttlKeys[i], ttl);
+    }
+  }
+
+  private static long writeTimeOf(Object writeTime) {
+    return writeTime == null ? 0L : (Long) writeTime;
+  }
+
+  private static int ttlOf(int[] ttl) {
+    return ttl == null ? 0 : ttl[0];
+  }
+}
@@ -20,6 +20,7 @@ import net.helenus.core.*;
 import net.helenus.core.cache.Facet;
 import net.helenus.core.cache.UnboundFacet;
 import net.helenus.core.reflect.HelenusPropertyNode;
+import net.helenus.mapping.HelenusEntity;
 import net.helenus.mapping.HelenusProperty;
 
 public abstract class AbstractFilterOperation<E, O extends AbstractFilterOperation<E, O>>
@@ -131,6 +132,46 @@ public abstract class AbstractFilterOperation<E, O extends AbstractFilterOperati
         || super.isIdempotentOperation();
   }
 
+  @Override
+  protected HelenusEntity boundEntity() {
+    if (filters == null) {
+      return null;
+    }
+    for (Filter<?> filter : filters) {
+      HelenusPropertyNode node = filter.getNode();
+      if (node != null) {
+        return node.getEntity();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected Map<String, Object> boundKeyValues() {
+    if (filters == null) {
+      return null;
+    }
+    Map<String, Object> values = new HashMap<String, Object>();
+    for (Filter<?> filter : filters) {
+      if (filter.getOperator() != Operator.EQ) {
+        continue;
+      }
+      HelenusProperty prop = filter.getNode().getProperty();
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          Object[] postulates = filter.postulateValues();
+          if (postulates.length == 1) {
+            values.put(prop.getPropertyName(), postulates[0]);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return values;
+  }
+
   protected List<Facet> bindFacetValues(List<Facet> facets) {
     if (facets == null) {
       return new ArrayList<Facet>();
@@ -17,11 +17,14 @@ package net.helenus.core.operation;
 
 import com.codahale.metrics.Timer;
 import com.datastax.driver.core.ResultSet;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeoutException;
 import net.helenus.core.AbstractSessionOperations;
 import net.helenus.core.UnitOfWork;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
 
 public abstract class AbstractOperation<E, O extends AbstractOperation<E, O>>
     extends AbstractStatementOperation<E, O> {
@@ -32,6 +35,73 @@ public abstract class AbstractOperation<E, O extends AbstractOperation<E, O>>
 
   public abstract E transform(ResultSet resultSet);
 
+  /**
+   * The primary key column values (by property name) this operation is restricted to by equality,
+   * used to route batched statements. Operations that can't tell return null.
+   */
+  protected Map<String, Object> boundKeyValues() {
+    return null;
+  }
+
+  protected HelenusEntity boundEntity() {
+    return null;
+  }
+
+  /** Counter mutations can only be batched with other counter mutations. */
+  public boolean isCounterOperation() {
+    return false;
+  }
+
+  /**
+   * Identifies the single partition this operation mutates, or null when the operation isn't
+   * confined to one (e.g. a truncate or an IN restriction on the partition key).
+   */
+  public String partitionKey() {
+    return keyOf(false);
+  }
+
+  /**
+   * Combines this operation with a later one mutating the same row into a single operation, or
+   * returns null when they can't be combined.
+   */
+  AbstractOperation<?, ?> coalesce(AbstractOperation<?, ?> next) {
+    return null;
+  }
+
+  /** Identifies the single row this operation mutates, or null when it isn't confined to one. */
+  public String rowKey() {
+    return keyOf(true);
+  }
+
+  private String keyOf(boolean includeClusteringColumns) {
+    HelenusEntity entity = boundEntity();
+    Map<String, Object> bound = boundKeyValues();
+    if (entity == null || bound == null || bound.isEmpty()) {
+      return null;
+    }
+
+    StringBuilder key = new StringBuilder(entity.getName().toCql());
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+          break;
+        case CLUSTERING_COLUMN:
+          if (includeClusteringColumns) {
+            break;
+          }
+          continue;
+        default:
+          continue;
+      }
+      Object value = bound.get(prop.getPropertyName());
+      if (value == null) {
+        return null;
+      }
+      key.append('|').append(value.toString());
+    }
+    return key.toString();
+  }
+
   public PreparedOperation<E> prepare() {
     return new PreparedOperation<E>(prepareStatement(), this);
   }
@@ -226,6 +226,18 @@ public abstract class AbstractOptionalOperation<E, O extends AbstractOptionalOpe
     }
   }
 
+  @Override
+  public void prefetched(UnitOfWork uow, ResultSet resultSet) {
+    executing(uow);
+    Optional<E> result = transform(resultSet);
+    if (result.isPresent()) {
+      E r = result.get();
+      if (!(r instanceof Fun) && r != deleted) {
+        cacheUpdate(uow, r, getFacets());
+      }
+    }
+  }
+
   public CompletableFuture<Optional<E>> async() {
     return CompletableFuture.<Optional<E>>supplyAsync(
         () -> {
@@ -18,6 +18,7 @@ package net.helenus.core.operation;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.policies.DefaultRetryPolicy;
 import com.datastax.driver.core.policies.DowngradingConsistencyRetryPolicy;
@@ -274,6 +275,11 @@ public abstract class AbstractStatementOperation<E, O extends AbstractStatementO
 
   public PreparedStatement prepareStatement() {
 
+    if (hasCoveringIndexes()) {
+      // A bound statement is executed on its own, without the writes to the lookup tables.
+      throw new HelenusException("writes to a table with a covering index can't be prepared");
+    }
+
     Statement statement = buildStatement(true);
 
     if (statement instanceof RegularStatement) {
@@ -288,6 +294,11 @@ public abstract class AbstractStatementOperation<E, O extends AbstractStatementO
 
   public ListenableFuture<PreparedStatement> prepareStatementAsync() {
 
+    if (hasCoveringIndexes()) {
+      // A bound statement is executed on its own, without the writes to the lookup tables.
+      throw new HelenusException("writes to a table with a covering index can't be prepared");
+    }
+
     Statement statement = buildStatement(true);
 
     if (statement instanceof RegularStatement) {
@@ -300,6 +311,14 @@ public abstract class AbstractStatementOperation<E, O extends AbstractStatementO
     throw new HelenusException("only RegularStatements can be prepared");
   }
 
+  /**
+   * Stores the result of this query, executed ahead of time by {@link UnitOfWork#prefetch}, in the
+   * unit of work's cache.
+   */
+  public void prefetched(UnitOfWork uow, ResultSet resultSet) {
+    throw new HelenusException("only queries can be prefetched");
+  }
+
   protected boolean ignoreCache() {
     return ignoreCache;
   }
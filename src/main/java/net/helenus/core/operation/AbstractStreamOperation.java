@@ -232,6 +232,22 @@ public abstract class AbstractStreamOperation<E, O extends AbstractStreamOperati
     }
   }
 
+  @Override
+  public void prefetched(UnitOfWork uow, ResultSet resultSet) {
+    executing(uow);
+    List<Facet> facets = getFacets();
+    transform(resultSet)
+        .forEach(
+            result -> {
+              Class<?> resultClass = result.getClass();
+              if (result != deleted
+                  && !(resultClass.getEnclosingClass() != null
+                      && resultClass.getEnclosingClass() == Fun.class)) {
+                cacheUpdate(uow, result, facets);
+              }
+            });
+  }
+
   public CompletableFuture<Stream<E>> async() {
     return CompletableFuture.<Stream<E>>supplyAsync(
         () -> {
@@ -19,39 +19,69 @@ import com.codahale.metrics.Timer;
 import com.datastax.driver.core.AtomicMonotonicTimestampGenerator;
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.TimestampGenerator;
 import com.google.common.base.Stopwatch;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import net.helenus.core.AbstractSessionOperations;
 import net.helenus.core.UnitOfWork;
 import net.helenus.support.HelenusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Executes the statements batched by a unit of work. Statements are grouped by the partition they
+ * mutate: by default each partition is sent as its own UNLOGGED batch in parallel (a single
+ * partition is applied atomically anyway), statements spanning partitions only go through the
+ * batchlog when the batch is {@link #logged()}. Counter mutations are kept in separate COUNTER
+ * batches and UNLOGGED or COUNTER groups larger than {@code maxBatchSize} are split; a LOGGED batch
+ * is always sent whole, splitting it would lose its atomicity, with a warning when it is larger.
+ * Repeated mutations of the same row are coalesced into a single statement where possible.
+ */
 public class BatchOperation extends Operation<Long> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchOperation.class);
+
+  public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
   //TODO(gburd): find the way to get the driver's timestamp generator
   private static final TimestampGenerator timestampGenerator =
       new AtomicMonotonicTimestampGenerator();
 
-  private final BatchStatement batch;
   private List<AbstractOperation<?, ?>> operations = new ArrayList<AbstractOperation<?, ?>>();
-  private boolean logged = true;
+  private boolean logged = false;
+  private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private long timestamp = Long.MIN_VALUE;
 
   public BatchOperation(AbstractSessionOperations sessionOperations) {
     super(sessionOperations);
-    batch = new BatchStatement();
   }
 
   public void add(AbstractOperation<?, ?> operation) {
     operations.add(operation);
   }
 
+  public int size() {
+    return operations.size();
+  }
+
+  /** Builds a single statement holding every batched operation, ignoring partitioning. */
   @Override
   public BatchStatement buildStatement(boolean cached) {
+    BatchStatement batch = new BatchStatement();
     batch.addAll(
         operations.stream().map(o -> o.buildStatement(cached)).collect(Collectors.toList()));
     batch.setConsistencyLevel(sessionOps.getDefaultConsistencyLevel());
+    if (timestamp != Long.MIN_VALUE) {
+      batch.setDefaultTimestamp(timestamp);
+    }
     return batch;
   }
 
@@ -65,75 +95,203 @@ public class BatchOperation extends Operation<Long> {
     return this;
   }
 
-  public Long sync() {
-    if (operations.size() == 0) return 0L;
-    final Timer.Context context = requestLatency.time();
-    try {
-        batch.setDefaultTimestamp(timestampGenerator.next());
-        ResultSet resultSet =
-                this.execute(
-                        sessionOps, null, queryExecutionTimeout, queryTimeoutUnits, showValues, false);
-        if (!resultSet.wasApplied()) {
-            throw new HelenusException("Failed to apply batch.");
-        }
-    } catch (TimeoutException e) {
-        throw new HelenusException(e);
-    } finally {
-      context.stop();
+  public BatchOperation setMaxBatchSize(int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new HelenusException("maxBatchSize must be positive, found " + maxBatchSize);
     }
-    return batch.getDefaultTimestamp();
+    this.maxBatchSize = maxBatchSize;
+    return this;
+  }
+
+  public Long sync() {
+    return sync(null);
   }
 
   public Long sync(UnitOfWork uow) {
     if (operations.size() == 0) return 0L;
-    if (uow == null) return sync();
 
     final Timer.Context context = requestLatency.time();
     final Stopwatch timer = Stopwatch.createStarted();
     try {
-        uow.recordCacheAndDatabaseOperationCount(0, 1);
-        batch.setDefaultTimestamp(timestampGenerator.next());
-        ResultSet resultSet =
-                this.execute(
-                        sessionOps, uow, queryExecutionTimeout, queryTimeoutUnits, showValues, false);
+      timestamp = timestampGenerator.next();
+      List<PlannedBatch> plan = plan(false, true);
+
+      List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(plan.size());
+      for (PlannedBatch planned : plan) {
+        if (sessionOps.isShowCql()) {
+          sessionOps.getPrintStream().println(planned.toString(showValues));
+        } else if (LOG.isDebugEnabled()) {
+          LOG.info("CQL> " + planned.toString(showValues));
+        }
+        futures.add(sessionOps.executeAsync(planned.statement, uow, timer));
+      }
+      if (uow != null) uow.recordCacheAndDatabaseOperationCount(0, futures.size());
+
+      for (ResultSetFuture future : futures) {
+        ResultSet resultSet = future.getUninterruptibly(queryExecutionTimeout, queryTimeoutUnits);
         if (!resultSet.wasApplied()) {
-            throw new HelenusException("Failed to apply batch.");
+          throw new HelenusException("Failed to apply batch.");
         }
+      }
     } catch (TimeoutException e) {
-        throw new HelenusException(e);
+      throw new HelenusException(e);
     } finally {
       context.stop();
       timer.stop();
     }
-    uow.addDatabaseTime("Cassandra", timer);
-    return batch.getDefaultTimestamp();
+    if (uow != null) uow.addDatabaseTime("Cassandra", timer);
+    return timestamp;
   }
 
   public void addAll(BatchOperation batch) {
     batch.operations.forEach(o -> this.operations.add(o));
   }
 
+  /**
+   * Groups the statements into batches. The writes to covering indexes, which may need reading the
+   * rows written first, are left out unless asked for; the reads of all the operations are then
+   * sent before waiting for any.
+   */
+  List<PlannedBatch> plan(boolean cached, boolean withCoveringIndexes) {
+    Map<String, List<Statement>> partitions = new LinkedHashMap<String, List<Statement>>();
+    Map<String, List<Statement>> counterPartitions = new LinkedHashMap<String, List<Statement>>();
+    List<Statement> unrouted = new ArrayList<Statement>();
+    List<Statement> unroutedCounters = new ArrayList<Statement>();
+
+    List<AbstractOperation<?, ?>> coalesced = coalesced();
+    if (withCoveringIndexes) {
+      coalesced.forEach(Operation::startCoveringReads);
+    }
+    for (AbstractOperation<?, ?> operation : coalesced) {
+      Statement statement = operation.buildStatement(cached);
+      if (statement == null) {
+        continue;
+      }
+      String partition = operation.partitionKey();
+      boolean counter = operation.isCounterOperation();
+      if (partition == null) {
+        (counter ? unroutedCounters : unrouted).add(statement);
+      } else {
+        (counter ? counterPartitions : partitions)
+            .computeIfAbsent(partition, k -> new ArrayList<Statement>())
+            .add(statement);
+      }
+      if (withCoveringIndexes) {
+        List<Statement> covering = operation.buildCoveringStatements();
+        if (!covering.isEmpty() && operation.isAppliedAlone()) {
+          throw new HelenusException(
+              "conditional writes and truncates of tables with a covering index can't be batched");
+        }
+        unrouted.addAll(covering);
+      }
+    }
+
+    List<PlannedBatch> plan = new ArrayList<PlannedBatch>();
+
+    int groups = partitions.size() + (unrouted.isEmpty() ? 0 : 1);
+    if (logged && groups > 1) {
+      List<Statement> all = new ArrayList<Statement>();
+      partitions.values().forEach(all::addAll);
+      all.addAll(unrouted);
+      chunk(plan, BatchStatement.Type.LOGGED, all);
+    } else {
+      partitions.values().forEach(s -> chunk(plan, BatchStatement.Type.UNLOGGED, s));
+      chunk(plan, logged ? BatchStatement.Type.LOGGED : BatchStatement.Type.UNLOGGED, unrouted);
+    }
+
+    counterPartitions.values().forEach(s -> chunk(plan, BatchStatement.Type.COUNTER, s));
+    chunk(plan, BatchStatement.Type.COUNTER, unroutedCounters);
+
+    return plan;
+  }
+
+  /**
+   * Mutations of the same row are merged so that each row is written by as few statements as
+   * possible. Reordering within the batch is safe as every statement shares its timestamp.
+   */
+  private List<AbstractOperation<?, ?>> coalesced() {
+    List<AbstractOperation<?, ?>> result = new ArrayList<>(operations.size());
+    Map<String, Integer> lastWriteToRow = new HashMap<String, Integer>();
+    for (AbstractOperation<?, ?> operation : operations) {
+      String row = operation.rowKey();
+      if (row != null) {
+        Integer index = lastWriteToRow.get(row);
+        if (index != null) {
+          AbstractOperation<?, ?> merged = result.get(index).coalesce(operation);
+          if (merged != null) {
+            result.set(index, merged);
+            continue;
+          }
+        }
+        lastWriteToRow.put(row, result.size());
+      }
+      result.add(operation);
+    }
+    return result;
+  }
+
+  private void chunk(
+      List<PlannedBatch> plan, BatchStatement.Type type, List<Statement> statements) {
+    int size = maxBatchSize;
+    if (type == BatchStatement.Type.LOGGED) {
+      size = statements.size();
+      if (size > maxBatchSize) {
+        LOG.warn(
+            "atomic batch of {} statements, more than the {} of a batch, may exceed the batch size "
+                + "thresholds of the cluster",
+            size,
+            maxBatchSize);
+      }
+    }
+    for (int i = 0; i < statements.size(); i += size) {
+      BatchStatement batch = new BatchStatement(type);
+      batch.addAll(statements.subList(i, Math.min(i + size, statements.size())));
+      batch.setConsistencyLevel(sessionOps.getDefaultConsistencyLevel());
+      if (timestamp != Long.MIN_VALUE) {
+        batch.setDefaultTimestamp(timestamp);
+      }
+      plan.add(new PlannedBatch(type, batch));
+    }
+  }
+
   public String toString() {
     return toString(true); //TODO(gburd): sessionOps.showQueryValues()
   }
 
   public String toString(boolean showValues) {
-    StringBuilder s = new StringBuilder();
-    s.append("BEGIN ");
-    if (!logged) {
-      s.append("UNLOGGED ");
+    return plan(false, false)
+        .stream()
+        .map(p -> p.toString(showValues))
+        .collect(Collectors.joining(" "));
+  }
+
+  private static class PlannedBatch {
+    private final BatchStatement.Type type;
+    private final BatchStatement statement;
+
+    PlannedBatch(BatchStatement.Type type, BatchStatement statement) {
+      this.type = type;
+      this.statement = statement;
     }
-    s.append("BATCH ");
 
-    if (batch.getDefaultTimestamp() > -9223372036854775808L) {
-      s.append("USING TIMESTAMP ").append(String.valueOf(batch.getDefaultTimestamp())).append(" ");
+    String toString(boolean showValues) {
+      StringBuilder s = new StringBuilder();
+      s.append("BEGIN ");
+      if (type != BatchStatement.Type.LOGGED) {
+        s.append(type.name()).append(" ");
+      }
+      s.append("BATCH ");
+      if (statement.getDefaultTimestamp() > Long.MIN_VALUE) {
+        s.append("USING TIMESTAMP ").append(statement.getDefaultTimestamp()).append(" ");
+      }
+      s.append(
+          statement
+              .getStatements()
+              .stream()
+              .map(o -> Operation.queryString(o, showValues))
+              .collect(Collectors.joining(" ")));
+      s.append(" APPLY BATCH;");
+      return s.toString();
     }
-    s.append(
-        operations
-            .stream()
-            .map(o -> Operation.queryString(o.buildStatement(showValues), showValues))
-            .collect(Collectors.joining(" ")));
-    s.append(" APPLY BATCH;");
-    return s.toString();
   }
 }
@@ -0,0 +1,381 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.operation;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.Assignment;
+import com.datastax.driver.core.querybuilder.Clause;
+import com.datastax.driver.core.querybuilder.Delete;
+import com.datastax.driver.core.querybuilder.Insert;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.querybuilder.Update;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import net.helenus.core.AbstractSessionOperations;
+import net.helenus.core.Filter;
+import net.helenus.core.Operator;
+import net.helenus.mapping.HelenusCoveringIndex;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
+import net.helenus.mapping.value.EntityFingerprint;
+
+/**
+ * Builds the statements keeping the lookup table of a {@link HelenusCoveringIndex} in step with a
+ * write to its table. Values are prepared column values by property name. A write which may move
+ * the lookup row of a row to other keys needs the values the row had: those the caller can't vouch
+ * for are read from the table first.
+ */
+final class CoveringIndexWrites {
+
+  /**
+   * The reads of the rows an operation writes. While starting, a read is sent without waiting for
+   * it and the statements built are thrown away; building them again then waits for its result.
+   */
+  static final class Reads {
+    private final Map<String, ResultSetFuture> started = new HashMap<String, ResultSetFuture>();
+    boolean starting;
+  }
+
+  private final AbstractSessionOperations sessionOps;
+  private final Reads reads;
+  private final HelenusEntity entity;
+  private final List<Clause> where;
+  private final Map<String, Object> bound;
+  private final boolean exact;
+  private final int[] ttl;
+  private final long[] timestamp;
+
+  private CoveringIndexWrites(
+      AbstractSessionOperations sessionOps,
+      Reads reads,
+      HelenusEntity entity,
+      List<Clause> where,
+      Map<String, Object> bound,
+      boolean exact,
+      int[] ttl,
+      long[] timestamp) {
+    this.sessionOps = sessionOps;
+    this.reads = reads;
+    this.entity = entity;
+    this.where = where;
+    this.bound = bound;
+    this.exact = exact;
+    this.ttl = ttl;
+    this.timestamp = timestamp;
+  }
+
+  /** Writes to the rows the filters select. */
+  static CoveringIndexWrites of(
+      AbstractSessionOperations sessionOps,
+      Reads reads,
+      HelenusEntity entity,
+      List<Filter<?>> filters,
+      int[] ttl,
+      long[] timestamp) {
+    List<Clause> where = new ArrayList<Clause>();
+    Map<String, Object> bound = new HashMap<String, Object>();
+    if (filters != null) {
+      for (Filter<?> filter : filters) {
+        where.add(filter.getClause(sessionOps.getValuePreparer()));
+        Object[] values = filter.postulateValues();
+        if (filter.getOperator() == Operator.EQ && values.length == 1 && values[0] != null) {
+          HelenusProperty prop = filter.getNode().getProperty();
+          bound.put(
+              prop.getPropertyName(),
+              sessionOps.getValuePreparer().prepareColumnValue(values[0], prop));
+        }
+      }
+    }
+    return new CoveringIndexWrites(
+        sessionOps, reads, entity, where, bound, bound.size() == where.size(), ttl, timestamp);
+  }
+
+  /** Writes to the row with these values, which hold its primary key when they are complete. */
+  static CoveringIndexWrites of(
+      AbstractSessionOperations sessionOps,
+      Reads reads,
+      HelenusEntity entity,
+      Map<String, Object> values,
+      int[] ttl,
+      long[] timestamp) {
+    List<Clause> where = new ArrayList<Clause>();
+    Map<String, Object> bound = new HashMap<String, Object>();
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          Object value = values.get(prop.getPropertyName());
+          if (value == null) {
+            return new CoveringIndexWrites(
+                sessionOps,
+                reads,
+                entity,
+                Collections.<Clause>emptyList(),
+                Collections.<String, Object>emptyMap(),
+                false,
+                ttl,
+                timestamp);
+          }
+          where.add(QueryBuilder.eq(prop.getColumnName().toCql(), value));
+          bound.put(prop.getPropertyName(), value);
+          break;
+        default:
+          break;
+      }
+    }
+    return new CoveringIndexWrites(sessionOps, reads, entity, where, bound, true, ttl, timestamp);
+  }
+
+  /**
+   * The values of the covering index columns which are still those the row was loaded with, or
+   * null when the values weren't loaded from a row.
+   */
+  static Map<String, Object> loaded(
+      HelenusEntity entity, EntityFingerprint fingerprint, Map<String, Object> values) {
+    if (fingerprint == null
+        || fingerprint.getEntity() != entity
+        || entity.getCoveringIndexes().isEmpty()) {
+      return null;
+    }
+    Map<String, Object> loaded = new HashMap<String, Object>();
+    for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+      for (HelenusProperty prop : index.getColumns()) {
+        Object value = values.get(prop.getPropertyName());
+        if (value != null && fingerprint.isUnchanged(prop, value)) {
+          loaded.put(prop.getPropertyName(), value);
+        }
+      }
+    }
+    return loaded;
+  }
+
+  /**
+   * The statements for a write setting these values and making these assignments to the index's
+   * columns.
+   *
+   * @param before values the row had before the write, or null when the write creates the row
+   * @param set the values the write sets
+   * @param assignments the assignments of the write to the index's columns, empty for an insert
+   * @param collections those of the assignments which don't just set a value
+   */
+  List<Statement> written(
+      HelenusCoveringIndex index,
+      Map<String, Object> before,
+      Map<String, Object> set,
+      List<Assignment> assignments,
+      List<Assignment> collections) {
+    if (before != null) {
+      for (Map.Entry<String, Object> e : bound.entrySet()) {
+        if (!e.getValue().equals(before.get(e.getKey()))) {
+          // Loaded from another row.
+          before = Collections.emptyMap();
+          break;
+        }
+      }
+    }
+
+    boolean moves = false;
+    for (HelenusProperty prop : keys(index)) {
+      String name = prop.getPropertyName();
+      if (set.containsKey(name)
+          && (before == null || !Objects.equals(set.get(name), before.get(name)))) {
+        moves = true;
+      }
+    }
+
+    List<Map<String, Object>> rows;
+    List<HelenusProperty> needed = moves ? index.getColumns() : keys(index);
+    if (before == null) {
+      rows = Collections.singletonList(Collections.emptyMap());
+    } else if (isKnown(needed, before, bound)) {
+      rows = Collections.singletonList(before);
+    } else {
+      rows = read(needed);
+      if (rows.isEmpty()) {
+        rows = Collections.singletonList(Collections.emptyMap());
+      }
+    }
+
+    List<Statement> statements = new ArrayList<Statement>();
+    for (Map<String, Object> row : rows) {
+      Map<String, Object> old = new HashMap<String, Object>(row);
+      old.putAll(bound);
+      Map<String, Object> current = new HashMap<String, Object>(old);
+      current.putAll(set);
+      Map<String, Object> from = keyValues(index, old);
+      Map<String, Object> to = keyValues(index, current);
+      if (from != null && from.equals(to)) {
+        statements.add(
+            assignments.isEmpty() ? insert(index, current) : update(index, to, assignments));
+      } else {
+        if (from != null) {
+          statements.add(delete(index, from));
+        }
+        if (to != null) {
+          statements.add(insert(index, current));
+          if (!collections.isEmpty()) {
+            statements.add(update(index, to, collections));
+          }
+        }
+      }
+    }
+    return statements;
+  }
+
+  /** The statements removing the lookup rows of the rows the filters select. */
+  List<Statement> deleted(HelenusCoveringIndex index) {
+    if (where.isEmpty()) {
+      return Collections.<Statement>singletonList(
+          QueryBuilder.truncate(index.getTableName().toCql()));
+    }
+    List<Map<String, Object>> rows;
+    if (exact && isKnown(keys(index), bound, bound)) {
+      rows = Collections.singletonList(bound);
+    } else {
+      rows = read(keys(index));
+    }
+    List<Statement> statements = new ArrayList<Statement>(rows.size());
+    for (Map<String, Object> row : rows) {
+      Map<String, Object> keys = keyValues(index, row);
+      if (keys != null) {
+        statements.add(delete(index, keys));
+      }
+    }
+    return statements;
+  }
+
+  private static List<HelenusProperty> keys(HelenusCoveringIndex index) {
+    List<HelenusProperty> keys = new ArrayList<HelenusProperty>(index.getPartitionKeys());
+    keys.addAll(index.getClusteringColumns());
+    return keys;
+  }
+
+  private static boolean isKnown(
+      List<HelenusProperty> properties, Map<String, Object> values, Map<String, Object> bound) {
+    for (HelenusProperty prop : properties) {
+      String name = prop.getPropertyName();
+      if (values.get(name) == null && bound.get(name) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The primary key of the lookup row, or null when some of its values are missing. */
+  private static Map<String, Object> keyValues(
+      HelenusCoveringIndex index, Map<String, Object> values) {
+    Map<String, Object> keys = new LinkedHashMap<String, Object>();
+    for (HelenusProperty prop : keys(index)) {
+      Object value = values.get(prop.getPropertyName());
+      if (value == null) {
+        return null;
+      }
+      keys.put(prop.getPropertyName(), value);
+    }
+    return keys;
+  }
+
+  private List<Map<String, Object>> read(List<HelenusProperty> columns) {
+    if (where.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Select.Selection selection = QueryBuilder.select();
+    for (HelenusProperty prop : columns) {
+      selection = selection.column(prop.getColumnName().toCql());
+    }
+    Select select = selection.from(entity.getName().toCql());
+    where.forEach(select::where);
+    String key = select.toString();
+    if (reads.starting) {
+      reads.started.computeIfAbsent(key, k -> sessionOps.executeAsync(select));
+      return Collections.emptyList();
+    }
+    ResultSetFuture future = reads.started.remove(key);
+    ResultSet resultSet = future == null ? sessionOps.execute(select) : future.getUninterruptibly();
+    List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+    for (Row row : resultSet) {
+      Map<String, Object> values = new HashMap<String, Object>();
+      for (int i = 0; i < columns.size(); i++) {
+        Object value = row.getObject(i);
+        if (value != null) {
+          values.put(columns.get(i).getPropertyName(), value);
+        }
+      }
+      rows.add(values);
+    }
+    return rows;
+  }
+
+  private Statement insert(HelenusCoveringIndex index, Map<String, Object> values) {
+    Insert insert = QueryBuilder.insertInto(index.getTableName().toCql());
+    for (HelenusProperty prop : index.getColumns()) {
+      Object value = values.get(prop.getPropertyName());
+      if (value != null) {
+        insert.value(prop.getColumnName().toCql(), value);
+      }
+    }
+    if (ttl != null) {
+      insert.using(QueryBuilder.ttl(ttl[0]));
+    }
+    if (timestamp != null) {
+      insert.using(QueryBuilder.timestamp(timestamp[0]));
+    }
+    return insert;
+  }
+
+  private Statement update(
+      HelenusCoveringIndex index, Map<String, Object> keys, List<Assignment> assignments) {
+    Update update = QueryBuilder.update(index.getTableName().toCql());
+    assignments.forEach(update::with);
+    where(index, keys, (column, value) -> update.where(QueryBuilder.eq(column, value)));
+    if (ttl != null) {
+      update.using(QueryBuilder.ttl(ttl[0]));
+    }
+    if (timestamp != null) {
+      update.using(QueryBuilder.timestamp(timestamp[0]));
+    }
+    return update;
+  }
+
+  private Statement delete(HelenusCoveringIndex index, Map<String, Object> keys) {
+    Delete delete = QueryBuilder.delete().from(index.getTableName().toCql());
+    Delete.Where where = delete.where();
+    where(index, keys, (column, value) -> where.and(QueryBuilder.eq(column, value)));
+    if (timestamp != null) {
+      delete.using(QueryBuilder.timestamp(timestamp[0]));
+    }
+    return delete;
+  }
+
+  private static void where(
+      HelenusCoveringIndex index,
+      Map<String, Object> keys,
+      BiConsumer<String, Object> clause) {
+    for (HelenusProperty prop : keys(index)) {
+      clause.accept(prop.getColumnName().toCql(), keys.get(prop.getPropertyName()));
+    }
+  }
+}
@@ -16,10 +16,13 @@
 package net.helenus.core.operation;
 
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.Delete;
 import com.datastax.driver.core.querybuilder.Delete.Where;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 import net.helenus.core.AbstractSessionOperations;
@@ -27,6 +30,7 @@ import net.helenus.core.Filter;
 import net.helenus.core.UnitOfWork;
 import net.helenus.core.cache.Facet;
 import net.helenus.core.reflect.HelenusPropertyNode;
+import net.helenus.mapping.HelenusCoveringIndex;
 import net.helenus.mapping.HelenusEntity;
 import net.helenus.support.HelenusException;
 import net.helenus.support.HelenusMappingException;
@@ -96,6 +100,34 @@ public final class DeleteOperation extends AbstractFilterOperation<ResultSet, De
     }
   }
 
+  /** Removes the lookup rows of the deleted rows, reading their keys when the filters don't say. */
+  @Override
+  List<Statement> buildCoveringStatements() {
+    if (entity == null || entity.getCoveringIndexes().isEmpty()) {
+      return Collections.emptyList();
+    }
+    CoveringIndexWrites writes =
+        CoveringIndexWrites.of(sessionOps, coveringReads, entity, filters, null, timestamp);
+    List<Statement> statements = new ArrayList<Statement>();
+    for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+      statements.addAll(writes.deleted(index));
+    }
+    return statements;
+  }
+
+  @Override
+  boolean isAppliedAlone() {
+    return ifExists
+        || (ifFilters != null && !ifFilters.isEmpty())
+        || filters == null
+        || filters.isEmpty();
+  }
+
+  @Override
+  boolean hasCoveringIndexes() {
+    return entity != null && !entity.getCoveringIndexes().isEmpty();
+  }
+
   @Override
   public ResultSet transform(ResultSet resultSet) {
     return resultSet;
@@ -152,6 +184,7 @@ public final class DeleteOperation extends AbstractFilterOperation<ResultSet, De
     if (uow == null) {
       return sync();
     }
+    uow.checkWritable();
     ResultSet result = super.sync(uow);
     uow.cacheEvict(bindFacetValues());
     return result;
@@ -161,8 +194,11 @@ public final class DeleteOperation extends AbstractFilterOperation<ResultSet, De
     if (uow == null) {
       throw new HelenusException("UnitOfWork cannot be null when batching operations.");
     }
+    uow.checkWritable();
 
-    uow.cacheEvict(bindFacetValues());
+    List<Facet> facets = bindFacetValues();
+    uow.markDirty(facets);
+    uow.cacheEvict(facets);
     uow.batch(this);
     return null;
   }
@@ -16,6 +16,7 @@
 package net.helenus.core.operation;
 
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
@@ -33,10 +34,15 @@ import net.helenus.core.cache.UnboundFacet;
 import net.helenus.core.reflect.DefaultPrimitiveTypes;
 import net.helenus.core.reflect.HelenusPropertyNode;
 import net.helenus.core.reflect.MapExportable;
+import net.helenus.core.reflect.MapperInvocationHandler;
+import net.helenus.mapping.HelenusCompoundIndex;
+import net.helenus.mapping.HelenusCoveringIndex;
 import net.helenus.mapping.HelenusEntity;
 import net.helenus.mapping.HelenusProperty;
 import net.helenus.mapping.MappingUtil;
 import net.helenus.mapping.value.BeanColumnValueProvider;
+import net.helenus.mapping.value.EntityFingerprint;
+import net.helenus.mapping.value.EntityValueMap;
 import net.helenus.support.Fun;
 import net.helenus.support.HelenusException;
 import net.helenus.support.HelenusMappingException;
@@ -46,6 +52,13 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
   private final List<Fun.Tuple2<HelenusPropertyNode, Object>> values =
       new ArrayList<Fun.Tuple2<HelenusPropertyNode, Object>>();
   private final T pojo;
+  private final EntityFingerprint fingerprint;
+  private Set<HelenusProperty> unchanged = Collections.emptySet();
+  private boolean elideUnchanged = false;
+  private boolean explicitValues = false;
+  // The pojo's values of the covering index columns, and those it was loaded with.
+  private Map<String, Object> covered = Collections.emptyMap();
+  private Map<String, Object> coveredBefore;
   private final Class<?> resultType;
   private final Set<String> readSet;
   private HelenusEntity entity;
@@ -59,6 +72,7 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     super(sessionOperations);
 
     this.pojo = null;
+    this.fingerprint = null;
     this.readSet = null;
     this.ifNotExists = ifNotExists;
     this.resultType = ResultSet.class;
@@ -72,6 +86,7 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     super(sessionOperations);
 
     this.pojo = null;
+    this.fingerprint = null;
     this.readSet = null;
     this.ifNotExists = ifNotExists;
     this.resultType = resultType;
@@ -83,6 +98,7 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     super(sessionOperations);
 
     this.pojo = null;
+    this.fingerprint = null;
     this.readSet = null;
     this.ifNotExists = ifNotExists;
     this.resultType = resultType;
@@ -98,6 +114,7 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     super(sessionOperations);
 
     this.pojo = pojo;
+    this.fingerprint = MapperInvocationHandler.fingerprintOf(pojo);
     this.readSet = read;
     this.entity = entity;
     this.ifNotExists = ifNotExists;
@@ -128,6 +145,20 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
         }
       }
     }
+
+    if (!entity.getCoveringIndexes().isEmpty()) {
+      covered = new HashMap<String, Object>();
+      for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+        for (HelenusProperty prop : index.getColumns()) {
+          Object value = BeanColumnValueProvider.INSTANCE.getColumnValue(pojo, -1, prop);
+          value = sessionOps.getValuePreparer().prepareColumnValue(value, prop);
+          if (value != null) {
+            covered.put(prop.getPropertyName(), value);
+          }
+        }
+      }
+      coveredBefore = CoveringIndexWrites.loaded(entity, fingerprint, covered);
+    }
   }
 
   public InsertOperation<T> ifNotExists() {
@@ -140,9 +171,22 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     return this;
   }
 
+  /**
+   * Leaves out of this upsert of a loaded pojo the columns still holding the value they were
+   * loaded with, and skips the write when none changed. The comparison is with the snapshot taken
+   * locally when the pojo was read, not with the row as it is now: a column another writer has
+   * changed since then is not written back even though the pojo holds its old value. Only the
+   * values taken from the pojo are elided, never those given to {@link #value(Getter, Object)}.
+   */
+  public InsertOperation<T> elideUnchanged() {
+    this.elideUnchanged = true;
+    return this;
+  }
+
   public <V> InsertOperation<T> value(Getter<V> getter, V val) {
 
     Objects.requireNonNull(getter, "getter is empty");
+    explicitValues = true;
 
     if (val != null) {
       HelenusPropertyNode node = MappingUtil.resolveMappingProperty(getter);
@@ -199,9 +243,13 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
 
     values.forEach(
         t -> {
-          insert.value(t._1.getColumnName(), t._2);
+          if (!unchanged.contains(t._1.getProperty())) {
+            insert.value(t._1.getColumnName(), t._2);
+          }
         });
 
+    addCompoundIndexValues(insert);
+
     //TODO(gburd): IF NOT EXISTS when @Constraints.Relationship is 1:1 or 1:m
 
     if (this.ttl != null) {
@@ -214,11 +262,79 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     return insert;
   }
 
+  /** Writes the hash column of each compound index one of whose properties is written. */
+  private void addCompoundIndexValues(Insert insert) {
+    for (HelenusCompoundIndex index : entity.getCompoundIndexes()) {
+      Map<String, Object> indexed = new HashMap<String, Object>();
+      boolean written = false;
+      for (Fun.Tuple2<HelenusPropertyNode, Object> t : values) {
+        HelenusProperty prop = t._1.getProperty();
+        if (index.indexes(prop)) {
+          indexed.put(prop.getPropertyName(), t._2);
+          written |= !unchanged.contains(prop);
+        }
+      }
+      if (!written) {
+        continue;
+      }
+      if (pojo == null && indexed.size() < index.getProperties().size()) {
+        throw new HelenusMappingException(
+            "insert into "
+                + entity.getName()
+                + " must set all the properties of the compound index "
+                + index);
+      }
+      // A null property of a pojo is not written, the hash is cleared rather than left stale so the
+      // row drops out of the index.
+      insert.value(
+          index.getColumnName().toCql(), index.hash(p -> indexed.get(p.getPropertyName())));
+    }
+  }
+
+  /**
+   * Writes the lookup rows of the covering indexes. Unless the row was loaded, the keys of its
+   * previous lookup rows are read first; an insert if not exists is only written when it creates
+   * the row.
+   */
+  @Override
+  List<Statement> buildCoveringStatements() {
+    if (entity == null || entity.getCoveringIndexes().isEmpty()) {
+      return Collections.emptyList();
+    }
+    Map<String, Object> set = new HashMap<String, Object>(covered);
+    values.forEach(t -> set.put(t._1.getProperty().getPropertyName(), t._2));
+    CoveringIndexWrites writes =
+        CoveringIndexWrites.of(sessionOps, coveringReads, entity, set, ttl, timestamp);
+    List<Statement> statements = new ArrayList<Statement>();
+    for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+      statements.addAll(
+          writes.written(
+              index,
+              ifNotExists
+                  ? null
+                  : coveredBefore != null ? coveredBefore : Collections.<String, Object>emptyMap(),
+              set,
+              Collections.emptyList(),
+              Collections.emptyList()));
+    }
+    return statements;
+  }
+
+  @Override
+  boolean isAppliedAlone() {
+    return ifNotExists;
+  }
+
+  @Override
+  boolean hasCoveringIndexes() {
+    return entity != null && !entity.getCoveringIndexes().isEmpty();
+  }
+
   private T newInstance(Class<?> iface) {
     if (values.size() > 0) {
       boolean immutable = entity.isDraftable();
       Collection<HelenusProperty> properties = entity.getOrderedProperties();
-      Map<String, Object> backingMap = new HashMap<String, Object>(properties.size());
+      Map<String, Object> backingMap = new EntityValueMap(entity);
 
       // First, add all the inserted values into our new map.
       values.forEach(t -> backingMap.put(t._1.getProperty().getPropertyName(), t._2));
@@ -320,6 +436,118 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     }
   }
 
+  /**
+   * When asked to by {@link #elideUnchanged()}, leaves out of an upsert of a loaded pojo the
+   * columns which still have the value they were loaded with, as told by its {@link
+   * EntityFingerprint}. Returns true when that leaves nothing to write.
+   */
+  private boolean elide() {
+    unchanged = Collections.emptySet();
+    if (!elideUnchanged
+        || explicitValues
+        || fingerprint == null
+        || fingerprint.getEntity() != entity
+        || ifNotExists
+        || ttl != null
+        || timestamp != null) {
+      return false;
+    }
+    Set<HelenusProperty> elided = new HashSet<HelenusProperty>();
+    boolean changed = false;
+    for (Fun.Tuple2<HelenusPropertyNode, Object> t : values) {
+      HelenusProperty prop = t._1.getProperty();
+      boolean same = fingerprint.isUnchanged(prop, t._2);
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          if (!same) {
+            // Not the row it was loaded from.
+            return false;
+          }
+          break;
+        default:
+          if (same) {
+            elided.add(prop);
+          } else {
+            changed = true;
+          }
+      }
+    }
+    unchanged = elided;
+    return !changed;
+  }
+
+  /** A write of the pojo's row changes it, the fingerprint no longer describes it. */
+  private void written() {
+    if (fingerprint != null) {
+      fingerprint.invalidate();
+    }
+  }
+
+  @Override
+  protected HelenusEntity boundEntity() {
+    if (entity != null) {
+      return entity;
+    }
+    return values.isEmpty() ? null : values.get(0)._1.getProperty().getEntity();
+  }
+
+  @Override
+  protected Map<String, Object> boundKeyValues() {
+    Map<String, Object> keys = new HashMap<String, Object>();
+    for (Fun.Tuple2<HelenusPropertyNode, Object> t : values) {
+      HelenusProperty prop = t._1.getProperty();
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          keys.put(prop.getPropertyName(), t._2);
+          break;
+        default:
+          break;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Merges a later insert, or an update that only sets columns, of the same row into a new insert
+   * where the last value written to each column wins.
+   */
+  @Override
+  AbstractOperation<?, ?> coalesce(AbstractOperation<?, ?> next) {
+    // The hash of a compound index may need the pojo of each write, which a merge doesn't keep.
+    if (ifNotExists || entity == null || !entity.getCompoundIndexes().isEmpty()) {
+      return null;
+    }
+
+    List<Fun.Tuple2<HelenusPropertyNode, Object>> nextValues = null;
+    if (next instanceof InsertOperation) {
+      InsertOperation<?> insert = (InsertOperation<?>) next;
+      if (!insert.ifNotExists
+          && Arrays.equals(ttl, insert.ttl)
+          && Arrays.equals(timestamp, insert.timestamp)) {
+        nextValues = insert.values;
+      }
+    } else if (next instanceof UpdateOperation) {
+      nextValues = ((UpdateOperation<?>) next).assignedValues(ttl, timestamp);
+    }
+    if (nextValues == null) {
+      return null;
+    }
+
+    Map<HelenusProperty, Fun.Tuple2<HelenusPropertyNode, Object>> merged = new LinkedHashMap<>();
+    values.forEach(t -> merged.put(t._1.getProperty(), t));
+    nextValues.forEach(t -> merged.put(t._1.getProperty(), t));
+
+    InsertOperation<T> insert = new InsertOperation<T>(sessionOps, entity, resultType, false);
+    insert.values.addAll(merged.values());
+    insert.covered = covered;
+    insert.coveredBefore = coveredBefore;
+    insert.ttl = ttl;
+    insert.timestamp = timestamp;
+    return insert;
+  }
+
   @Override
   protected boolean isIdempotentOperation() {
     return values.stream().map(v -> v._1.getProperty()).allMatch(prop -> prop.isIdempotent())
@@ -328,7 +556,13 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
 
   @Override
   public T sync() throws TimeoutException {
-    T result = super.sync();
+    T result;
+    if (elide()) {
+      result = pojo;
+    } else {
+      result = super.sync();
+      written();
+    }
     if (entity.isCacheable() && result != null) {
       adjustTtlAndWriteTime((MapExportable) result);
       sessionOps.updateCache(result, bindFacetValues());
@@ -341,7 +575,13 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     if (uow == null) {
       return sync();
     }
+    uow.checkWritable();
+    if (elide()) {
+      cacheUpdate(uow, pojo, bindFacetValues());
+      return pojo;
+    }
     T result = super.sync(uow);
+    written();
     if (result != null && pojo != null && !(pojo == result) && pojo.equals(result)) {
       // To preserve object identity we need to find this object in cache
       // because it was unchanged by the INSERT but pojo in this case was
@@ -365,16 +605,25 @@ public final class InsertOperation<T> extends AbstractOperation<T, InsertOperati
     if (uow == null) {
       throw new HelenusException("UnitOfWork cannot be null when batching operations.");
     }
+    uow.checkWritable();
 
     if (this.entity != null) {
       Class<?> iface = this.entity.getMappingInterface();
       if (resultType == iface) {
         final T result = (pojo == null) ? newInstance(iface) : pojo;
+        boolean elided = elide();
         if (result != null) {
           adjustTtlAndWriteTime((MapExportable) result);
-          cacheUpdate(uow, result, bindFacetValues());
+          List<Facet> facets = bindFacetValues();
+          if (!elided) {
+            uow.markDirty(facets);
+          }
+          cacheUpdate(uow, result, facets);
+        }
+        if (!elided) {
+          uow.batch(this);
+          written();
         }
-        uow.batch(this);
         return (T) result;
       }
     }
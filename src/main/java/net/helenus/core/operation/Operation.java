@@ -23,6 +23,7 @@ import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.google.common.base.Stopwatch;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -49,6 +50,7 @@ public abstract class Operation<E> {
   protected final Meter cacheHits;
   protected final Meter cacheMiss;
   protected final Timer requestLatency;
+  final CoveringIndexWrites.Reads coveringReads = new CoveringIndexWrites.Reads();
 
   Operation(AbstractSessionOperations sessionOperations) {
     this.sessionOps = sessionOperations;
@@ -80,6 +82,13 @@ public abstract class Operation<E> {
       } else {
         query = builtStatement.getQueryString();
       }
+    } else if (statement instanceof BatchStatement) {
+      query =
+          ((BatchStatement) statement)
+              .getStatements()
+              .stream()
+              .map(s -> queryString(s, includeValues))
+              .collect(Collectors.joining(" ", "BEGIN BATCH ", " APPLY BATCH;"));
     } else if (statement instanceof RegularStatement) {
       RegularStatement regularStatement = (RegularStatement) statement;
       query = regularStatement.getQueryString();
@@ -98,7 +107,17 @@ public abstract class Operation<E> {
       boolean cached)
       throws TimeoutException {
 
-    Statement statement = options(buildStatement(cached));
+    executing(uow);
+    Statement statement = buildStatement(cached);
+    List<Statement> covering = buildCoveringStatements();
+    if (statement != null && !covering.isEmpty() && !isAppliedAlone()) {
+      BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+      batch.add(statement);
+      batch.addAll(covering);
+      statement = batch;
+      covering = Collections.emptyList();
+    }
+    statement = options(statement);
 
     if (session.isShowCql()) {
       String stmt =
@@ -159,6 +178,16 @@ public abstract class Operation<E> {
           && !(columnDefinitions.size() > 1 || !columnDefinitions.contains("[applied]"))) {
         throw new HelenusException("Operation Failed");
       }
+      if (!covering.isEmpty() && resultSet.wasApplied()) {
+        Statement writes = covering.get(0);
+        if (covering.size() > 1) {
+          writes = new BatchStatement(BatchStatement.Type.LOGGED).addAll(covering);
+        }
+        writes.setConsistencyLevel(statement.getConsistencyLevel());
+        log(writes, uow, null, showValues);
+        session.execute(writes, uow);
+        if (uow != null) uow.recordCacheAndDatabaseOperationCount(0, 1);
+      }
       return resultSet;
 
     } finally {
@@ -196,6 +225,43 @@ public abstract class Operation<E> {
     return null;
   }
 
+  /** The writes keeping the covering indexes of the table in step with this operation. */
+  List<Statement> buildCoveringStatements() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Sends the reads {@link #buildCoveringStatements} will need without waiting for them, so that
+   * those of the operations of a batch are in flight together.
+   */
+  void startCoveringReads() {
+    coveringReads.starting = true;
+    try {
+      buildCoveringStatements();
+    } finally {
+      coveringReads.starting = false;
+    }
+  }
+
+  /**
+   * True when this operation can't share a batch with the writes to its covering indexes, as for
+   * conditional writes and truncates. Those writes are then made once it has been applied.
+   */
+  boolean isAppliedAlone() {
+    return false;
+  }
+
+  /**
+   * Notes the unit of work, or null, the result set about to be transformed is read in. Called
+   * before each execution and when a prefetched result set is handed over.
+   */
+  void executing(UnitOfWork uow) {}
+
+  /** True when this operation writes to a table with covering indexes. */
+  boolean hasCoveringIndexes() {
+    return false;
+  }
+
   public List<Facet> getFacets() {
     return new ArrayList<Facet>();
   }
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.operation;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import net.helenus.core.AbstractSessionOperations;
+import net.helenus.core.UnitOfWork;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
+import net.helenus.mapping.value.ValueProviderMap;
+import net.helenus.support.HelenusException;
+
+/**
+ * Reads the whole rows of the entities returned by a select of some of their columns. The first
+ * row needed reads every column of all the rows the select matches, in a single query with the same
+ * filters, unit of work and timeout, rather than each row by its primary key.
+ */
+final class ProjectedRowLoader {
+
+  private final AbstractSessionOperations sessionOps;
+  private final HelenusEntity entity;
+  private final SelectOperation<?> select;
+  private final UnitOfWork uow;
+  private final long timeout;
+  private final TimeUnit units;
+  private final boolean showValues;
+  private final List<HelenusProperty> keys = new ArrayList<HelenusProperty>();
+  private Map<List<Object>, Map<String, Object>> rows;
+
+  /**
+   * @param select the select of every column of the rows the projecting select matches
+   * @param uow the unit of work of the projecting select, or null
+   */
+  ProjectedRowLoader(
+      AbstractSessionOperations sessionOps,
+      HelenusEntity entity,
+      SelectOperation<?> select,
+      UnitOfWork uow,
+      long timeout,
+      TimeUnit units,
+      boolean showValues) {
+    this.sessionOps = sessionOps;
+    this.entity = entity;
+    this.select = select;
+    this.uow = uow;
+    this.timeout = timeout;
+    this.units = units;
+    this.showValues = showValues;
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          keys.add(prop);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /** The whole row with the primary key among these values, empty when it is gone. */
+  synchronized Map<String, Object> load(Map<String, Object> values) {
+    if (rows == null) {
+      ResultSet resultSet;
+      try {
+        resultSet = select.execute(sessionOps, uow, timeout, units, showValues, false);
+      } catch (TimeoutException e) {
+        throw new HelenusException(e);
+      }
+      rows = new HashMap<List<Object>, Map<String, Object>>();
+      for (Row row : resultSet) {
+        Map<String, Object> map = new ValueProviderMap(row, sessionOps.getValueProvider(), entity);
+        rows.put(keyOf(map), map);
+      }
+    }
+    Map<String, Object> row = rows.get(keyOf(values));
+    return row != null ? row : Collections.<String, Object>emptyMap();
+  }
+
+  private List<Object> keyOf(Map<String, Object> values) {
+    List<Object> key = new ArrayList<Object>(keys.size());
+    for (HelenusProperty prop : keys) {
+      key.add(values.get(prop.getPropertyName()));
+    }
+    return key;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.operation;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import net.helenus.mapping.value.ValueProviderMap;
+
+/**
+ * The values of an entity read by a select of some of its columns. A property which wasn't
+ * selected is null, or, when there is a loader, read along with the rest of the row the first time
+ * it is needed. Writing a value turns it into a copy of the whole row, or of the values selected
+ * when there is no loader.
+ */
+final class ProjectedRowMap extends AbstractMap<String, Object> {
+
+  private final ValueProviderMap selected;
+  private final Set<String> names;
+  private final Function<String, Map<String, Object>> loader;
+  private Map<String, Object> row;
+  private boolean copied;
+
+  /**
+   * @param selected the values of the row read
+   * @param names the properties the select read
+   * @param loader reads the whole row given the property missed (null when the row is read for
+   *     all of them), or null when missing properties are null
+   */
+  ProjectedRowMap(
+      ValueProviderMap selected,
+      Set<String> names,
+      Function<String, Map<String, Object>> loader) {
+    this.selected = selected;
+    this.names = names;
+    this.loader = loader;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (row != null) {
+      return row.get(key);
+    }
+    if (names.contains(key) || !selected.containsKey(key)) {
+      return selected.get(key);
+    }
+    if (loader == null) {
+      return null;
+    }
+    row = loader.apply((String) key);
+    return row.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return copied ? row.containsKey(key) : selected.containsKey(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    if (!copied) {
+      row = new LinkedHashMap<String, Object>(this);
+      copied = true;
+    }
+    return row.put(key, value);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    if (copied) {
+      return row.entrySet();
+    }
+    if (row == null && loader != null) {
+      row = loader.apply(null);
+    }
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    for (String name : selected.keySet()) {
+      if (row != null || names.contains(name)) {
+        values.put(name, get(name));
+      }
+    }
+    return values.entrySet();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.operation;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.helenus.core.reflect.MapExportable;
+import net.helenus.core.reflect.MapperInvocationHandler;
+import net.helenus.mapping.HelenusEntity;
+
+/**
+ * The properties of an entity the code at a call site reads, learned from the read sets of the
+ * entities the first selects there return. A property read later on which wasn't selected is added
+ * when it is missed.
+ */
+final class ProjectionProfile {
+
+  private static final int SAMPLES = 64;
+
+  private static final ConcurrentMap<String, ProjectionProfile> PROFILES =
+      new ConcurrentHashMap<String, ProjectionProfile>();
+
+  private final Set<String> properties = ConcurrentHashMap.newKeySet();
+  private final Queue<MapExportable> samples = new ConcurrentLinkedQueue<MapExportable>();
+  private final AtomicInteger sampled = new AtomicInteger();
+  private volatile boolean learned;
+
+  static ProjectionProfile of(HelenusEntity entity, String site) {
+    return PROFILES.computeIfAbsent(
+        entity.getMappingInterface().getName() + '#' + site, key -> new ProjectionProfile());
+  }
+
+  /**
+   * The properties read at the site, or null while they are unknown. The entities sampled so far
+   * are taken to have been read by now.
+   */
+  Set<String> properties() {
+    if (!learned) {
+      boolean read = false;
+      for (MapExportable sample = samples.poll(); sample != null; sample = samples.poll()) {
+        Set<String> names = sample.toReadSet();
+        if (names != null) {
+          properties.addAll(names);
+          read = true;
+        }
+      }
+      learned = read;
+    }
+    return learned ? properties : null;
+  }
+
+  /** Keeps a result of a select reading every column, to learn from what is read of it. */
+  void sample(Object result) {
+    if (!learned && result instanceof MapExportable && sampled.getAndIncrement() < SAMPLES) {
+      MapperInvocationHandler.shareReadSet(result);
+      samples.add((MapExportable) result);
+    }
+  }
+
+  /** Notes a property read at the site which wasn't selected. */
+  void missed(String property) {
+    properties.add(property);
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.operation;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
+import java.util.List;
+import net.helenus.mapping.HelenusCompoundIndex;
+
+/**
+ * How a select reads its rows: the table, materialized view or covering index lookup table it is
+ * sent to and the access path this gives, as chosen by the {@link QueryPlanner} and shown by {@link
+ * SelectOperation#explain()}.
+ */
+public final class QueryPlan {
+
+  /** Where the rows are read from. */
+  public enum Source {
+    TABLE,
+    MATERIALIZED_VIEW,
+    COVERING_INDEX
+  }
+
+  /** The access paths, cheapest first. */
+  public enum Access {
+    /** A single row, by its primary key. */
+    ROW,
+    /** One or a few partitions, by their partition key. */
+    PARTITION,
+    /** The rows a secondary (or SASI, or compound) index holds for a value. */
+    INDEX,
+    /** Every row, there's nothing to filter on. */
+    ALL,
+    /** Every partition, filtered by the coordinator: a full scan of the cluster. */
+    SCAN
+  }
+
+  private final Source source;
+  private final Access access;
+  private final String tableName;
+  private final int partitions;
+  private final List<String> filtered;
+  private final boolean filtering;
+  private final HelenusCompoundIndex compoundIndex;
+  private final List<String> considered;
+
+  QueryPlan(
+      Source source,
+      Access access,
+      String tableName,
+      int partitions,
+      Collection<String> filtered,
+      boolean filtering,
+      HelenusCompoundIndex compoundIndex) {
+    this(
+        source,
+        access,
+        tableName,
+        partitions,
+        filtered,
+        filtering,
+        compoundIndex,
+        ImmutableList.<String>of());
+  }
+
+  private QueryPlan(
+      Source source,
+      Access access,
+      String tableName,
+      int partitions,
+      Collection<String> filtered,
+      boolean filtering,
+      HelenusCompoundIndex compoundIndex,
+      List<String> considered) {
+    this.source = source;
+    this.access = access;
+    this.tableName = tableName;
+    this.partitions = partitions;
+    this.filtered = ImmutableList.copyOf(filtered);
+    this.filtering = filtering;
+    this.compoundIndex = compoundIndex;
+    this.considered = considered;
+  }
+
+  /** This plan, noting the alternatives it was chosen over. */
+  QueryPlan withConsidered(List<String> considered) {
+    return new QueryPlan(
+        source,
+        access,
+        tableName,
+        partitions,
+        filtered,
+        filtering,
+        compoundIndex,
+        ImmutableList.copyOf(considered));
+  }
+
+  public Source getSource() {
+    return source;
+  }
+
+  public Access getAccess() {
+    return access;
+  }
+
+  /** The table, view or lookup table the select is sent to, as CQL. */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /** The number of partitions read, or 0 when they aren't restricted by the partition key. */
+  public int getPartitions() {
+    return partitions;
+  }
+
+  /** The properties filtered on which the access path doesn't restrict the rows by. */
+  public List<String> getFiltered() {
+    return filtered;
+  }
+
+  /** True when the statement needs ALLOW FILTERING. */
+  public boolean isFiltering() {
+    return filtering;
+  }
+
+  public boolean isFullScan() {
+    return access == Access.SCAN;
+  }
+
+  /** The compound index whose hash column is read, on top of the filters on its properties. */
+  public HelenusCompoundIndex getCompoundIndex() {
+    return compoundIndex;
+  }
+
+  /** Describes the alternatives this plan was chosen over. */
+  public List<String> getConsidered() {
+    return considered;
+  }
+
+  String describe() {
+    StringBuilder s = new StringBuilder();
+    s.append(access).append(" read of ").append(tableName);
+    s.append(" (").append(source.name().toLowerCase().replace('_', ' ')).append(')');
+    if (partitions > 1) {
+      s.append(" over ").append(partitions).append(" partitions");
+    }
+    if (compoundIndex != null) {
+      s.append(" using ").append(compoundIndex.getIndexName().toCql());
+    }
+    if (filtering) {
+      s.append(" with ALLOW FILTERING");
+    }
+    if (!filtered.isEmpty()) {
+      s.append(" filtering on ").append(String.join(", ", filtered));
+    }
+    return s.toString();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder s = new StringBuilder(describe());
+    for (String alternative : considered) {
+      s.append("\n  rejected ").append(alternative);
+    }
+    return s.toString();
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.helenus.core.Filter;
+import net.helenus.core.Operator;
+import net.helenus.core.SessionRepository;
+import net.helenus.core.reflect.HelenusPropertyNode;
+import net.helenus.mapping.HelenusCompoundIndex;
+import net.helenus.mapping.HelenusCoveringIndex;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusEntityType;
+import net.helenus.mapping.HelenusProperty;
+
+/**
+ * Chooses where a select reads from. The table is a candidate and, when the select is routed, so is
+ * each materialized view registered for it and each of its covering indexes holding the selected
+ * and filtered columns. The one whose keys restrict the rows best wins: a row, then partitions,
+ * then an index, then a full scan, preferring plans that don't need ALLOW FILTERING, fewer
+ * partitions, and the table itself.
+ */
+final class QueryPlanner {
+
+  private static final Comparator<QueryPlan> COST =
+      Comparator.comparing(QueryPlan::getAccess)
+          .thenComparing(QueryPlan::isFiltering)
+          .thenComparingInt(QueryPlan::getPartitions)
+          .thenComparing(QueryPlan::getSource);
+
+  private final SessionRepository repository;
+  private final HelenusEntity entity;
+  private final Map<String, Filter<?>> filters = new LinkedHashMap<String, Filter<?>>();
+  private final Set<String> columns = new LinkedHashSet<String>();
+  private final boolean ordered;
+  private final boolean routed;
+
+  /**
+   * @param entity the entity selected from
+   * @param filters the filters of the select
+   * @param props the selected properties
+   * @param ordered true when the select orders its rows, which only the table can do
+   * @param routed true when the select may read from a view or covering index of the table
+   */
+  QueryPlanner(
+      SessionRepository repository,
+      HelenusEntity entity,
+      Collection<Filter<?>> filters,
+      List<HelenusPropertyNode> props,
+      boolean ordered,
+      boolean routed) {
+    this.repository = repository;
+    this.entity = entity;
+    this.ordered = ordered;
+    this.routed = routed;
+    for (Filter<?> filter : filters) {
+      this.filters.put(filter.getNode().getProperty().getPropertyName(), filter);
+    }
+    props.forEach(p -> columns.add(p.getProperty().getPropertyName()));
+    columns.addAll(this.filters.keySet());
+  }
+
+  /** The cheapest plan, or the plan of the table or view the select names when it does. */
+  QueryPlan plan(HelenusEntity named) {
+    if (named != null) {
+      return evaluate(named);
+    }
+
+    List<QueryPlan> plans = new ArrayList<QueryPlan>();
+    List<String> considered = new ArrayList<String>();
+    plans.add(evaluate(entity));
+    if (!routed) {
+      considered.add("materialized views and covering indexes: the select isn't routed");
+    } else if (ordered) {
+      considered.add("materialized views and covering indexes: the rows are ordered");
+    } else {
+      List<HelenusEntity> views =
+          repository == null ? new ArrayList<HelenusEntity>() : repository.viewsOf(entity);
+      for (HelenusEntity view : views) {
+        String missing = missing(view.getOrderedProperties());
+        if (missing == null) {
+          plans.add(evaluate(view));
+        } else {
+          considered.add(view.getName().toCql() + " (materialized view): lacks " + missing);
+        }
+      }
+      for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+        String missing = missing(index.getColumns());
+        if (missing == null) {
+          plans.add(evaluate(index));
+        } else {
+          considered.add(index.getTableName().toCql() + " (covering index): lacks " + missing);
+        }
+      }
+    }
+
+    plans.sort(COST);
+    for (QueryPlan alternative : plans.subList(1, plans.size())) {
+      considered.add(alternative.describe());
+    }
+    return plans.get(0).withConsidered(considered);
+  }
+
+  /** The first selected or filtered column missing from these, or null. */
+  private String missing(Collection<HelenusProperty> properties) {
+    for (String column : columns) {
+      if (properties.stream().noneMatch(p -> p.getPropertyName().equals(column))) {
+        return column;
+      }
+    }
+    return null;
+  }
+
+  private QueryPlan evaluate(HelenusEntity table) {
+    List<HelenusProperty> partitionKeys = new ArrayList<HelenusProperty>();
+    List<HelenusProperty> clusteringColumns = new ArrayList<HelenusProperty>();
+    for (HelenusProperty prop : table.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+          partitionKeys.add(prop);
+          break;
+        case CLUSTERING_COLUMN:
+          clusteringColumns.add(prop);
+          break;
+        default:
+          break;
+      }
+    }
+    boolean view = table.getType() == HelenusEntityType.VIEW;
+    return evaluate(
+        view ? QueryPlan.Source.MATERIALIZED_VIEW : QueryPlan.Source.TABLE,
+        table.getName().toCql(),
+        partitionKeys,
+        clusteringColumns,
+        table.getOrderedProperties(),
+        view ? new ArrayList<HelenusCompoundIndex>() : table.getCompoundIndexes());
+  }
+
+  private QueryPlan evaluate(HelenusCoveringIndex index) {
+    return evaluate(
+        QueryPlan.Source.COVERING_INDEX,
+        index.getTableName().toCql(),
+        index.getPartitionKeys(),
+        index.getClusteringColumns(),
+        new ArrayList<HelenusProperty>(),
+        new ArrayList<HelenusCompoundIndex>());
+  }
+
+  private QueryPlan evaluate(
+      QueryPlan.Source source,
+      String tableName,
+      List<HelenusProperty> partitionKeys,
+      List<HelenusProperty> clusteringColumns,
+      Collection<HelenusProperty> indexed,
+      List<HelenusCompoundIndex> compoundIndexes) {
+    Set<String> unserved = new LinkedHashSet<String>(filters.keySet());
+    if (unserved.isEmpty()) {
+      return new QueryPlan(source, QueryPlan.Access.ALL, tableName, 0, unserved, false, null);
+    }
+
+    int partitions = 1;
+    for (HelenusProperty prop : partitionKeys) {
+      Filter<?> filter = filters.get(prop.getPropertyName());
+      if (filter == null
+          || (filter.getOperator() != Operator.EQ && filter.getOperator() != Operator.IN)) {
+        partitions = 0;
+        break;
+      }
+      partitions *= filter.postulateValues().length;
+    }
+
+    if (partitions > 0) {
+      partitionKeys.forEach(p -> unserved.remove(p.getPropertyName()));
+      boolean row = partitions == 1;
+      boolean prefix = true;
+      for (HelenusProperty prop : clusteringColumns) {
+        Filter<?> filter = filters.get(prop.getPropertyName());
+        if (filter == null || !prefix) {
+          row = false;
+          prefix = false;
+          continue;
+        }
+        unserved.remove(prop.getPropertyName());
+        if (filter.getOperator() != Operator.EQ || filter.postulateValues().length != 1) {
+          row = false;
+          prefix = filter.getOperator() == Operator.IN;
+        }
+      }
+      return new QueryPlan(
+          source,
+          row ? QueryPlan.Access.ROW : QueryPlan.Access.PARTITION,
+          tableName,
+          partitions,
+          unserved,
+          !unserved.isEmpty(),
+          null);
+    }
+
+    HelenusCompoundIndex compoundIndex = compoundIndexOf(compoundIndexes);
+    boolean index = compoundIndex != null;
+    // The filters on the properties of a compound index are kept alongside its hash column.
+    boolean filtering = index;
+    if (index) {
+      compoundIndex.getProperties().forEach(p -> unserved.remove(p.getPropertyName()));
+    }
+    for (HelenusProperty prop : indexed) {
+      if (prop.getIndexName().isPresent() && unserved.contains(prop.getPropertyName())) {
+        if (!index) {
+          unserved.remove(prop.getPropertyName());
+          index = true;
+          filtering = !prop.caseSensitiveIndex();
+        } else {
+          // Only one index is used, the other indexed columns are filtered.
+          break;
+        }
+      }
+    }
+    return new QueryPlan(
+        source,
+        index ? QueryPlan.Access.INDEX : QueryPlan.Access.SCAN,
+        tableName,
+        0,
+        unserved,
+        filtering || !unserved.isEmpty(),
+        compoundIndex);
+  }
+
+  /**
+   * The compound index with the most properties of which each is filtered on by equality, so the
+   * query can filter on its hash column instead, or null.
+   */
+  private HelenusCompoundIndex compoundIndexOf(List<HelenusCompoundIndex> compoundIndexes) {
+    HelenusCompoundIndex best = null;
+    for (HelenusCompoundIndex index : compoundIndexes) {
+      boolean covered = true;
+      for (HelenusProperty prop : index.getProperties()) {
+        Filter<?> filter = filters.get(prop.getPropertyName());
+        covered &=
+            filter != null
+                && filter.getOperator() == Operator.EQ
+                && filter.postulateValues().length == 1;
+      }
+      if (covered && (best == null || index.getProperties().size() > best.getProperties().size())) {
+        best = index;
+      }
+    }
+    return best;
+  }
+}
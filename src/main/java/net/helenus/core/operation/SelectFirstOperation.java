@@ -20,6 +20,7 @@ import com.datastax.driver.core.querybuilder.BuiltStatement;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import net.helenus.core.UnitOfWork;
 import net.helenus.core.cache.Facet;
 
 public final class SelectFirstOperation<E>
@@ -59,6 +60,11 @@ public final class SelectFirstOperation<E>
     return delegate.transform(resultSet).findFirst();
   }
 
+  @Override
+  void executing(UnitOfWork uow) {
+    delegate.executing(uow);
+  }
+
   @Override
   public boolean isSessionCacheable() {
     return delegate.isSessionCacheable();
@@ -20,6 +20,7 @@ import com.datastax.driver.core.querybuilder.BuiltStatement;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import net.helenus.core.UnitOfWork;
 import net.helenus.core.cache.Facet;
 
 public final class SelectFirstTransformingOperation<R, E>
@@ -52,6 +53,11 @@ public final class SelectFirstTransformingOperation<R, E>
     return delegate.transform(resultSet).findFirst().map(fn);
   }
 
+  @Override
+  void executing(UnitOfWork uow) {
+    delegate.executing(uow);
+  }
+
   @Override
   public boolean isSessionCacheable() {
     return delegate.isSessionCacheable();
@@ -23,6 +23,8 @@ import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import com.datastax.driver.core.querybuilder.Select.Selection;
 import com.datastax.driver.core.querybuilder.Select.Where;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -33,13 +35,17 @@ import net.helenus.core.cache.Facet;
 import net.helenus.core.cache.UnboundFacet;
 import net.helenus.core.reflect.Entity;
 import net.helenus.core.reflect.HelenusPropertyNode;
+import net.helenus.mapping.HelenusCompoundIndex;
 import net.helenus.mapping.HelenusEntity;
 import net.helenus.mapping.HelenusProperty;
 import net.helenus.mapping.MappingUtil;
 import net.helenus.mapping.OrderingDirection;
+import net.helenus.mapping.annotation.MaterializedView;
+import net.helenus.mapping.annotation.Table;
 import net.helenus.mapping.value.ColumnValueProvider;
 import net.helenus.mapping.value.ValueProviderMap;
 import net.helenus.support.Fun;
+import net.helenus.support.HelenusException;
 import net.helenus.support.HelenusMappingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,8 +59,14 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
   protected List<Ordering> ordering = null;
   protected Integer limit = null;
   protected boolean allowFiltering = false;
+  protected boolean routed = false;
+
+  // Maps the rows of an adaptive select of some columns, given what reads their whole rows.
+  private Function<ProjectedRowLoader, Function<Row, E>> projector = null;
+  private UnitOfWork executedIn = null;
 
   protected String alternateTableName = null;
+  private HelenusEntity alternateEntity = null;
   protected boolean isCacheable = false;
   protected boolean implementsEntityType = false;
 
@@ -152,6 +164,7 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
     Objects.requireNonNull(materializedViewClass);
     HelenusEntity entity = Helenus.entity(materializedViewClass);
     this.alternateTableName = entity.getName().toCql();
+    this.alternateEntity = entity;
     this.props.clear();
     entity
         .getOrderedProperties()
@@ -166,14 +179,52 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
     return new SelectFirstOperation<E>(this);
   }
 
+  /**
+   * Maps the rows to another entity, or to a projection: an interface declaring some of the
+   * getters of the entity selected. Only the columns of the properties it declares are selected,
+   * and as its instances don't hold whole rows the results are not cached.
+   */
   public <R> SelectTransformingOperation<R, E> mapTo(Class<R> entityClass) {
 
     Objects.requireNonNull(entityClass, "entityClass is null");
 
-    HelenusEntity entity = Helenus.entity(entityClass);
+    HelenusEntity selected = props.get(0).getEntity();
+    Set<String> selectable = new HashSet<String>();
+    props.forEach(p -> selectable.add(p.getProperty().getPropertyName()));
+    Set<String> names = new HashSet<String>();
+    for (Method method : entityClass.getMethods()) {
+      if (method.getParameterCount() == 0
+          && !method.isDefault()
+          && !Modifier.isStatic(method.getModifiers())) {
+        String name = MappingUtil.getPropertyName(method);
+        if (selectable.contains(name)) {
+          names.add(name);
+        }
+      }
+    }
+    if (names.isEmpty()) {
+      throw new HelenusMappingException(
+          entityClass + " declares none of the properties of " + selected.getMappingInterface());
+    }
+    if (project(names)) {
+      this.isCacheable = false;
+      this.implementsEntityType = Entity.class.isAssignableFrom(entityClass);
+      uncached();
+    }
 
     this.rowMapper = null;
 
+    if (!isMapped(entityClass)) {
+      return new SelectTransformingOperation<R, E>(
+          this,
+          (r) -> {
+            ValueProviderMap values =
+                new ValueProviderMap(r, sessionOps.getValueProvider(), selected);
+            return (R) Helenus.map(entityClass, new ProjectedRowMap(values, names, null));
+          });
+    }
+
+    HelenusEntity entity = Helenus.entity(entityClass);
     return new SelectTransformingOperation<R, E>(
         this,
         (r) -> {
@@ -182,6 +233,100 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
         });
   }
 
+  /**
+   * Selects only the columns of the properties the code at this call site reads, plus the primary
+   * key. The first selects at the site read every column and learn which properties are read from
+   * the entities they return. Later on a property which wasn't selected is read when it is first
+   * needed, with every column of all the rows of the result in a single query, and from then on
+   * selected at the site. The results of a select which doesn't read every column are not cached.
+   *
+   * @param site names the call site, the properties read are learned per entity and site
+   */
+  @SuppressWarnings("unchecked")
+  public SelectOperation<E> adaptive(String site) {
+    Objects.requireNonNull(site, "site is null");
+    HelenusEntity entity = props.isEmpty() ? null : props.get(0).getEntity();
+    if (entity == null
+        || rowMapper == null
+        || props.size() != entity.getOrderedProperties().size()) {
+      throw new HelenusMappingException(
+          "only the select of an entity class can adapt the columns it selects");
+    }
+
+    ProjectionProfile profile = ProjectionProfile.of(entity, site);
+    Set<String> learned = profile.properties();
+    if (learned == null) {
+      Function<Row, E> mapper = this.rowMapper;
+      this.rowMapper =
+          row -> {
+            E result = mapper.apply(row);
+            profile.sample(result);
+            return result;
+          };
+      return this;
+    }
+
+    Set<String> names = new HashSet<String>(learned);
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          names.add(prop.getPropertyName());
+          break;
+        default:
+          break;
+      }
+    }
+    if (project(names)) {
+      this.isCacheable = false;
+      uncached();
+      Class<E> iface = (Class<E>) entity.getMappingInterface();
+      ColumnValueProvider valueProvider = sessionOps.getValueProvider();
+      this.projector =
+          loader ->
+              row -> {
+                ValueProviderMap values = new ValueProviderMap(row, valueProvider, entity);
+                return Helenus.map(
+                    iface,
+                    new ProjectedRowMap(
+                        values,
+                        names,
+                        missed -> {
+                          if (missed != null) {
+                            profile.missed(missed);
+                          }
+                          return loader.load(values);
+                        }));
+              };
+    }
+    return this;
+  }
+
+  /** Drops the selected properties not named, true when there are any. */
+  private boolean project(Set<String> names) {
+    return props.removeIf(p -> !names.contains(p.getProperty().getPropertyName()));
+  }
+
+  private static boolean isMapped(Class<?> iface) {
+    return iface.getDeclaredAnnotation(Table.class) != null
+        || iface.getDeclaredAnnotation(MaterializedView.class) != null
+        || MappingUtil.isUDT(iface)
+        || MappingUtil.isTuple(iface);
+  }
+
+  /** The rows this select matches, with every column of its entity. */
+  private SelectOperation<E> unprojected(HelenusEntity entity) {
+    SelectOperation<E> select = new SelectOperation<E>(sessionOps, entity);
+    if (filters != null) {
+      select.filters = new LinkedHashMap<HelenusProperty, Filter<?>>(filters);
+    }
+    select.ordering = ordering;
+    select.limit = limit;
+    select.allowFiltering = allowFiltering;
+    select.routed = routed;
+    return select;
+  }
+
   public <R> SelectTransformingOperation<R, E> map(Function<E, R> fn) {
     return new SelectTransformingOperation<R, E>(this, fn);
   }
@@ -212,6 +357,15 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
     return this;
   }
 
+  /**
+   * Lets this select read from a materialized view or covering index of the table when one of them
+   * restricts the rows better than the table. The rows of a view may lag behind those of the table.
+   */
+  public SelectOperation<E> route() {
+    this.routed = true;
+    return this;
+  }
+
   @Override
   public boolean isSessionCacheable() {
     return isCacheable;
@@ -295,8 +449,8 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
       throw new HelenusMappingException("no entity or table to select data");
     }
 
-    String tableName = alternateTableName == null ? entity.getName().toCql() : alternateTableName;
-    Select select = selection.from(tableName);
+    QueryPlan plan = plan(entity);
+    Select select = selection.from(plan.getTableName());
 
     if (ordering != null && !ordering.isEmpty()) {
       select.orderBy(ordering.toArray(new Ordering[ordering.size()]));
@@ -307,59 +461,95 @@ public final class SelectOperation<E> extends AbstractFilterStreamOperation<E, S
     }
 
     if (filters != null && !filters.isEmpty()) {
-
       Where where = select.where();
-
-      boolean isFirstIndex = true;
+      HelenusCompoundIndex index = plan.getCompoundIndex();
+      Map<String, Object> indexed = new HashMap<String, Object>();
       for (Filter<?> filter : filters.values()) {
-        where.and(filter.getClause(sessionOps.getValuePreparer()));
         HelenusProperty filterProp = filter.getNode().getProperty();
-        HelenusProperty prop =
-            props
-                .stream()
-                .map(HelenusPropertyNode::getProperty)
-                .filter(thisProp -> thisProp.getPropertyName().equals(filterProp.getPropertyName()))
-                .findFirst()
-                .orElse(null);
-        if (allowFiltering == false && prop != null) {
-          switch (prop.getColumnType()) {
-            case PARTITION_KEY:
-              break;
-            case CLUSTERING_COLUMN:
-            default:
-              // When using non-Cassandra-standard 2i types or when using more than one
-              // indexed column or non-indexed columns the query must include ALLOW FILTERING.
-              if (prop.caseSensitiveIndex() == false) {
-                allowFiltering = true;
-              } else if (prop.getIndexName() != null) {
-                allowFiltering |= !isFirstIndex;
-                isFirstIndex = false;
-              } else {
-                allowFiltering = true;
-              }
-          }
+        if (index != null && index.indexes(filterProp)) {
+          indexed.put(
+              filterProp.getPropertyName(),
+              sessionOps
+                  .getValuePreparer()
+                  .prepareColumnValue(filter.postulateValues()[0], filterProp));
         }
+        where.and(filter.getClause(sessionOps.getValuePreparer()));
       }
+      if (index != null) {
+        // The hash column is the index read, the filters it replaces are kept to weed out rows
+        // whose values merely hash the same.
+        where.and(
+            QueryBuilder.eq(
+                index.getColumnName().toCql(), index.hash(p -> indexed.get(p.getPropertyName()))));
+      }
+    }
+
+    if (plan.isFullScan() && !allowFiltering) {
+      if (sessionOps.isRefusingFullScans()) {
+        throw new HelenusException("refusing a full scan, call allowFiltering() to run " + plan);
+      }
+      LOG.warn("full scan, call allowFiltering() if it is intended: {}", plan);
     }
 
     if (ifFilters != null && !ifFilters.isEmpty()) {
       LOG.error("onlyIf conditions " + ifFilters + " would be ignored in the statement " + select);
     }
 
-    if (allowFiltering) {
+    if (allowFiltering || plan.isFiltering()) {
       select.allowFiltering();
     }
 
     return select;
   }
 
+  /**
+   * The plan of this select: which table, materialized view or covering index it reads and how.
+   * Views and covering indexes are only considered when the select is {@link #route() routed} and
+   * doesn't name the view with {@link #from(Class)}.
+   */
+  public QueryPlan explain() {
+    return plan(props.get(0).getEntity());
+  }
+
+  private QueryPlan plan(HelenusEntity entity) {
+    QueryPlanner planner =
+        new QueryPlanner(
+            sessionOps.getSessionRepository(),
+            entity,
+            filters == null ? Collections.<Filter<?>>emptyList() : filters.values(),
+            props,
+            ordering != null && !ordering.isEmpty(),
+            routed);
+    return planner.plan(alternateEntity);
+  }
+
+  @Override
+  void executing(UnitOfWork uow) {
+    executedIn = uow;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Stream<E> transform(ResultSet resultSet) {
-    if (rowMapper != null) {
+    Function<Row, E> mapper = rowMapper;
+    if (projector != null) {
+      // The rows of this result missing a property read are read again together, when needed.
+      HelenusEntity entity = props.get(0).getEntity();
+      mapper =
+          projector.apply(
+              new ProjectedRowLoader(
+                  sessionOps,
+                  entity,
+                  unprojected(entity),
+                  executedIn,
+                  queryExecutionTimeout,
+                  queryTimeoutUnits,
+                  showValues));
+    }
+    if (mapper != null) {
       return StreamSupport.stream(
               Spliterators.spliteratorUnknownSize(resultSet.iterator(), Spliterator.ORDERED), false)
-          .map(rowMapper);
+          .map(mapper);
     } else {
       return (Stream<E>)
           StreamSupport.stream(
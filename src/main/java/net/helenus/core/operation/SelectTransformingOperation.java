@@ -20,6 +20,7 @@ import com.datastax.driver.core.querybuilder.BuiltStatement;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import net.helenus.core.UnitOfWork;
 import net.helenus.core.cache.Facet;
 
 public final class SelectTransformingOperation<R, E>
@@ -57,6 +58,11 @@ public final class SelectTransformingOperation<R, E>
     return delegate.transform(resultSet).map(fn);
   }
 
+  @Override
+  void executing(UnitOfWork uow) {
+    delegate.executing(uow);
+  }
+
   @Override
   public boolean isSessionCacheable() {
     return delegate.isSessionCacheable();
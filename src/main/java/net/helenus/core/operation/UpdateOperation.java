@@ -16,6 +16,7 @@
 package net.helenus.core.operation;
 
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Assignment;
 import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
@@ -30,25 +31,35 @@ import net.helenus.core.cache.CacheUtil;
 import net.helenus.core.cache.Facet;
 import net.helenus.core.reflect.HelenusPropertyNode;
 import net.helenus.core.reflect.MapExportable;
+import net.helenus.core.reflect.MapperInvocationHandler;
+import net.helenus.mapping.HelenusCompoundIndex;
+import net.helenus.mapping.HelenusCoveringIndex;
 import net.helenus.mapping.HelenusEntity;
 import net.helenus.mapping.HelenusProperty;
 import net.helenus.mapping.MappingUtil;
 import net.helenus.mapping.value.BeanColumnValueProvider;
+import net.helenus.mapping.value.EntityFingerprint;
+import net.helenus.support.Fun;
 import net.helenus.support.HelenusException;
 import net.helenus.support.HelenusMappingException;
 import net.helenus.support.Immutables;
 
 public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateOperation<E>> {
 
-  private final Map<Assignment, BoundFacet> assignments = new HashMap<>();
+  private final Map<Assignment, BoundFacet> assignments = new LinkedHashMap<>();
+  private final Map<Assignment, AssignedColumn> assignedColumns = new HashMap<>();
   private final AbstractEntityDraft<E> draft;
   private final Map<String, Object> draftMap;
   private final Set<String> readSet;
   private HelenusEntity entity = null;
   private Object pojo;
+  private EntityFingerprint fingerprint;
+  // The values of the covering index columns known to be those of the row before the update.
+  private Map<String, Object> coveredBefore = Collections.emptyMap();
   private int[] ttl;
   private long[] timestamp;
   private long writeTime = 0L;
+  private boolean counter = false;
 
   public UpdateOperation(AbstractSessionOperations sessionOperations) {
     super(sessionOperations);
@@ -63,6 +74,16 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     this.draft = draft;
     this.draftMap = draft.toMap();
     this.readSet = draft.read();
+
+    HelenusEntity drafted = Helenus.entity(draft.getEntityClass());
+    Set<String> mutated = draft.mutated();
+    this.coveredBefore =
+        coveredValues(
+            drafted,
+            prop ->
+                mutated.contains(prop.getPropertyName())
+                    ? null
+                    : draftMap.get(prop.getPropertyName()));
   }
 
   public UpdateOperation(AbstractSessionOperations sessionOperations, Object pojo) {
@@ -75,6 +96,14 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       if (this.entity != null && entity.isCacheable() && pojo instanceof MapExportable) {
         this.pojo = pojo;
         this.readSet = ((MapExportable) pojo).toReadSet();
+        this.fingerprint = MapperInvocationHandler.fingerprintOf(pojo);
+        Map<String, Object> values =
+            coveredValues(
+                entity, prop -> BeanColumnValueProvider.INSTANCE.getColumnValue(pojo, -1, prop));
+        Map<String, Object> loaded = CoveringIndexWrites.loaded(entity, fingerprint, values);
+        if (loaded != null) {
+          this.coveredBefore = loaded;
+        }
       } else {
         this.readSet = null;
       }
@@ -91,7 +120,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     this.readSet = null;
 
     Object value = sessionOps.getValuePreparer().prepareColumnValue(v, p.getProperty());
-    assignments.put(QueryBuilder.set(p.getColumnName(), value), new BoundFacet(p.getProperty(), v));
+    assignSet(p, value, new BoundFacet(p.getProperty(), v));
 
     addPropertyNode(p);
   }
@@ -103,7 +132,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     HelenusProperty prop = p.getProperty();
 
     Object value = sessionOps.getValuePreparer().prepareColumnValue(v, prop);
-    assignments.put(QueryBuilder.set(p.getColumnName(), value), new BoundFacet(prop, value));
+    assignSet(p, value, new BoundFacet(prop, value));
 
     if (draft != null) {
       String key = prop.getPropertyName();
@@ -153,7 +182,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       facet = new BoundFacet(prop, draftMap.get(key));
     }
 
-    assignments.put(QueryBuilder.incr(p.getColumnName(), delta), facet);
+    assignCounter(p, delta, facet);
 
     addPropertyNode(p);
 
@@ -181,7 +210,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       facet = new BoundFacet(prop, draftMap.get(key));
     }
 
-    assignments.put(QueryBuilder.decr(p.getColumnName(), delta), facet);
+    assignCounter(p, -delta, facet);
 
     addPropertyNode(p);
 
@@ -220,7 +249,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       facet = null;
     }
 
-    assignments.put(QueryBuilder.prepend(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.prepend(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -252,7 +281,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       facet = null;
     }
 
-    assignments.put(QueryBuilder.prependAll(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.prependAll(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -290,7 +319,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       facet = null;
     }
 
-    assignments.put(QueryBuilder.setIdx(p.getColumnName(), idx, valueObj), facet);
+    assign(p, QueryBuilder.setIdx(p.getColumnName(), idx, valueObj), facet);
 
     addPropertyNode(p);
 
@@ -321,7 +350,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       list = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.append(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.append(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -352,7 +381,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       list = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.appendAll(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.appendAll(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -383,7 +412,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       list = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.discard(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.discard(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -414,7 +443,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       list = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.discardAll(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.discardAll(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -483,7 +512,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       set = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.add(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.add(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -514,7 +543,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       set = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.addAll(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.addAll(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -545,7 +574,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       set = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.remove(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.remove(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -576,7 +605,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       set = null;
       facet = null;
     }
-    assignments.put(QueryBuilder.removeAll(p.getColumnName(), valueObj), facet);
+    assign(p, QueryBuilder.removeAll(p.getColumnName(), valueObj), facet);
 
     addPropertyNode(p);
 
@@ -649,10 +678,10 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       Map<Object, Object> convertedMap =
           (Map<Object, Object>) converter.get().apply(Immutables.mapOf(key, value));
       for (Map.Entry<Object, Object> e : convertedMap.entrySet()) {
-        assignments.put(QueryBuilder.put(p.getColumnName(), e.getKey(), e.getValue()), facet);
+        assign(p, QueryBuilder.put(p.getColumnName(), e.getKey(), e.getValue()), facet);
       }
     } else {
-      assignments.put(QueryBuilder.put(p.getColumnName(), key, value), facet);
+      assign(p, QueryBuilder.put(p.getColumnName(), key, value), facet);
     }
 
     addPropertyNode(p);
@@ -687,9 +716,86 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
         prop.getWriteConverter(sessionOps.getSessionRepository());
     if (converter.isPresent()) {
       Map convertedMap = (Map) converter.get().apply(map);
-      assignments.put(QueryBuilder.putAll(p.getColumnName(), convertedMap), facet);
+      assign(p, QueryBuilder.putAll(p.getColumnName(), convertedMap), facet);
     } else {
-      assignments.put(QueryBuilder.putAll(p.getColumnName(), map), facet);
+      assign(p, QueryBuilder.putAll(p.getColumnName(), map), facet);
+    }
+
+    addPropertyNode(p);
+
+    return this;
+  }
+
+  /*
+   *
+   *
+   * DRAFT COLLECTIONS
+   *
+   *
+   */
+
+  /**
+   * Sets the property of the draft being updated to the value. When the value is a collection
+   * obtained from that property of the draft (see {@link DraftCollections}) only the changes it
+   * recorded are written, as element assignments, otherwise this is {@link #set(Getter, Object)}.
+   */
+  public <V> UpdateOperation<E> setChanges(Getter<V> getter, V value) {
+    Objects.requireNonNull(getter, "getter is empty");
+
+    HelenusPropertyNode p = MappingUtil.resolveMappingProperty(getter);
+    HelenusProperty prop = p.getProperty();
+
+    if (draft == null
+        || !(value instanceof DraftCollections.Tracked)
+        || !((DraftCollections.Tracked) value).isChangeOf(draft, prop.getPropertyName())) {
+      return set(getter, value);
+    }
+
+    Optional<Function<Object, Object>> converter =
+        prop.getWriteConverter(sessionOps.getSessionRepository());
+    BoundFacet facet = new BoundFacet(prop, value);
+    int assigned = assignments.size();
+
+    if (value instanceof DraftCollections.TrackedList) {
+      DraftCollections.TrackedList<Object> list = (DraftCollections.TrackedList<Object>) value;
+      for (Map.Entry<Integer, Object> e : list.getIndexSets().entrySet()) {
+        Object valueObj = prepareSingleListValue(p, e.getValue());
+        assign(p, QueryBuilder.setIdx(p.getColumnName(), e.getKey(), valueObj), facet);
+      }
+      if (!list.getAppended().isEmpty()) {
+        List valueObj = prepareListValue(p, list.getAppended());
+        assign(p, QueryBuilder.appendAll(p.getColumnName(), valueObj), facet);
+      }
+    } else if (value instanceof DraftCollections.TrackedSet) {
+      DraftCollections.TrackedSet<Object> set = (DraftCollections.TrackedSet<Object>) value;
+      if (!set.getAdded().isEmpty()) {
+        Set valueObj = prepareSetValue(p, set.getAdded());
+        assign(p, QueryBuilder.addAll(p.getColumnName(), valueObj), facet);
+      }
+      if (!set.getRemoved().isEmpty()) {
+        Set valueObj = prepareSetValue(p, set.getRemoved());
+        assign(p, QueryBuilder.removeAll(p.getColumnName(), valueObj), facet);
+      }
+    } else {
+      DraftCollections.TrackedMap<Object, Object> map =
+          (DraftCollections.TrackedMap<Object, Object>) value;
+      if (!map.getRemovedKeys().isEmpty() && converter.isPresent()) {
+        // The converter maps entries, the removed keys alone can't be converted.
+        return set(getter, value);
+      }
+      if (!map.getPuts().isEmpty()) {
+        Map valueObj =
+            converter.isPresent() ? (Map) converter.get().apply(map.getPuts()) : map.getPuts();
+        assign(p, QueryBuilder.putAll(p.getColumnName(), valueObj), facet);
+      }
+      if (!map.getRemovedKeys().isEmpty()) {
+        assign(p, QueryBuilder.removeAll(p.getColumnName(), map.getRemovedKeys()), facet);
+      }
+    }
+
+    if (assignments.size() == assigned) {
+      // Nothing recorded, write the value as it is.
+      return set(getter, value);
     }
 
     addPropertyNode(p);
@@ -710,6 +816,8 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
       update.with(assignment);
     }
 
+    assignCompoundIndexes(update);
+
     if (filters != null && !filters.isEmpty()) {
 
       for (Filter<?> filter : filters) {
@@ -735,6 +843,127 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     return update;
   }
 
+  /**
+   * Sets the hash column of each compound index one of whose properties is written. The values of
+   * the other properties must come from the update itself, set or filtered on: those of a draft or
+   * pojo may be stale, and a hash of them would not match the row.
+   */
+  private void assignCompoundIndexes(Update update) {
+    for (HelenusCompoundIndex index : entity.getCompoundIndexes()) {
+      Map<String, Object> indexed = new HashMap<String, Object>();
+      for (Assignment assignment : assignments.keySet()) {
+        AssignedColumn column = assignedColumns.get(assignment);
+        if (column != null
+            && column.kind == AssignedColumn.Kind.SET
+            && index.indexes(column.node.getProperty())) {
+          indexed.put(column.node.getProperty().getPropertyName(), column.value);
+        }
+      }
+      if (indexed.isEmpty()) {
+        continue;
+      }
+      for (HelenusProperty prop : index.getProperties()) {
+        String key = prop.getPropertyName();
+        if (indexed.containsKey(key)) {
+          continue;
+        }
+        Filter<?> filter = equalityFilterOf(prop);
+        if (filter == null) {
+          throw new HelenusMappingException(
+              "update of "
+                  + entity.getName()
+                  + " must set or filter on all the properties of the compound index "
+                  + index);
+        }
+        indexed.put(
+            key,
+            sessionOps.getValuePreparer().prepareColumnValue(filter.postulateValues()[0], prop));
+      }
+      update.with(
+          QueryBuilder.set(
+              index.getColumnName().toCql(), index.hash(p -> indexed.get(p.getPropertyName()))));
+    }
+  }
+
+  private Filter<?> equalityFilterOf(HelenusProperty prop) {
+    if (filters != null) {
+      for (Filter<?> filter : filters) {
+        if (filter.getOperator() == Operator.EQ
+            && filter.postulateValues().length == 1
+            && filter.getNode().getProperty().getPropertyName().equals(prop.getPropertyName())) {
+          return filter;
+        }
+      }
+    }
+    return null;
+  }
+
+  private Map<String, Object> coveredValues(
+      HelenusEntity entity, Function<HelenusProperty, Object> valueOf) {
+    if (entity.getCoveringIndexes().isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, Object> values = new HashMap<String, Object>();
+    for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+      for (HelenusProperty prop : index.getColumns()) {
+        Object value =
+            sessionOps.getValuePreparer().prepareColumnValue(valueOf.apply(prop), prop);
+        if (value != null) {
+          values.put(prop.getPropertyName(), value);
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Makes the assignments to covered columns to the lookup rows of the updated rows, moving the
+   * lookup rows whose keys change.
+   */
+  @Override
+  List<Statement> buildCoveringStatements() {
+    if (entity == null || entity.getCoveringIndexes().isEmpty()) {
+      return Collections.emptyList();
+    }
+    CoveringIndexWrites writes = null;
+    List<Statement> statements = new ArrayList<Statement>();
+    for (HelenusCoveringIndex index : entity.getCoveringIndexes()) {
+      Map<String, Object> set = new HashMap<String, Object>();
+      List<Assignment> touched = new ArrayList<Assignment>();
+      List<Assignment> collections = new ArrayList<Assignment>();
+      for (Assignment assignment : assignments.keySet()) {
+        AssignedColumn column = assignedColumns.get(assignment);
+        if (column == null || !index.covers(column.node.getProperty())) {
+          continue;
+        }
+        touched.add(assignment);
+        if (column.kind == AssignedColumn.Kind.SET) {
+          set.put(column.node.getProperty().getPropertyName(), column.value);
+        } else {
+          collections.add(assignment);
+        }
+      }
+      if (touched.isEmpty()) {
+        continue;
+      }
+      if (writes == null) {
+        writes = CoveringIndexWrites.of(sessionOps, coveringReads, entity, filters, ttl, timestamp);
+      }
+      statements.addAll(writes.written(index, coveredBefore, set, touched, collections));
+    }
+    return statements;
+  }
+
+  @Override
+  boolean isAppliedAlone() {
+    return ifFilters != null && !ifFilters.isEmpty();
+  }
+
+  @Override
+  boolean hasCoveringIndexes() {
+    return entity != null && !entity.getCoveringIndexes().isEmpty();
+  }
+
   @Override
   public E transform(ResultSet resultSet) {
     if ((ifFilters != null && !ifFilters.isEmpty()) && (resultSet.wasApplied() == false)) {
@@ -760,6 +989,166 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     return this;
   }
 
+  /** A write of the pojo's row changes it, the fingerprint no longer describes it. */
+  private void written() {
+    if (fingerprint != null) {
+      fingerprint.invalidate();
+    }
+  }
+
+  private void assignSet(HelenusPropertyNode p, Object value, BoundFacet facet) {
+    Assignment assignment = QueryBuilder.set(p.getColumnName(), value);
+    assignments.put(assignment, facet);
+    assignedColumns.put(assignment, new AssignedColumn(p, AssignedColumn.Kind.SET, value, 0L));
+  }
+
+  private void assignCounter(HelenusPropertyNode p, long delta, BoundFacet facet) {
+    Assignment assignment =
+        delta < 0
+            ? QueryBuilder.decr(p.getColumnName(), -delta)
+            : QueryBuilder.incr(p.getColumnName(), delta);
+    assignments.put(assignment, facet);
+    assignedColumns.put(
+        assignment, new AssignedColumn(p, AssignedColumn.Kind.COUNTER, null, delta));
+    counter = true;
+  }
+
+  private void assign(HelenusPropertyNode p, Assignment assignment, BoundFacet facet) {
+    assignments.put(assignment, facet);
+    assignedColumns.put(
+        assignment, new AssignedColumn(p, AssignedColumn.Kind.COLLECTION, null, 0L));
+  }
+
+  /**
+   * Merges a later update of the same row into a new operation: the last value set for a column
+   * wins, counter deltas are summed and collection operations are accumulated. Returns null when
+   * the two can't be expressed by a single statement.
+   */
+  @Override
+  AbstractOperation<?, ?> coalesce(AbstractOperation<?, ?> next) {
+    if (!(next instanceof UpdateOperation)) {
+      return null;
+    }
+    UpdateOperation<?> later = (UpdateOperation<?>) next;
+    if (!isCoalescable()
+        || !later.isCoalescable()
+        || entity != later.entity
+        || !Arrays.equals(ttl, later.ttl)
+        || !Arrays.equals(timestamp, later.timestamp)) {
+      return null;
+    }
+
+    UpdateOperation<E> merged = new UpdateOperation<E>(sessionOps);
+    merged.entity = entity;
+    merged.filters = filters;
+    merged.ttl = ttl;
+    merged.timestamp = timestamp;
+    merged.coveredBefore = coveredBefore;
+    merged.counter = counter || later.counter;
+    merged.assignments.putAll(assignments);
+    merged.assignedColumns.putAll(assignedColumns);
+
+    for (Map.Entry<Assignment, BoundFacet> e : later.assignments.entrySet()) {
+      AssignedColumn column = later.assignedColumns.get(e.getKey());
+      switch (column.kind) {
+        case SET:
+          merged.unassign(column.column(), null);
+          merged.assignments.put(e.getKey(), e.getValue());
+          merged.assignedColumns.put(e.getKey(), column);
+          break;
+        case COUNTER:
+          long sum = merged.unassign(column.column(), AssignedColumn.Kind.COUNTER);
+          merged.assignCounter(column.node, sum + column.delta, e.getValue());
+          break;
+        default:
+          if (merged.isAssigned(column.column(), AssignedColumn.Kind.SET)) {
+            // CQL rejects setting a column and mutating its elements in one statement.
+            return null;
+          }
+          merged.assignments.put(e.getKey(), e.getValue());
+          merged.assignedColumns.put(e.getKey(), column);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * The prepared column values of an update that only sets columns, for merging into an insert of
+   * the same row, or null when it does anything else.
+   */
+  List<Fun.Tuple2<HelenusPropertyNode, Object>> assignedValues(int[] ttl, long[] timestamp) {
+    if (!isCoalescable()
+        || !Arrays.equals(this.ttl, ttl)
+        || !Arrays.equals(this.timestamp, timestamp)) {
+      return null;
+    }
+    List<Fun.Tuple2<HelenusPropertyNode, Object>> values = new ArrayList<>(assignments.size());
+    for (Assignment assignment : assignments.keySet()) {
+      AssignedColumn column = assignedColumns.get(assignment);
+      if (column.kind != AssignedColumn.Kind.SET) {
+        return null;
+      }
+      values.add(Fun.Tuple2.of(column.node, column.value));
+    }
+    return values;
+  }
+
+  private boolean isCoalescable() {
+    // The hash of a compound index may need the draft or pojo of each update, see
+    // assignCompoundIndexes, which a merge doesn't keep.
+    return entity != null
+        && entity.getCompoundIndexes().isEmpty()
+        && (ifFilters == null || ifFilters.isEmpty())
+        && assignments.size() == assignedColumns.size();
+  }
+
+  private boolean isAssigned(String column, AssignedColumn.Kind kind) {
+    return assignedColumns
+        .values()
+        .stream()
+        .anyMatch(c -> c.kind == kind && c.column().equals(column));
+  }
+
+  /** Removes the assignments of a column (of the given kind, if any) returning the counter sum. */
+  private long unassign(String column, AssignedColumn.Kind kind) {
+    long delta = 0L;
+    Iterator<Map.Entry<Assignment, AssignedColumn>> it = assignedColumns.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Assignment, AssignedColumn> e = it.next();
+      AssignedColumn c = e.getValue();
+      if (c.column().equals(column) && (kind == null || c.kind == kind)) {
+        delta += c.delta;
+        assignments.remove(e.getKey());
+        it.remove();
+      }
+    }
+    return delta;
+  }
+
+  private static final class AssignedColumn {
+    enum Kind {
+      SET,
+      COUNTER,
+      COLLECTION
+    }
+
+    final HelenusPropertyNode node;
+    final Kind kind;
+    final Object value;
+    final long delta;
+
+    AssignedColumn(HelenusPropertyNode node, Kind kind, Object value, long delta) {
+      this.node = node;
+      this.kind = kind;
+      this.value = value;
+      this.delta = delta;
+    }
+
+    String column() {
+      return node.getColumnName();
+    }
+  }
+
   private void addPropertyNode(HelenusPropertyNode p) {
     if (entity == null) {
       entity = p.getEntity();
@@ -792,6 +1181,11 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     }
   }
 
+  @Override
+  public boolean isCounterOperation() {
+    return counter;
+  }
+
   @Override
   protected boolean isIdempotentOperation() {
     return assignments
@@ -817,6 +1211,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
   @Override
   public E sync() throws TimeoutException {
     E result = super.sync();
+    written();
     if (result != null && entity.isCacheable()) {
       if (draft != null) {
         adjustTtlAndWriteTime(draft);
@@ -837,7 +1232,9 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     if (uow == null) {
       return sync();
     }
+    uow.checkWritable();
     E result = super.sync(uow);
+    written();
     if (result != null) {
       if (draft != null) {
         adjustTtlAndWriteTime(draft);
@@ -858,6 +1255,7 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     if (uow == null) {
       throw new HelenusException("UnitOfWork cannot be null when batching operations.");
     }
+    uow.checkWritable();
 
     final E result;
     if (draft != null) {
@@ -871,8 +1269,11 @@ public final class UpdateOperation<E> extends AbstractFilterOperation<E, UpdateO
     }
 
     if (result != null) {
-      cacheUpdate(uow, result, bindFacetValues());
+      List<Facet> facets = bindFacetValues();
+      uow.markDirty(facets);
+      cacheUpdate(uow, result, facets);
       uow.batch(this);
+      written();
       return result;
     }
 
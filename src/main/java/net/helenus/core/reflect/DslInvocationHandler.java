@@ -204,7 +204,11 @@ public class DslInvocationHandler<E> implements InvocationHandler {
         }
       }
 
-      throw new DslPropertyException(new HelenusPropertyNode(prop, parent));
+      HelenusPropertyNode node = new HelenusPropertyNode(prop, parent);
+      if (DslPropertyCapture.record(node)) {
+        return DslPropertyCapture.defaultValue(method.getReturnType());
+      }
+      throw new DslPropertyException(node);
     }
 
     throw new HelenusException("invalid method call " + method);
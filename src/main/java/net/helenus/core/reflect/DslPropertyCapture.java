@@ -0,0 +1,76 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.reflect;
+
+import net.helenus.core.Getter;
+import net.helenus.support.DslPropertyException;
+
+/**
+ * Records the property a {@link Getter} reads from a DSL object. While a capture is active on the
+ * current thread the DSL returns a default value instead of throwing a {@link
+ * DslPropertyException}, so resolving a getter costs no exception.
+ */
+public final class DslPropertyCapture {
+
+  private static final ThreadLocal<DslPropertyCapture> current =
+      new ThreadLocal<DslPropertyCapture>();
+
+  private HelenusPropertyNode node;
+
+  private DslPropertyCapture() {}
+
+  /**
+   * Invokes the getter, returning the property it read or null if it didn't read one (e.g. it
+   * returned a nested DSL object, which is passed to {@code result}).
+   */
+  public static HelenusPropertyNode capture(Getter<?> getter, Object[] result) {
+    DslPropertyCapture previous = current.get();
+    DslPropertyCapture capture = new DslPropertyCapture();
+    current.set(capture);
+    try {
+      result[0] = getter.get();
+      return capture.node;
+    } catch (DslPropertyException e) {
+      return capture.node != null ? capture.node : e.getPropertyNode();
+    } finally {
+      current.set(previous);
+    }
+  }
+
+  /**
+   * Called by DSL objects when a property is read. Returns false, meaning the caller should throw
+   * a {@link DslPropertyException}, when no capture is active.
+   */
+  static boolean record(HelenusPropertyNode node) {
+    DslPropertyCapture capture = current.get();
+    if (capture == null) {
+      return false;
+    }
+    if (capture.node == null) {
+      capture.node = node;
+    }
+    return true;
+  }
+
+  /** The value a DSL method returns in place of throwing. */
+  static Object defaultValue(Class<?> returnType) {
+    if (returnType.isPrimitive()) {
+      DefaultPrimitiveTypes type = DefaultPrimitiveTypes.lookup(returnType);
+      return type == null ? null : type.getDefaultValue();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.reflect;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import net.helenus.core.Getter;
+import net.helenus.core.cache.CacheUtil;
+import net.helenus.mapping.MappingUtil;
+import net.helenus.mapping.value.ValueProviderMap;
+
+/**
+ * Base class of the entity implementations produced by {@link GeneratedMapperInstantiator}. The
+ * generated subclass implements each getter as a read of a numbered slot; slots are loaded from the
+ * backing map on first access and then served from an array. Everything else mirrors {@link
+ * MapperInvocationHandler}.
+ */
+public abstract class GeneratedEntity implements MapExportable, Serializable {
+  private static final long serialVersionUID = 4911547231065373592L;
+
+  private static final Object UNLOADED = new Object();
+
+  private final Layout layout;
+  private final Object[] slots;
+  private Set<String> read = new HashSet<String>();
+  private Map<String, Object> src;
+  private Map<String, Object> view;
+
+  protected GeneratedEntity(Layout layout, Map<String, Object> src) {
+    this.layout = layout;
+    this.src = src;
+    this.slots = new Object[layout.names.length];
+    Arrays.fill(slots, UNLOADED);
+  }
+
+  protected final Object slot(int index) {
+    Object value = slots[index];
+    if (value == UNLOADED) {
+      String name = layout.names[index];
+      value = src.get(name);
+      read.add(name);
+      slots[index] = value;
+    }
+    return value;
+  }
+
+  static Map<String, Object> sourceOf(GeneratedEntity entity) {
+    return entity.src;
+  }
+
+  void shareReadSet() {
+    Set<String> shared = ConcurrentHashMap.newKeySet();
+    shared.addAll(read);
+    read = shared;
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    if (view == null) {
+      view = Collections.unmodifiableMap(src);
+    }
+    return view;
+  }
+
+  @Override
+  public Map<String, Object> toMap(boolean mutable) {
+    if (mutable) {
+      return MapperInvocationHandler.fromValueProviderMap(src, true);
+    }
+    return toMap();
+  }
+
+  @Override
+  public Set<String> toReadSet() {
+    return read;
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    if (key == null) {
+      return;
+    }
+    if (src instanceof ValueProviderMap) {
+      src = MapperInvocationHandler.fromValueProviderMap(src);
+      view = null;
+    }
+    src.put(key, value);
+    Integer index = layout.index.get(key);
+    if (index != null) {
+      slots[index] = UNLOADED;
+    }
+  }
+
+  @Override
+  public <T> void put(Getter<T> getter, T value) {
+    if (getter != null) {
+      put(MappingUtil.resolveMappingProperty(getter).getProperty().getPropertyName(), value);
+    }
+  }
+
+  public Long writtenAt(Getter getter) {
+    if (getter == null) {
+      return 0L;
+    }
+    return writtenAt(columnOf(getter));
+  }
+
+  public Long writtenAt(String prop) {
+    if (prop == null) {
+      return 0L;
+    }
+    Long v = (Long) src.get(CacheUtil.writeTimeKey(prop));
+    return v != null ? v : 0L;
+  }
+
+  public Integer ttlOf(Getter getter) {
+    if (getter == null) {
+      return 0;
+    }
+    return ttlOf(columnOf(getter));
+  }
+
+  public Integer ttlOf(String prop) {
+    if (prop == null) {
+      return 0;
+    }
+    int v[] = (int[]) src.get(CacheUtil.ttlKey(prop));
+    return v != null ? v[0] : 0;
+  }
+
+  public Long tokenOf() {
+    Long v = (Long) src.get("");
+    return v != null ? v : 0L;
+  }
+
+  private static String columnOf(Getter getter) {
+    return MappingUtil.resolveMappingProperty(getter).getProperty().getColumnName().toCql(false);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (other instanceof MapExportable) {
+      return MappingUtil.compareMaps((MapExportable) other, src);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return layout.iface.getSimpleName() + ": " + src.toString();
+  }
+
+  protected final Object writeReplace() {
+    return new SerializationProxy(this);
+  }
+
+  private void readObject(ObjectInputStream stream) throws InvalidObjectException {
+    throw new InvalidObjectException("Proxy required.");
+  }
+
+  /** The slot names of a generated class, shared by all of its instances. */
+  public static final class Layout {
+    private final Class<?> iface;
+    private final String[] names;
+    private final Map<String, Integer> index;
+
+    public Layout(Class<?> iface, String... names) {
+      this.iface = iface;
+      this.names = names;
+      this.index = new HashMap<String, Integer>(names.length * 2);
+      for (int i = 0; i < names.length; i++) {
+        index.put(names[i], i);
+      }
+    }
+  }
+
+  static class SerializationProxy implements Serializable {
+
+    private static final long serialVersionUID = 2365279385384317614L;
+
+    private final Class<?> iface;
+    private final Map<String, Object> src;
+
+    SerializationProxy(GeneratedEntity entity) {
+      this.iface = entity.layout.iface;
+      this.src = MapperInvocationHandler.fromValueProviderMap(entity.src);
+    }
+
+    Object readResolve() throws ObjectStreamException {
+      return GeneratedMapperInstantiator.INSTANCE.instantiate(
+          iface, src, iface.getClassLoader());
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.reflect;
+
+import com.google.common.primitives.Primitives;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.helenus.mapping.annotation.Transient;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * Writes the bytecode of a {@link GeneratedEntity} subclass implementing a mapping interface. The
+ * class behaves like the source written by {@link GeneratedEntitySource}: getters read a slot and
+ * fall back to the interface's default method or the primitive default, {@code dsl()} returns the
+ * DSL of the interface and any other method throws.
+ */
+final class GeneratedEntityClass implements Opcodes {
+
+  private static final String BASE = Type.getInternalName(GeneratedEntity.class);
+  private static final String LAYOUT = Type.getInternalName(GeneratedEntity.Layout.class);
+  private static final String LAYOUT_DESCRIPTOR = Type.getDescriptor(GeneratedEntity.Layout.class);
+
+  private final Class<?> iface;
+  private final String ifaceName;
+  private final String className;
+  private final Map<String, Integer> slots = new LinkedHashMap<String, Integer>();
+  private final ClassWriter writer =
+      new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+          // Frames only ever merge a slot value with itself, avoid loading the class being written.
+          return "java/lang/Object";
+        }
+      };
+
+  private GeneratedEntityClass(Class<?> iface) {
+    this.iface = iface;
+    this.ifaceName = Type.getInternalName(iface);
+    this.className = ifaceName + GeneratedEntitySource.SUFFIX;
+  }
+
+  /** The bytecode of {@code <iface>$$HelenusEntity}, to be defined in the loader of the iface. */
+  static byte[] generate(Class<?> iface) {
+    return new GeneratedEntityClass(iface).write();
+  }
+
+  private byte[] write() {
+    writer.visit(
+        V1_8,
+        ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+        className,
+        null,
+        BASE,
+        new String[] {ifaceName});
+    writer
+        .visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "serialVersionUID", "J", null, 1L)
+        .visitEnd();
+    writer
+        .visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "LAYOUT", LAYOUT_DESCRIPTOR, null, null)
+        .visitEnd();
+    constructor();
+
+    Map<String, Method> methods = new LinkedHashMap<String, Method>();
+    for (Method method : iface.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) || method.isSynthetic()) {
+        continue;
+      }
+      if (method.isDefault() && method.getDeclaredAnnotation(Transient.class) != null) {
+        continue;
+      }
+      if (isImplementedByBase(method)) {
+        continue;
+      }
+      // One implementation per descriptor, covariant overrides each get their own.
+      methods.putIfAbsent(method.getName() + Type.getMethodDescriptor(method), method);
+    }
+    for (Method method : methods.values()) {
+      Class<?> returnType = method.getReturnType();
+      if (method.getParameterCount() != 0 || returnType == void.class) {
+        invalid(method);
+      } else if ("dsl".equals(method.getName())) {
+        dsl(method);
+      } else {
+        getter(method);
+      }
+    }
+
+    staticInitializer();
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  private static boolean isImplementedByBase(Method method) {
+    String[] parameters = new String[method.getParameterCount()];
+    for (int i = 0; i < parameters.length; i++) {
+      Class<?> parameter = method.getParameterTypes()[i];
+      String name = parameter.getCanonicalName();
+      parameters[i] = name != null ? name : parameter.getName();
+    }
+    return GeneratedEntitySource.isImplementedByBase(method.getName(), parameters);
+  }
+
+  private void constructor() {
+    MethodVisitor mv =
+        writer.visitMethod(ACC_PUBLIC, "<init>", "(Ljava/util/Map;)V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitFieldInsn(GETSTATIC, className, "LAYOUT", LAYOUT_DESCRIPTOR);
+    mv.visitVarInsn(ALOAD, 1);
+    mv.visitMethodInsn(
+        INVOKESPECIAL, BASE, "<init>", "(" + LAYOUT_DESCRIPTOR + "Ljava/util/Map;)V", false);
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private void staticInitializer() {
+    MethodVisitor mv = writer.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+    mv.visitCode();
+    mv.visitTypeInsn(NEW, LAYOUT);
+    mv.visitInsn(DUP);
+    mv.visitLdcInsn(Type.getType(iface));
+    push(mv, slots.size());
+    mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+    for (Map.Entry<String, Integer> slot : slots.entrySet()) {
+      mv.visitInsn(DUP);
+      push(mv, slot.getValue());
+      mv.visitLdcInsn(slot.getKey());
+      mv.visitInsn(AASTORE);
+    }
+    mv.visitMethodInsn(
+        INVOKESPECIAL, LAYOUT, "<init>", "(Ljava/lang/Class;[Ljava/lang/String;)V", false);
+    mv.visitFieldInsn(PUTSTATIC, className, "LAYOUT", LAYOUT_DESCRIPTOR);
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private void getter(Method method) {
+    String name = method.getName();
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      slot = slots.size();
+      slots.put(name, slot);
+    }
+    Class<?> returnType = method.getReturnType();
+    Type type = Type.getType(returnType);
+    String descriptor = Type.getMethodDescriptor(method);
+
+    MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, name, descriptor, null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    push(mv, slot);
+    mv.visitMethodInsn(INVOKEVIRTUAL, BASE, "slot", "(I)Ljava/lang/Object;", false);
+    mv.visitVarInsn(ASTORE, 1);
+    mv.visitVarInsn(ALOAD, 1);
+    Label loaded = new Label();
+    mv.visitJumpInsn(IFNONNULL, loaded);
+    if (method.isDefault()) {
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitMethodInsn(INVOKESPECIAL, ifaceName, name, descriptor, true);
+    } else {
+      pushDefault(mv, type);
+    }
+    mv.visitInsn(type.getOpcode(IRETURN));
+
+    mv.visitLabel(loaded);
+    mv.visitVarInsn(ALOAD, 1);
+    if (returnType.isPrimitive()) {
+      String wrapper = Type.getInternalName(Primitives.wrap(returnType));
+      mv.visitTypeInsn(CHECKCAST, wrapper);
+      mv.visitMethodInsn(
+          INVOKEVIRTUAL, wrapper, returnType.getName() + "Value", "()" + type, false);
+    } else {
+      mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+    }
+    mv.visitInsn(type.getOpcode(IRETURN));
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private void dsl(Method method) {
+    if (method.getReturnType().isPrimitive()) {
+      invalid(method);
+      return;
+    }
+    MethodVisitor mv =
+        writer.visitMethod(
+            ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, null);
+    mv.visitCode();
+    mv.visitLdcInsn(Type.getType(iface));
+    mv.visitMethodInsn(
+        INVOKESTATIC,
+        "net/helenus/core/Helenus",
+        "dsl",
+        "(Ljava/lang/Class;)Ljava/lang/Object;",
+        false);
+    mv.visitTypeInsn(CHECKCAST, Type.getInternalName(method.getReturnType()));
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private void invalid(Method method) {
+    MethodVisitor mv =
+        writer.visitMethod(
+            ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, null);
+    mv.visitCode();
+    mv.visitTypeInsn(NEW, "net/helenus/support/HelenusException");
+    mv.visitInsn(DUP);
+    mv.visitLdcInsn("invalid getter method " + method);
+    mv.visitMethodInsn(
+        INVOKESPECIAL,
+        "net/helenus/support/HelenusException",
+        "<init>",
+        "(Ljava/lang/String;)V",
+        false);
+    mv.visitInsn(ATHROW);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private static void pushDefault(MethodVisitor mv, Type type) {
+    switch (type.getSort()) {
+      case Type.LONG:
+        mv.visitInsn(LCONST_0);
+        break;
+      case Type.FLOAT:
+        mv.visitInsn(FCONST_0);
+        break;
+      case Type.DOUBLE:
+        mv.visitInsn(DCONST_0);
+        break;
+      case Type.OBJECT:
+      case Type.ARRAY:
+        mv.visitInsn(ACONST_NULL);
+        break;
+      default:
+        mv.visitInsn(ICONST_0);
+    }
+  }
+
+  private static void push(MethodVisitor mv, int value) {
+    if (value <= 5) {
+      mv.visitInsn(ICONST_0 + value);
+    } else if (value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, value);
+    } else if (value <= Short.MAX_VALUE) {
+      mv.visitIntInsn(SIPUSH, value);
+    } else {
+      mv.visitLdcInsn(value);
+    }
+  }
+}
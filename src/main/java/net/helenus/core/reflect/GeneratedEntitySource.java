@@ -0,0 +1,152 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.reflect;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the Java source of a {@link GeneratedEntity} subclass implementing a mapping interface,
+ * from the compiler's model at build time ({@link net.helenus.mapping.processor.EntityProcessor}).
+ * Types are given as erased canonical names. {@link GeneratedEntityClass} writes the same class as
+ * bytecode at runtime.
+ */
+public class GeneratedEntitySource {
+
+  public static final String SUFFIX = "$$HelenusEntity";
+
+  private static final Set<String> BASE_METHODS =
+      ImmutableSet.of(
+          "equals(java.lang.Object)",
+          "hashCode()",
+          "toString()",
+          "toMap()",
+          "toMap(boolean)",
+          "toReadSet()",
+          "put(java.lang.String, java.lang.Object)",
+          "put(net.helenus.core.Getter, java.lang.Object)",
+          "writtenAt(net.helenus.core.Getter)",
+          "writtenAt(java.lang.String)",
+          "ttlOf(net.helenus.core.Getter)",
+          "ttlOf(java.lang.String)",
+          "tokenOf()");
+
+  private final String packageName;
+  private final String className;
+  private final String ifaceName;
+  private final List<String> slots = new ArrayList<String>();
+  private final StringBuilder body = new StringBuilder();
+
+  /**
+   * @param binaryName the binary name of the mapping interface, e.g. {@code a.b.Outer$Inner}
+   * @param ifaceName the canonical name of the mapping interface, e.g. {@code a.b.Outer.Inner}
+   */
+  public GeneratedEntitySource(String binaryName, String ifaceName) {
+    int dot = binaryName.lastIndexOf('.');
+    this.packageName = dot > 0 ? binaryName.substring(0, dot) : null;
+    this.className = binaryName.substring(dot + 1) + SUFFIX;
+    this.ifaceName = ifaceName;
+  }
+
+  /** True when the method is implemented by {@link GeneratedEntity} itself. */
+  public static boolean isImplementedByBase(String name, String... parameterTypes) {
+    return BASE_METHODS.contains(name + "(" + String.join(", ", parameterTypes) + ")");
+  }
+
+  /**
+   * A getter reading the property of the same name. Null values fall back to the interface's
+   * default method when there is one, otherwise to the primitive default.
+   *
+   * @param wrapper the boxed type of a primitive return type, otherwise null
+   */
+  public GeneratedEntitySource getter(
+      String name, String returnType, String wrapper, boolean hasDefault) {
+    String fallback;
+    if (hasDefault) {
+      fallback = ifaceName + ".super." + name + "()";
+    } else if (wrapper == null) {
+      fallback = "null";
+    } else if ("boolean".equals(returnType)) {
+      fallback = "false";
+    } else {
+      fallback = "(" + returnType + ") 0";
+    }
+    open(returnType, name);
+    body.append("    Object v = slot(").append(slots.size()).append(");\n");
+    body.append("    return v == null ? ").append(fallback).append(" : (");
+    body.append(wrapper != null ? wrapper : returnType).append(") v;\n");
+    body.append("  }\n");
+    slots.add(name);
+    return this;
+  }
+
+  public GeneratedEntitySource dsl(String name, String returnType) {
+    open(returnType, name);
+    body.append("    return (").append(returnType).append(") net.helenus.core.Helenus.dsl(");
+    body.append(ifaceName).append(".class);\n  }\n");
+    return this;
+  }
+
+  /** A method which cannot be mapped to a property, it throws when invoked. */
+  public GeneratedEntitySource invalid(
+      String name, String returnType, String description, String... parameterTypes) {
+    open(returnType, name, parameterTypes);
+    body.append("    throw new net.helenus.support.HelenusException(\"invalid getter method ");
+    body.append(description.replace("\\", "\\\\").replace("\"", "\\\"")).append("\");\n  }\n");
+    return this;
+  }
+
+  private void open(String returnType, String name, String... parameterTypes) {
+    body.append("\n  @Override\n  public ").append(returnType).append(' ').append(name);
+    body.append('(');
+    for (int i = 0; i < parameterTypes.length; i++) {
+      body.append(i == 0 ? "" : ", ").append(parameterTypes[i]).append(" a").append(i);
+    }
+    body.append(") {\n");
+  }
+
+  public String getQualifiedName() {
+    return packageName == null ? className : packageName + "." + className;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder source = new StringBuilder();
+    if (packageName != null) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+    source.append("public final class ").append(className);
+    source.append(" extends net.helenus.core.reflect.GeneratedEntity implements ");
+    source.append(ifaceName).append(" {\n");
+    source.append("  private static final long serialVersionUID = 1L;\n\n");
+    source.append("  private static final net.helenus.core.reflect.GeneratedEntity.Layout");
+    source.append(" LAYOUT =\n      new net.helenus.core.reflect.GeneratedEntity.Layout(");
+    source.append(ifaceName);
+    source.append(".class");
+    for (String slot : slots) {
+      source.append(", \"").append(slot).append('"');
+    }
+    source.append(");\n\n");
+    source.append("  public ").append(className).append("(java.util.Map<String, Object> src) {\n");
+    source.append("    super(LAYOUT, src);\n  }\n");
+    source.append(body);
+    source.append("}\n");
+    return source.toString();
+  }
+}
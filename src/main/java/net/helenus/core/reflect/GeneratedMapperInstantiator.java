@@ -0,0 +1,129 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.function.Function;
+import net.helenus.core.MapperInstantiator;
+import net.helenus.support.HelenusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instantiates entities as instances of a class generated for each mapping interface rather than
+ * as a {@link java.lang.reflect.Proxy}, so getters are plain virtual calls reading a slot array
+ * (see {@link GeneratedEntity}). The class generated at build time by {@link
+ * net.helenus.mapping.processor.EntityProcessor} is used when it is on the class path, otherwise
+ * the bytecode is written by {@link GeneratedEntityClass} and defined in the class loader of the
+ * mapping interface. When the class cannot be defined the interface falls back to {@link
+ * ReflectionMapperInstantiator}.
+ *
+ * <p>Select it by returning {@link #INSTANCE} from {@code HelenusSettings.getMapperInstantiator()},
+ * see {@link net.helenus.config.GeneratedHelenusSettings}.
+ */
+public enum GeneratedMapperInstantiator implements MapperInstantiator {
+  INSTANCE;
+
+  private static final Logger LOG = LoggerFactory.getLogger(GeneratedMapperInstantiator.class);
+
+  private static final Function<Map<String, Object>, Object> PROXY = src -> null;
+
+  private final ClassValue<Function<Map<String, Object>, Object>> factories =
+      new ClassValue<Function<Map<String, Object>, Object>>() {
+        @Override
+        protected Function<Map<String, Object>, Object> computeValue(Class<?> iface) {
+          synchronized (GeneratedMapperInstantiator.class) {
+            try {
+              return factoryOf(defineClass(iface));
+            } catch (Throwable t) {
+              LOG.warn(
+                  "unable to generate an implementation of {}, falling back to a proxy: {}",
+                  iface.getName(),
+                  t.toString());
+              return PROXY;
+            }
+          }
+        }
+      };
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <E> E instantiate(Class<E> iface, Map<String, Object> src, ClassLoader classLoader) {
+    Function<Map<String, Object>, Object> factory = factories.get(iface);
+    if (factory == PROXY) {
+      return ReflectionMapperInstantiator.INSTANCE.instantiate(iface, src, classLoader);
+    }
+    return (E) factory.apply(src);
+  }
+
+  private static Function<Map<String, Object>, Object> factoryOf(Class<?> generated)
+      throws ReflectiveOperationException {
+    MethodHandle constructor =
+        MethodHandles.publicLookup()
+            .findConstructor(generated, MethodType.methodType(void.class, Map.class))
+            .asType(MethodType.methodType(Object.class, Map.class));
+    return src -> {
+      try {
+        return constructor.invokeExact(src);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new HelenusException(t);
+      }
+    };
+  }
+
+  private static Class<?> defineClass(Class<?> iface) throws Exception {
+    if (!iface.isInterface()) {
+      throw new HelenusException("not an interface " + iface);
+    }
+    ClassLoader loader = iface.getClassLoader();
+    String name = iface.getName() + GeneratedEntitySource.SUFFIX;
+    try {
+      return Class.forName(name, false, loader);
+    } catch (ClassNotFoundException e) {
+      // Not generated at build time.
+    }
+
+    byte[] bytes = GeneratedEntityClass.generate(iface);
+    try {
+      // Java 9+: MethodHandles.privateLookupIn(iface, lookup()).defineClass(bytes)
+      Method privateLookupIn =
+          MethodHandles.class.getMethod(
+              "privateLookupIn", Class.class, MethodHandles.Lookup.class);
+      Object lookup = privateLookupIn.invoke(null, iface, MethodHandles.lookup());
+      Method define = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+      return (Class<?>) define.invoke(lookup, (Object) bytes);
+    } catch (NoSuchMethodException e) {
+      Method define =
+          ClassLoader.class.getDeclaredMethod(
+              "defineClass",
+              String.class,
+              byte[].class,
+              int.class,
+              int.class,
+              ProtectionDomain.class);
+      define.setAccessible(true);
+      return (Class<?>)
+          define.invoke(loader, name, bytes, 0, bytes.length, iface.getProtectionDomain());
+    }
+  }
+}
@@ -35,7 +35,11 @@ public final class ListDsl<V> implements List<V> {
   @Override
   public V get(int index) {
     HelenusProperty prop = new HelenusNamedProperty(Integer.toString(index));
-    throw new DslPropertyException(new HelenusPropertyNode(prop, Optional.of(parent)));
+    HelenusPropertyNode node = new HelenusPropertyNode(prop, Optional.of(parent));
+    if (DslPropertyCapture.record(node)) {
+      return null;
+    }
+    throw new DslPropertyException(node);
   }
 
   @Override
@@ -38,7 +38,11 @@ public final class MapDsl<K, V> implements Map<K, V> {
   @Override
   public V get(Object key) {
     HelenusProperty prop = new HelenusNamedProperty(key.toString());
-    throw new DslPropertyException(new HelenusPropertyNode(prop, Optional.of(parent)));
+    HelenusPropertyNode node = new HelenusPropertyNode(prop, Optional.of(parent));
+    if (DslPropertyCapture.record(node)) {
+      return null;
+    }
+    throw new DslPropertyException(node);
   }
 
   @Override
@@ -15,32 +15,51 @@
  */
 package net.helenus.core.reflect;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import net.helenus.core.Getter;
 import net.helenus.core.Helenus;
 import net.helenus.core.cache.CacheUtil;
 import net.helenus.mapping.MappingUtil;
 import net.helenus.mapping.annotation.Transient;
+import net.helenus.mapping.value.EntityFingerprint;
+import net.helenus.mapping.value.EntityValueMap;
 import net.helenus.mapping.value.ValueProviderMap;
+import net.helenus.support.CopyOnWrite;
 import net.helenus.support.HelenusException;
 
 public class MapperInvocationHandler<E> implements InvocationHandler, Serializable {
   private static final long serialVersionUID = -7044209982830584984L;
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  // Handles for default methods, adapted to (Object proxy, Object[] args)Object, per declaring
+  // interface.
+  private static final ClassValue<ConcurrentMap<Method, MethodHandle>> defaultMethods =
+      new ClassValue<ConcurrentMap<Method, MethodHandle>>() {
+        @Override
+        protected ConcurrentMap<Method, MethodHandle> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<Method, MethodHandle>();
+        }
+      };
+
+  private static final MethodType GENERIC_INVOKER =
+      MethodType.methodType(Object.class, Object.class, Object[].class);
+
   private Map<String, Object> src;
-  private final Set<String> read = new HashSet<String>();
+  private Set<String> read = new HashSet<String>();
   private final Class<E> iface;
 
   public MapperInvocationHandler(Class<E> iface, Map<String, Object> src) {
@@ -49,27 +68,42 @@ public class MapperInvocationHandler<E> implements InvocationHandler, Serializab
   }
 
   private Object invokeDefault(Object proxy, Method method, Object[] args) throws Throwable {
+    ConcurrentMap<Method, MethodHandle> handles = defaultMethods.get(method.getDeclaringClass());
+    MethodHandle handle = handles.get(method);
+    if (handle == null) {
+      handle =
+          unreflectDefault(method)
+              .asSpreader(Object[].class, method.getParameterCount())
+              .asType(GENERIC_INVOKER);
+      handles.putIfAbsent(method, handle);
+    }
+    return handle.invokeExact(proxy, args);
+  }
+
+  private static MethodHandle unreflectDefault(Method method) throws Exception {
     // NOTE: This is reflection magic to invoke (non-recursively) a default method
     // implemented on an interface
     // that we've proxied (in ReflectionDslInstantiator). I found the answer in this
     // article.
     // https://zeroturnaround.com/rebellabs/recognize-and-conquer-java-proxies-default-methods-and-method-handles/
-
-    // First, we need an instance of a private inner-class found in MethodHandles.
-    Constructor<MethodHandles.Lookup> constructor =
-        MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
-    constructor.setAccessible(true);
-
+    final Class<?> declaringClass = method.getDeclaringClass();
+    MethodHandles.Lookup lookup;
+    try {
+      // Java 9+: MethodHandles.privateLookupIn(declaringClass, lookup())
+      Method privateLookupIn =
+          MethodHandles.class.getMethod(
+              "privateLookupIn", Class.class, MethodHandles.Lookup.class);
+      lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, declaringClass, LOOKUP);
+    } catch (NoSuchMethodException e) {
+      // Java 8: we need an instance of a private inner-class found in MethodHandles.
+      Constructor<MethodHandles.Lookup> constructor =
+          MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+      constructor.setAccessible(true);
+      lookup = constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE);
+    }
     // Now we need to lookup and invoke special the default method on the interface
     // class.
-    final Class<?> declaringClass = method.getDeclaringClass();
-    Object result =
-        constructor
-            .newInstance(declaringClass, MethodHandles.Lookup.PRIVATE)
-            .unreflectSpecial(method, declaringClass)
-            .bindTo(proxy)
-            .invokeWithArguments(args);
-    return result;
+    return lookup.unreflectSpecial(method, declaringClass);
   }
 
   private Object writeReplace() {
@@ -247,29 +281,62 @@ public class MapperInvocationHandler<E> implements InvocationHandler, Serializab
 
   static Map<String, Object> fromValueProviderMap(Map v, boolean mutable) {
     if (v instanceof ValueProviderMap) {
-      Map<String, Object> m = new HashMap<String, Object>(v.size());
+      ValueProviderMap vpm = (ValueProviderMap) v;
+      EntityValueMap m = new EntityValueMap(vpm.getEntity());
       Set<String> keys = v.keySet();
       for (String key : keys) {
         Object value = v.get(key);
-        if (value != null && mutable) {
-          if (ImmutableList.class.isAssignableFrom(value.getClass())) {
-            m.put(key, new ArrayList((List) value));
-          } else if (ImmutableMap.class.isAssignableFrom(value.getClass())) {
-            m.put(key, new HashMap((Map) value));
-          } else if (ImmutableSet.class.isAssignableFrom(value.getClass())) {
-            m.put(key, new HashSet((Set) value));
-          } else {
-            m.put(key, value);
-          }
-        } else {
-          m.put(key, value);
-        }
+        m.put(key, mutable ? CopyOnWrite.wrap(value) : value);
       }
+      // Taken now, the row is dropped along with the ValueProviderMap.
+      m.setFingerprint(vpm.fingerprint());
       return m;
     }
     return v;
   }
 
+  /**
+   * The fingerprint of the row the entity was loaded from, null when it was not loaded from a row
+   * or isn't an entity.
+   */
+  public static EntityFingerprint fingerprintOf(Object entity) {
+    Map<String, Object> src = null;
+    if (entity instanceof GeneratedEntity) {
+      src = GeneratedEntity.sourceOf((GeneratedEntity) entity);
+    } else if (entity != null && Proxy.isProxyClass(entity.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(entity);
+      if (handler instanceof MapperInvocationHandler) {
+        src = ((MapperInvocationHandler<?>) handler).src;
+      }
+    }
+    if (src instanceof ValueProviderMap) {
+      return ((ValueProviderMap) src).fingerprint();
+    }
+    if (src instanceof EntityValueMap) {
+      return ((EntityValueMap) src).getFingerprint();
+    }
+    return null;
+  }
+
+  /**
+   * Makes the set of the properties read of an entity which was just made, and isn't shared yet,
+   * safe to copy while the entity is still being read. A projection profile copies the read sets of
+   * the entities it samples from the thread of a later select.
+   */
+  public static void shareReadSet(Object entity) {
+    if (entity instanceof GeneratedEntity) {
+      ((GeneratedEntity) entity).shareReadSet();
+    } else if (entity != null && Proxy.isProxyClass(entity.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(entity);
+      if (handler instanceof MapperInvocationHandler) {
+        MapperInvocationHandler<?> mapper = (MapperInvocationHandler<?>) handler;
+        Set<String> shared = ConcurrentHashMap.newKeySet();
+        shared.addAll(mapper.read);
+        mapper.read = shared;
+      }
+    }
+  }
+
   static class SerializationProxy<E> implements Serializable {
 
     private static final long serialVersionUID = -5617583940055969353L;
@@ -0,0 +1,38 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.core.reflect;
+
+import net.helenus.core.Getter;
+import net.helenus.support.DslPropertyException;
+
+/** A {@link Getter} for a property node that is already known, it never needs resolving. */
+public final class PropertyNodeGetter<V> implements Getter<V> {
+
+  private final HelenusPropertyNode node;
+
+  public PropertyNodeGetter(HelenusPropertyNode node) {
+    this.node = node;
+  }
+
+  public HelenusPropertyNode getPropertyNode() {
+    return node;
+  }
+
+  @Override
+  public V get() {
+    throw new DslPropertyException(node);
+  }
+}
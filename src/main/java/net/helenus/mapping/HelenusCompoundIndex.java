@@ -0,0 +1,160 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Function;
+import net.helenus.mapping.annotation.CompoundIndex;
+import net.helenus.mapping.type.AbstractDataType;
+import net.helenus.mapping.type.DTDataType;
+import net.helenus.support.HelenusMappingException;
+
+/**
+ * A {@link CompoundIndex} of a table: the hidden bigint column holding the hash of the values of
+ * its properties, and the secondary index on that column.
+ */
+public final class HelenusCompoundIndex {
+
+  public static final String COLUMN_PREFIX = "__idx_";
+
+  private final HelenusEntity entity;
+  private final List<HelenusProperty> properties;
+  private final DataType[] types;
+  private final IdentityName columnName;
+  private final IdentityName indexName;
+
+  HelenusCompoundIndex(HelenusEntity entity, CompoundIndex annotation) {
+    this.entity = entity;
+
+    String[] names = annotation.value();
+    if (names.length < 2) {
+      throw new HelenusMappingException(
+          "compound index needs two or more properties in " + entity.getMappingInterface());
+    }
+    ImmutableList.Builder<HelenusProperty> properties = ImmutableList.builder();
+    this.types = new DataType[names.length];
+    StringBuilder defaultName = new StringBuilder(COLUMN_PREFIX);
+    for (int i = 0; i < names.length; i++) {
+      HelenusProperty prop = findProperty(entity, names[i]);
+      AbstractDataType type = prop.getDataType();
+      if (!(type instanceof DTDataType)
+          || type.isCollectionType()
+          || ((DTDataType) type).getDataType().getName() == DataType.Name.COUNTER) {
+        throw new HelenusMappingException(
+            "only non collection, non counter properties can be in a compound index, found '"
+                + names[i]
+                + "' in "
+                + entity.getMappingInterface());
+      }
+      properties.add(prop);
+      types[i] = ((DTDataType) type).getDataType();
+      defaultName.append(i == 0 ? "" : "_").append(prop.getColumnName().getName());
+    }
+    this.properties = properties.build();
+
+    String name = annotation.name().isEmpty() ? defaultName.toString() : annotation.name();
+    this.columnName = IdentityName.of(name, true);
+    String index = name.startsWith(COLUMN_PREFIX) ? name.substring(COLUMN_PREFIX.length()) : name;
+    this.indexName = IdentityName.of(entity.getName().getName() + "_idx_" + index, false);
+  }
+
+  private static HelenusProperty findProperty(HelenusEntity entity, String name) {
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      if (prop.getPropertyName().equals(name)) {
+        return prop;
+      }
+    }
+    throw new HelenusMappingException(
+        "unknown property '" + name + "' in compound index of " + entity.getMappingInterface());
+  }
+
+  public HelenusEntity getEntity() {
+    return entity;
+  }
+
+  public List<HelenusProperty> getProperties() {
+    return properties;
+  }
+
+  /** True when the property, of this entity, is one of the indexed properties. */
+  public boolean indexes(HelenusProperty prop) {
+    for (HelenusProperty p : properties) {
+      if (p.getPropertyName().equals(prop.getPropertyName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The hidden column, always quoted as it starts with an underscore. */
+  public IdentityName getColumnName() {
+    return columnName;
+  }
+
+  public IdentityName getIndexName() {
+    return indexName;
+  }
+
+  public DataType getDataType() {
+    return DataType.bigint();
+  }
+
+  /**
+   * The hash of the values, as prepared for a statement, of the properties; null when any of them
+   * is null, such rows are not indexed.
+   *
+   * @param values the prepared value of each of the {@link #getProperties()}
+   */
+  public Long hash(Function<HelenusProperty, Object> values) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (int i = 0; i < types.length; i++) {
+      Object value = values.apply(properties.get(i));
+      if (value == null) {
+        return null;
+      }
+      ByteBuffer bytes =
+          CodecRegistry.DEFAULT_INSTANCE
+              .codecFor(types[i], value)
+              .serialize(value, ProtocolVersion.NEWEST_SUPPORTED);
+      // Length prefixed, so that values can't run into each other.
+      hasher.putInt(bytes.remaining());
+      if (bytes.hasArray()) {
+        hasher.putBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+      } else {
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.duplicate().get(copy);
+        hasher.putBytes(copy);
+      }
+    }
+    return hasher.hash().asLong();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder str = new StringBuilder(columnName.getName()).append('(');
+    for (int i = 0; i < properties.size(); i++) {
+      str.append(i == 0 ? "" : ", ").append(properties.get(i).getPropertyName());
+    }
+    return str.append(')').toString();
+  }
+}
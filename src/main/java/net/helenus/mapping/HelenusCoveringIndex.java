@@ -0,0 +1,171 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping;
+
+import com.datastax.driver.core.DataType;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import net.helenus.mapping.annotation.CoveringIndex;
+import net.helenus.mapping.type.AbstractDataType;
+import net.helenus.mapping.type.DTDataType;
+import net.helenus.support.HelenusMappingException;
+
+/**
+ * A {@link CoveringIndex} of a table: the lookup table keyed by the partition keys and clustering
+ * columns of the index, then by the rest of the primary key of the table, holding the covered
+ * columns.
+ */
+public final class HelenusCoveringIndex {
+
+  private final HelenusEntity entity;
+  private final IdentityName tableName;
+  private final List<HelenusProperty> partitionKeys;
+  private final List<HelenusProperty> clusteringColumns;
+  private final List<HelenusProperty> columns;
+
+  HelenusCoveringIndex(HelenusEntity entity, CoveringIndex annotation) {
+    this.entity = entity;
+
+    List<HelenusProperty> partitionKeys = properties(entity, annotation.partitionKeys());
+    if (partitionKeys.isEmpty()) {
+      throw new HelenusMappingException(
+          "covering index needs partition keys in " + entity.getMappingInterface());
+    }
+    List<HelenusProperty> clusteringColumns = new ArrayList<HelenusProperty>();
+    for (HelenusProperty prop : properties(entity, annotation.clusteringColumns())) {
+      if (!contains(partitionKeys, prop)) {
+        clusteringColumns.add(prop);
+      }
+    }
+    // The primary key of the table keeps a lookup row per row.
+    for (HelenusProperty prop : entity.getOrderedProperties()) {
+      switch (prop.getColumnType()) {
+        case PARTITION_KEY:
+        case CLUSTERING_COLUMN:
+          if (!contains(partitionKeys, prop) && !contains(clusteringColumns, prop)) {
+            clusteringColumns.add(prop);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    List<HelenusProperty> columns = new ArrayList<HelenusProperty>(partitionKeys);
+    columns.addAll(clusteringColumns);
+    for (HelenusProperty prop : properties(entity, annotation.covering())) {
+      if (!contains(columns, prop)) {
+        columns.add(prop);
+      }
+    }
+    for (HelenusProperty prop : columns) {
+      boolean key = contains(partitionKeys, prop) || contains(clusteringColumns, prop);
+      AbstractDataType type = prop.getDataType();
+      if (!(type instanceof DTDataType)
+          || (key && type.isCollectionType())
+          || ((DTDataType) type).getDataType().getName() == DataType.Name.COUNTER) {
+        throw new HelenusMappingException(
+            "only non counter properties, and non collection keys, can be in a covering index,"
+                + " found '"
+                + prop.getPropertyName()
+                + "' in "
+                + entity.getMappingInterface());
+      }
+    }
+    this.partitionKeys = ImmutableList.copyOf(partitionKeys);
+    this.clusteringColumns = ImmutableList.copyOf(clusteringColumns);
+    this.columns = ImmutableList.copyOf(columns);
+
+    String name = annotation.name();
+    if (name.isEmpty()) {
+      StringBuilder str = new StringBuilder(entity.getName().getName()).append("_by");
+      partitionKeys.forEach(p -> str.append('_').append(p.getColumnName().getName()));
+      name = str.toString();
+    }
+    this.tableName = IdentityName.of(name, entity.getName().isForceQuote());
+  }
+
+  private static List<HelenusProperty> properties(HelenusEntity entity, String[] names) {
+    List<HelenusProperty> properties = new ArrayList<HelenusProperty>(names.length);
+    for (String name : names) {
+      if (name.trim().isEmpty()) {
+        continue;
+      }
+      HelenusProperty found = null;
+      for (HelenusProperty prop : entity.getOrderedProperties()) {
+        if (prop.getPropertyName().equals(name)) {
+          found = prop;
+        }
+      }
+      if (found == null) {
+        throw new HelenusMappingException(
+            "unknown property '" + name + "' in covering index of " + entity.getMappingInterface());
+      }
+      if (!contains(properties, found)) {
+        properties.add(found);
+      }
+    }
+    return properties;
+  }
+
+  private static boolean contains(List<HelenusProperty> properties, HelenusProperty prop) {
+    for (HelenusProperty p : properties) {
+      if (p.getPropertyName().equals(prop.getPropertyName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public HelenusEntity getEntity() {
+    return entity;
+  }
+
+  public IdentityName getTableName() {
+    return tableName;
+  }
+
+  public List<HelenusProperty> getPartitionKeys() {
+    return partitionKeys;
+  }
+
+  /** The clustering columns of the index followed by the rest of the table's primary key. */
+  public List<HelenusProperty> getClusteringColumns() {
+    return clusteringColumns;
+  }
+
+  /** The keys, then the covered columns. */
+  public List<HelenusProperty> getColumns() {
+    return columns;
+  }
+
+  public boolean isKey(HelenusProperty prop) {
+    return contains(partitionKeys, prop) || contains(clusteringColumns, prop);
+  }
+
+  public boolean covers(HelenusProperty prop) {
+    return contains(columns, prop);
+  }
+
+  public DataType getDataType(HelenusProperty prop) {
+    return ((DTDataType) prop.getDataType()).getDataType();
+  }
+
+  @Override
+  public String toString() {
+    return tableName.toCql();
+  }
+}
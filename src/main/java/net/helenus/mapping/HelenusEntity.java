@@ -35,5 +35,9 @@ public interface HelenusEntity {
 
   List<Facet> getFacets();
 
+  List<HelenusCompoundIndex> getCompoundIndexes();
+
+  List<HelenusCoveringIndex> getCoveringIndexes();
+
   boolean isDraftable();
 }
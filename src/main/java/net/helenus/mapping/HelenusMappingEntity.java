@@ -44,6 +44,8 @@ public final class HelenusMappingEntity implements HelenusEntity {
   private final ImmutableMap<String, HelenusProperty> props;
   private final ImmutableList<HelenusProperty> orderedProps;
   private final List<Facet> facets;
+  private final List<HelenusCompoundIndex> compoundIndexes;
+  private final List<HelenusCoveringIndex> coveringIndexes;
 
   public HelenusMappingEntity(Class<?> iface, Metadata metadata) {
     this(iface, autoDetectType(iface), metadata);
@@ -110,6 +112,42 @@ public final class HelenusMappingEntity implements HelenusEntity {
 
     validateOrdinals();
 
+    // Compound indexes
+    ImmutableList.Builder<HelenusCompoundIndex> compoundIndexesBuilder = ImmutableList.builder();
+    CompoundIndex[] compoundIndexAnnotations =
+        iface.getDeclaredAnnotationsByType(CompoundIndex.class);
+    if (compoundIndexAnnotations.length > 0 && metadata != null) {
+      if (type != HelenusEntityType.TABLE) {
+        throw new HelenusMappingException("compound indexes are only supported on tables " + iface);
+      }
+      for (CompoundIndex annotation : compoundIndexAnnotations) {
+        HelenusCompoundIndex index = new HelenusCompoundIndex(this, annotation);
+        String column = index.getColumnName().getName();
+        if (orderedProps.stream().anyMatch(p -> p.getColumnName().getName().equals(column))) {
+          throw new HelenusMappingException(
+              "compound index column " + column + " is already a column of " + iface);
+        }
+        compoundIndexesBuilder.add(index);
+      }
+    }
+    this.compoundIndexes = compoundIndexesBuilder.build();
+
+    // Covering indexes
+    CoveringIndex coveringIndex = iface.getDeclaredAnnotation(CoveringIndex.class);
+    if (coveringIndex != null && metadata != null) {
+      if (type != HelenusEntityType.TABLE) {
+        throw new HelenusMappingException("covering indexes are only supported on tables " + iface);
+      }
+      HelenusCoveringIndex index = new HelenusCoveringIndex(this, coveringIndex);
+      if (index.getTableName().getName().equals(name.getName())) {
+        throw new HelenusMappingException(
+            "covering index " + index + " can't have the name of its table " + iface);
+      }
+      this.coveringIndexes = ImmutableList.of(index);
+    } else {
+      this.coveringIndexes = ImmutableList.of();
+    }
+
     // Caching
     cacheable = (null != iface.getDeclaredAnnotation(Cacheable.class));
 
@@ -253,6 +291,16 @@ public final class HelenusMappingEntity implements HelenusEntity {
     return facets;
   }
 
+  @Override
+  public List<HelenusCompoundIndex> getCompoundIndexes() {
+    return compoundIndexes;
+  }
+
+  @Override
+  public List<HelenusCoveringIndex> getCoveringIndexes() {
+    return coveringIndexes;
+  }
+
   @Override
   public IdentityName getName() {
     return name;
@@ -21,14 +21,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import javax.validation.Constraint;
 import javax.validation.ConstraintValidator;
 import net.helenus.core.Getter;
 import net.helenus.core.Helenus;
 import net.helenus.core.reflect.*;
 import net.helenus.mapping.annotation.*;
-import net.helenus.support.DslPropertyException;
 import net.helenus.support.HelenusMappingException;
 
 public final class MappingUtil {
@@ -280,28 +278,34 @@ public final class MappingUtil {
 
   public static HelenusPropertyNode resolveMappingProperty(Getter<?> getter) {
 
-    try {
-      Object childDsl = getter.get();
+    if (getter instanceof PropertyNodeGetter) {
+      return ((PropertyNodeGetter<?>) getter).getPropertyNode();
+    }
+
+    Object[] result = new Object[1];
+    HelenusPropertyNode node = DslPropertyCapture.capture(getter, result);
+
+    if (node == null) {
+      Object childDsl = result[0];
 
       if (childDsl instanceof DslExportable) {
         DslExportable e = (DslExportable) childDsl;
-        return e.getParentDslHelenusPropertyNode();
+        node = e.getParentDslHelenusPropertyNode();
       } else if (childDsl instanceof MapDsl) {
         MapDsl mapDsl = (MapDsl) childDsl;
-        return mapDsl.getParent();
+        node = mapDsl.getParent();
       } else if (childDsl instanceof ListDsl) {
         ListDsl listDsl = (ListDsl) childDsl;
-        return listDsl.getParent();
+        node = listDsl.getParent();
       } else if (childDsl instanceof SetDsl) {
         SetDsl setDsl = (SetDsl) childDsl;
-        return setDsl.getParent();
+        node = setDsl.getParent();
+      } else {
+        throw new HelenusMappingException("getter must reference to the dsl object " + getter);
       }
-
-      throw new HelenusMappingException("getter must reference to the dsl object " + getter);
-
-    } catch (DslPropertyException e) {
-      return e.getPropertyNode();
     }
+
+    return node;
   }
 
   private static void rethrow(Throwable cause) throws CloneNotSupportedException {
@@ -321,29 +325,28 @@ public final class MappingUtil {
 
   public static boolean compareMaps(MapExportable me, Map<String, Object> m2) {
     Map<String, Object> m1 = me.toMap();
-    List<String> matching =
-        m2.entrySet()
-            .stream()
-            .filter(e -> !e.getKey().matches("^_.*_(ttl|writeTime)$"))
-            .filter(
-                e -> {
-                  String k = e.getKey();
-                  if (m1.containsKey(k)) {
-                    Object o1 = e.getValue();
-                    Object o2 = m1.get(k);
-                    if (o1 == o2 || o1.equals(o2)) return true;
-                  }
-                  return false;
-                })
-            .map(e -> e.getKey())
-            .collect(Collectors.toList());
-    List<String> divergent =
-        m1.entrySet()
-            .stream()
-            .filter(e -> !e.getKey().matches("^_.*_(ttl|writeTime)$"))
-            .filter(e -> !matching.contains(e.getKey()))
-            .map(e -> e.getKey())
-            .collect(Collectors.toList());
-    return divergent.size() > 0 ? false : true;
+    for (Map.Entry<String, Object> e : m1.entrySet()) {
+      String k = e.getKey();
+      if (isTtlOrWriteTimeKey(k)) {
+        continue;
+      }
+      if (!m2.containsKey(k)) {
+        return false;
+      }
+      Object o1 = m2.get(k);
+      Object o2 = e.getValue();
+      if (o1 != o2 && (o1 == null || !o1.equals(o2))) {
+        return false;
+      }
+    }
+    return true;
   }
+
+  // Same keys as the pattern ^_.*_(ttl|writeTime)$, without running a regex per key.
+  private static boolean isTtlOrWriteTimeKey(String key) {
+    return key.startsWith("_")
+        && ((key.length() >= 5 && key.endsWith("_ttl"))
+            || (key.length() >= 11 && key.endsWith("_writeTime")));
+  }
+
 }
@@ -0,0 +1,60 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * CompoundIndex annotation is using under the interface with @Table annotation to index a
+ * combination of columns.
+ *
+ * <p>Cassandra indexes single columns, so a hidden column holding a hash of the values of all the
+ * columns is added to the table and indexed. It is maintained by every insert and update of the
+ * columns, and a select filtering on each of the columns by equality uses it instead of
+ * filtering on the individual columns.
+ *
+ * <p>Only non collection columns can be part of a compound index. An update setting some of them
+ * must also set or filter on the others, even when updating a pojo or a draft, whose values may no
+ * longer be those of the row.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = {ElementType.TYPE})
+@Repeatable(CompoundIndex.List.class)
+public @interface CompoundIndex {
+
+  /**
+   * The properties of the entity to index, by name.
+   *
+   * @return array of the string names of the properties.
+   */
+  String[] value();
+
+  /**
+   * Defined the name of the hidden column. By default the column names of the properties joined by
+   * underscores, prefixed with "__idx_".
+   *
+   * @return name of the hidden column
+   */
+  String name() default "";
+
+  @Documented
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(value = {ElementType.TYPE})
+  @interface List {
+    CompoundIndex[] value();
+  }
+}
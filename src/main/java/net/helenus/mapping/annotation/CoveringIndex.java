@@ -3,17 +3,19 @@ package net.helenus.mapping.annotation;
 import java.lang.annotation.*;
 
 /**
- * CoveringIndex annotation is using under the specific column or method in entity interface
- * with @Table annotation.
+ * CoveringIndex annotation is using under the interface with @Table annotation to look rows up by
+ * other columns than their primary key.
  *
- * <p>A corresponding materialized view will be created based on the underline @Table for the
- * specific column.
+ * <p>A lookup table is created holding, for each row of the @Table, the partition keys and
+ * clustering columns of the index, the remaining primary key columns of the @Table (as clustering
+ * columns) and the covered columns. Inserts, updates and deletes of the @Table write the lookup
+ * table in the same logged batch, and a select filtering by equality on all of the partition keys
+ * of the index, and only reading columns of the lookup table, is sent to the lookup table. Unlike a
+ * secondary index this is a single partition read, and unlike a materialized view it is maintained
+ * by the client.
  *
- * <p>This is useful when you need to perform IN or SORT/ORDER-BY queries and to do so you'll need
- * different materialized table on disk in Cassandra.
- *
- * <p>For each @Table annotated interface Helenus will create/update/verify Cassandra Materialized
- * Views and some indexes if needed on startup.
+ * <p>Updates and deletes which can't tell the current index key of the row read it first. An
+ * insert is taken to create the row, changing the index key of an existing row is an update.
  */
 @Inherited
 @Retention(RetentionPolicy.RUNTIME)
@@ -21,7 +23,8 @@ import java.lang.annotation.*;
 public @interface CoveringIndex {
 
   /**
-   * Defined the name of the index. By default the entity name with column name as suffix.
+   * Defined the name of the lookup table. By default the entity name with "_by_" and the partition
+   * key column names as suffix.
    *
    * @return name of the covering index
    */
@@ -0,0 +1,209 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import net.helenus.core.reflect.GeneratedEntitySource;
+import net.helenus.mapping.annotation.Transient;
+import net.helenus.support.PackageUtil;
+
+/**
+ * Build time counterpart of {@link net.helenus.core.reflect.GeneratedMapperInstantiator}. For each
+ * {@code @Table}, {@code @UDT}, {@code @Tuple} and {@code @MaterializedView} interface it generates
+ * the entity implementation, so no class is generated at runtime, and it records the interface in
+ * the {@link PackageUtil#ENTITY_INDEX} resource which {@code SessionInitializer.addPackage} reads
+ * instead of scanning the classpath.
+ *
+ * <p>The DSL implementations and the property metadata ({@code HelenusMappingEntity}) are not
+ * generated, they are still built by reflection on first use of each interface.
+ *
+ * <p>Enable it with {@code -processor net.helenus.mapping.processor.EntityProcessor} (or the
+ * {@code annotationProcessors} of the maven-compiler-plugin).
+ */
+@SupportedAnnotationTypes({
+  "net.helenus.mapping.annotation.Table",
+  "net.helenus.mapping.annotation.UDT",
+  "net.helenus.mapping.annotation.Tuple",
+  "net.helenus.mapping.annotation.MaterializedView"
+})
+public class EntityProcessor extends AbstractProcessor {
+
+  private final Set<String> index = new TreeSet<String>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      writeIndex();
+      return false;
+    }
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() != ElementKind.INTERFACE) {
+          continue;
+        }
+        TypeElement iface = (TypeElement) element;
+        String binaryName = processingEnv.getElementUtils().getBinaryName(iface).toString();
+        if (index.add(binaryName) && isAccessible(iface)) {
+          generate(iface, binaryName);
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isAccessible(TypeElement type) {
+    for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement iface, String binaryName) {
+    GeneratedEntitySource source =
+        new GeneratedEntitySource(binaryName, iface.getQualifiedName().toString());
+
+    List<ExecutableElement> methods =
+        ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(iface));
+    for (ExecutableElement method : methods) {
+      TypeElement owner = (TypeElement) method.getEnclosingElement();
+      if (owner.getKind() != ElementKind.INTERFACE
+          || method.getModifiers().contains(Modifier.STATIC)
+          || method.getModifiers().contains(Modifier.PRIVATE)) {
+        continue;
+      }
+      if (method.isDefault() && method.getAnnotation(Transient.class) != null) {
+        continue;
+      }
+      String name = method.getSimpleName().toString();
+      List<? extends VariableElement> parameters = method.getParameters();
+      String[] parameterTypes = new String[parameters.size()];
+      for (int i = 0; i < parameterTypes.length; i++) {
+        parameterTypes[i] = typeName(parameters.get(i).asType());
+      }
+      if (GeneratedEntitySource.isImplementedByBase(name, parameterTypes)) {
+        continue;
+      }
+
+      TypeMirror returnType = method.getReturnType();
+      String type = typeName(returnType);
+      if (parameterTypes.length != 0 || returnType.getKind() == TypeKind.VOID) {
+        source.invalid(name, type, owner.getQualifiedName() + "." + method, parameterTypes);
+      } else if ("dsl".equals(name)) {
+        source.dsl(name, type);
+      } else {
+        String wrapper = null;
+        if (returnType.getKind().isPrimitive()) {
+          wrapper =
+              processingEnv
+                  .getTypeUtils()
+                  .boxedClass((PrimitiveType) returnType)
+                  .getQualifiedName()
+                  .toString();
+        }
+        source.getter(name, type, wrapper, method.isDefault());
+      }
+    }
+
+    try {
+      JavaFileObject file =
+          processingEnv.getFiler().createSourceFile(source.getQualifiedName(), iface);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source.toString());
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "unable to generate " + e.getMessage(), iface);
+    }
+  }
+
+  private String typeName(TypeMirror type) {
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  private void writeIndex() {
+    if (index.isEmpty()) {
+      return;
+    }
+    // Keep the entries of a previous, incremental, compilation.
+    try {
+      FileObject existing =
+          processingEnv
+              .getFiler()
+              .getResource(StandardLocation.CLASS_OUTPUT, "", PackageUtil.ENTITY_INDEX);
+      try (BufferedReader reader =
+          new BufferedReader(
+              new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (!line.trim().isEmpty()) {
+            index.add(line.trim());
+          }
+        }
+      }
+    } catch (IOException e) {
+      // No previous index.
+    }
+    try {
+      FileObject file =
+          processingEnv
+              .getFiler()
+              .createResource(StandardLocation.CLASS_OUTPUT, "", PackageUtil.ENTITY_INDEX);
+      try (Writer writer = file.openWriter()) {
+        for (String name : index) {
+          writer.write(name);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "unable to write " + PackageUtil.ENTITY_INDEX);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.value;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TypeCodec;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the serialized form of a list, set or map column. Immutable reads build the Guava
+ * immutable collection directly from the elements rather than copying the collection the driver
+ * decodes; mutable reads produce the same collection types as the driver's codecs.
+ */
+final class CollectionDecoder {
+
+  private static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.NEWEST_SUPPORTED;
+
+  private final DataType.Name kind;
+  private final TypeCodec<Object> elementCodec;
+  private final TypeCodec<Object> valueCodec;
+
+  CollectionDecoder(DataType type) {
+    List<DataType> typeArguments = type.getTypeArguments();
+    this.kind = type.getName();
+    this.elementCodec = CodecRegistry.DEFAULT_INSTANCE.codecFor(typeArguments.get(0));
+    this.valueCodec =
+        kind == DataType.Name.MAP
+            ? CodecRegistry.DEFAULT_INSTANCE.<Object>codecFor(typeArguments.get(1))
+            : null;
+  }
+
+  Object decode(ByteBuffer bytes, boolean immutable) {
+    ByteBuffer input = bytes.duplicate();
+    int size = input.remaining() == 0 ? 0 : input.getInt();
+    switch (kind) {
+      case MAP:
+        if (immutable) {
+          ImmutableMap.Builder<Object, Object> builder = ImmutableMap.builder();
+          for (int i = 0; i < size; i++) {
+            builder.put(read(input, elementCodec), read(input, valueCodec));
+          }
+          return builder.build();
+        }
+        Map<Object, Object> map = new LinkedHashMap<Object, Object>(size * 2);
+        for (int i = 0; i < size; i++) {
+          map.put(read(input, elementCodec), read(input, valueCodec));
+        }
+        return map;
+      case SET:
+        return readElements(
+            input,
+            size,
+            immutable ? ImmutableSet.<Object>builder() : null,
+            immutable ? null : new LinkedHashSet<Object>(size * 2));
+      default:
+        return readElements(
+            input,
+            size,
+            immutable ? ImmutableList.<Object>builder() : null,
+            immutable ? null : new ArrayList<Object>(size));
+    }
+  }
+
+  private Object readElements(
+      ByteBuffer input,
+      int size,
+      ImmutableCollection.Builder<Object> builder,
+      Collection<Object> collection) {
+    for (int i = 0; i < size; i++) {
+      Object element = read(input, elementCodec);
+      if (builder != null) {
+        builder.add(element);
+      } else {
+        collection.add(element);
+      }
+    }
+    return builder != null ? builder.build() : collection;
+  }
+
+  private static Object read(ByteBuffer input, TypeCodec<Object> codec) {
+    int length = input.getInt();
+    if (length < 0) {
+      return null;
+    }
+    ByteBuffer value = input.slice();
+    value.limit(length);
+    input.position(input.position() + length);
+    return codec.deserialize(value, PROTOCOL_VERSION);
+  }
+}
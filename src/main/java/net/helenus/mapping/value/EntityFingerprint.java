@@ -0,0 +1,92 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.value;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
+
+/**
+ * Hashes of the serialized column values an entity was loaded with. A write can compare the value
+ * it is about to send against them and leave out the columns which would not change.
+ */
+public final class EntityFingerprint {
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  private static final long NULL = 0L;
+
+  private final PropertyLayout layout;
+  // Indexed by ordinal, a null type means the column wasn't loaded.
+  private final DataType[] types;
+  private final long[] hashes;
+  private volatile boolean stale;
+
+  EntityFingerprint(PropertyLayout layout, DataType[] types, long[] hashes) {
+    this.layout = layout;
+    this.types = types;
+    this.hashes = hashes;
+  }
+
+  public HelenusEntity getEntity() {
+    return layout.entity;
+  }
+
+  /** Called once the row has been written, from then on every value counts as changed. */
+  public void invalidate() {
+    stale = true;
+  }
+
+  /**
+   * True when the value, as prepared for the statement, serializes to the bytes the property was
+   * loaded with. False whenever that can't be told.
+   */
+  public boolean isUnchanged(HelenusProperty property, Object value) {
+    int ordinal = layout.ordinal(property.getPropertyName());
+    if (stale || ordinal < 0 || types[ordinal] == null || layout.properties[ordinal] != property) {
+      return false;
+    }
+    try {
+      ByteBuffer bytes =
+          value == null
+              ? null
+              : CodecRegistry.DEFAULT_INSTANCE
+                  .codecFor(types[ordinal], value)
+                  .serialize(value, ProtocolVersion.NEWEST_SUPPORTED);
+      return hash(bytes) == hashes[ordinal];
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  static long hash(ByteBuffer bytes) {
+    if (bytes == null) {
+      return NULL;
+    }
+    if (bytes.hasArray()) {
+      return HASH.hashBytes(
+              bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining())
+          .asLong();
+    }
+    byte[] copy = new byte[bytes.remaining()];
+    bytes.duplicate().get(copy);
+    return HASH.hashBytes(copy).asLong();
+  }
+}
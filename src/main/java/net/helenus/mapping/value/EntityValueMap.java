@@ -0,0 +1,285 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.value;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import net.helenus.mapping.HelenusEntity;
+
+/**
+ * The mutable backing map of an entity. Property values, TTLs and write times are held in a single
+ * array of slots indexed by the ordinal of the property in {@link
+ * HelenusEntity#getOrderedProperties()} (values first, then TTLs, then write times); only keys
+ * which are not derived from a property fall back to a hash map. It is serialized as a plain {@link
+ * HashMap}.
+ */
+public final class EntityValueMap extends AbstractMap<String, Object> implements Serializable {
+  private static final long serialVersionUID = 8327521460313376474L;
+
+  private static final Object ABSENT = new Object();
+
+  private final transient PropertyLayout layout;
+  private final transient Object[] slots;
+  private transient Map<String, Object> extra;
+  private transient int size;
+  private transient EntrySet entrySet;
+  private transient EntityFingerprint fingerprint;
+
+  public EntityValueMap(HelenusEntity entity) {
+    this.layout = PropertyLayout.of(entity);
+    this.slots = new Object[layout.keys.length];
+    Arrays.fill(slots, ABSENT);
+  }
+
+  public EntityValueMap(HelenusEntity entity, Map<String, Object> values) {
+    this(entity);
+    putAll(values);
+  }
+
+  public EntityValueMap(EntityValueMap other) {
+    this.layout = other.layout;
+    this.slots = other.slots.clone();
+    this.size = other.size;
+    this.fingerprint = other.fingerprint;
+    if (other.extra != null) {
+      this.extra = new HashMap<String, Object>(other.extra);
+    }
+  }
+
+  /** The fingerprint of the row these values were loaded from, if any. */
+  public EntityFingerprint getFingerprint() {
+    return fingerprint;
+  }
+
+  public void setFingerprint(EntityFingerprint fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int slot = layout.slot(key);
+    if (slot >= 0) {
+      Object value = slots[slot];
+      return value == ABSENT ? null : value;
+    }
+    return extra == null ? null : extra.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    int slot = layout.slot(key);
+    if (slot >= 0) {
+      return slots[slot] != ABSENT;
+    }
+    return extra != null && extra.containsKey(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int slot = layout.slot(key);
+    if (slot >= 0) {
+      Object previous = slots[slot];
+      slots[slot] = value;
+      if (previous == ABSENT) {
+        size++;
+        return null;
+      }
+      return previous;
+    }
+    if (extra == null) {
+      extra = new HashMap<String, Object>();
+    }
+    int before = extra.size();
+    Object previous = extra.put(key, value);
+    size += extra.size() - before;
+    return previous;
+  }
+
+  /** Sets the value of the property at this ordinal of the entity's layout. */
+  void set(int ordinal, Object value) {
+    if (slots[ordinal] == ABSENT) {
+      size++;
+    }
+    slots[ordinal] = value;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    int slot = layout.slot(key);
+    if (slot >= 0) {
+      return clearSlot(slot);
+    }
+    if (extra == null || !extra.containsKey(key)) {
+      return null;
+    }
+    size--;
+    return extra.remove(key);
+  }
+
+  private Object clearSlot(int slot) {
+    Object previous = slots[slot];
+    if (previous == ABSENT) {
+      return null;
+    }
+    slots[slot] = ABSENT;
+    size--;
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(slots, ABSENT);
+    extra = null;
+    size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private Object writeReplace() {
+    return new HashMap<String, Object>(this);
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterator() {
+      return new Iterator<Map.Entry<String, Object>>() {
+        private int next = advance(0);
+        private int current = -1;
+        private Iterator<Map.Entry<String, Object>> extras;
+
+        private int advance(int from) {
+          while (from < slots.length && slots[from] == ABSENT) {
+            from++;
+          }
+          return from;
+        }
+
+        private Iterator<Map.Entry<String, Object>> extras() {
+          if (extras == null) {
+            extras =
+                extra == null
+                    ? Collections.<Map.Entry<String, Object>>emptyIterator()
+                    : extra.entrySet().iterator();
+          }
+          return extras;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < slots.length || extras().hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+          if (next < slots.length) {
+            current = next;
+            next = advance(next + 1);
+            return new SlotEntry(current);
+          }
+          current = -1;
+          if (!extras().hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return extras().next();
+        }
+
+        @Override
+        public void remove() {
+          if (current >= 0) {
+            clearSlot(current);
+            current = -1;
+          } else {
+            extras().remove();
+            size--;
+          }
+        }
+      };
+    }
+  }
+
+  private final class SlotEntry implements Map.Entry<String, Object> {
+    private final int slot;
+
+    SlotEntry(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getKey() {
+      return layout.keys[slot];
+    }
+
+    @Override
+    public Object getValue() {
+      Object value = slots[slot];
+      return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      Object previous = getValue();
+      slots[slot] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+      Object value = getValue();
+      return getKey().equals(e.getKey())
+          && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+    }
+
+    @Override
+    public int hashCode() {
+      Object value = getValue();
+      return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.value;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TupleType;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.UserType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.helenus.core.Helenus;
+import net.helenus.core.SessionRepository;
+import net.helenus.mapping.HelenusProperty;
+import net.helenus.mapping.MappingUtil;
+
+/**
+ * Decodes the serialized form of a UDT or tuple straight into the {@link EntityValueMap} of the
+ * mapped entity. The position of each field in the value, its codec and its read converter are
+ * worked out once, so decoding is a single pass over the bytes without the intermediate {@code
+ * UDTValue}/{@code TupleValue} and the per field lookups of {@link UDTColumnValueProvider} and
+ * {@link TupleColumnValueProvider}. Nested UDTs and tuples, and lists and sets of them, are decoded
+ * the same way.
+ */
+final class NestedEntityDecoder {
+
+  private static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.NEWEST_SUPPORTED;
+
+  private final Class<?> iface;
+  private final PropertyLayout layout;
+  // Indexed by the position of the field in the serialized value, null for unmapped fields.
+  private final FieldDecoder[] fields;
+
+  private NestedEntityDecoder(DataType type, Class<?> iface, SessionRepository repository) {
+    this.iface = iface;
+    this.layout = PropertyLayout.of(Helenus.entity(iface));
+
+    List<DataType> fieldTypes = new ArrayList<DataType>();
+    List<String> fieldNames = new ArrayList<String>();
+    if (type instanceof UserType) {
+      for (UserType.Field field : (UserType) type) {
+        fieldTypes.add(field.getType());
+        fieldNames.add(field.getName());
+      }
+    } else {
+      fieldTypes.addAll(((TupleType) type).getComponentTypes());
+    }
+
+    this.fields = new FieldDecoder[fieldTypes.size()];
+    for (int ordinal = 0; ordinal < layout.properties.length; ordinal++) {
+      HelenusProperty property = layout.properties[ordinal];
+      int position =
+          type instanceof UserType
+              ? positionOf(fieldNames, property)
+              : property.getOrdinal() < fields.length ? property.getOrdinal() : -1;
+      if (position >= 0) {
+        fields[position] =
+            new FieldDecoder(ordinal, fieldTypes.get(position), property, repository);
+      }
+    }
+  }
+
+  /**
+   * A decoder for the values of the property, or null when it is not a mapped UDT or tuple (nor a
+   * list or set of them).
+   */
+  static NestedEntityDecoder forProperty(
+      DataType type, HelenusProperty property, SessionRepository repository) {
+    Class<?> iface = property.getJavaType();
+    if (type.getName() == DataType.Name.LIST || type.getName() == DataType.Name.SET) {
+      Class<?>[] typeArguments = property.getDataType().getTypeArguments();
+      if (typeArguments.length == 0) {
+        return null;
+      }
+      iface = typeArguments[0];
+      type = type.getTypeArguments().get(0);
+    }
+    if (type instanceof UserType && MappingUtil.isUDT(iface)
+        || type instanceof TupleType && MappingUtil.isTuple(iface)) {
+      return new NestedEntityDecoder(type, iface, repository);
+    }
+    return null;
+  }
+
+  private static int positionOf(List<String> fieldNames, HelenusProperty property) {
+    String name = property.getColumnName().getName();
+    if (!property.getColumnName().isForceQuote()) {
+      name = name.toLowerCase();
+    }
+    return fieldNames.indexOf(name);
+  }
+
+  /** Decodes a value of the column {@link #forProperty} was given, a collection or an entity. */
+  Object decode(DataType type, ByteBuffer bytes, boolean immutable) {
+    switch (type.getName()) {
+      case LIST:
+        if (immutable) {
+          ImmutableList.Builder<Object> list = ImmutableList.builder();
+          readElements(bytes, list::add, immutable);
+          return list.build();
+        }
+        List<Object> list = new ArrayList<Object>();
+        readElements(bytes, list::add, immutable);
+        return list;
+      case SET:
+        if (immutable) {
+          ImmutableSet.Builder<Object> set = ImmutableSet.builder();
+          readElements(bytes, set::add, immutable);
+          return set.build();
+        }
+        Set<Object> set = new LinkedHashSet<Object>();
+        readElements(bytes, set::add, immutable);
+        return set;
+      default:
+        return decode(bytes, immutable);
+    }
+  }
+
+  private void readElements(ByteBuffer bytes, Consumer<Object> target, boolean immutable) {
+    ByteBuffer input = bytes.duplicate();
+    int size = input.getInt();
+    for (int i = 0; i < size; i++) {
+      target.accept(decode(readValue(input), immutable));
+    }
+  }
+
+  /** Decodes a single UDT or tuple value into an entity. */
+  Object decode(ByteBuffer bytes, boolean immutable) {
+    EntityValueMap map = new EntityValueMap(layout.entity);
+    for (int ordinal = 0; ordinal < layout.properties.length; ordinal++) {
+      map.set(ordinal, null);
+    }
+    ByteBuffer input = bytes.duplicate();
+    for (int position = 0; position < fields.length && input.hasRemaining(); position++) {
+      ByteBuffer value = readValue(input);
+      FieldDecoder field = fields[position];
+      if (field != null && value != null) {
+        map.set(field.ordinal, field.decode(value, immutable));
+      }
+    }
+    return Helenus.map(iface, map);
+  }
+
+  /** Reads a length prefixed value, null when the length is negative. */
+  private static ByteBuffer readValue(ByteBuffer input) {
+    int length = input.getInt();
+    if (length < 0) {
+      return null;
+    }
+    ByteBuffer value = input.slice();
+    value.limit(length);
+    input.position(input.position() + length);
+    return value;
+  }
+
+  private static final class FieldDecoder {
+    private final int ordinal;
+    private final DataType type;
+    private final NestedEntityDecoder nested;
+    private final TypeCodec<Object> codec;
+    private final Function<Object, Object> converter;
+
+    FieldDecoder(
+        int ordinal, DataType type, HelenusProperty property, SessionRepository repository) {
+      this.ordinal = ordinal;
+      this.type = type;
+      this.nested = forProperty(type, property, repository);
+      if (nested == null) {
+        this.codec = CodecRegistry.DEFAULT_INSTANCE.codecFor(type);
+        this.converter = property.getReadConverter(repository).orElse(null);
+      } else {
+        this.codec = null;
+        this.converter = null;
+      }
+    }
+
+    Object decode(ByteBuffer bytes, boolean immutable) {
+      if (nested != null) {
+        return nested.decode(type, bytes, immutable);
+      }
+      Object value = codec.deserialize(bytes, PROTOCOL_VERSION);
+      if (value != null && converter != null) {
+        value = converter.apply(value);
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.mapping.value;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import net.helenus.core.cache.CacheUtil;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
+
+/**
+ * The slots of an entity's properties, computed once per entity. Slot {@code i} is the value of the
+ * i-th property of {@link HelenusEntity#getOrderedProperties()}, slot {@code count + i} its TTL and
+ * slot {@code 2 * count + i} its write time.
+ */
+final class PropertyLayout {
+
+  private static final ConcurrentMap<Class<?>, PropertyLayout> layouts =
+      new ConcurrentHashMap<Class<?>, PropertyLayout>();
+
+  final HelenusEntity entity;
+  final HelenusProperty[] properties;
+  final Set<String> names;
+  final String[] keys;
+  private final Map<Object, Integer> index;
+
+  private PropertyLayout(HelenusEntity entity) {
+    this.entity = entity;
+    this.properties = entity.getOrderedProperties().toArray(new HelenusProperty[0]);
+    int count = properties.length;
+    this.keys = new String[count * 3];
+    this.index = new HashMap<Object, Integer>(count * 6);
+    ImmutableSet.Builder<String> names = ImmutableSet.builder();
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      HelenusProperty prop = properties[ordinal];
+      names.add(prop.getPropertyName());
+      keys[ordinal] = prop.getPropertyName();
+      keys[count + ordinal] = CacheUtil.ttlKey(prop);
+      keys[2 * count + ordinal] = CacheUtil.writeTimeKey(prop);
+    }
+    this.names = names.build();
+    for (int slot = 0; slot < keys.length; slot++) {
+      index.putIfAbsent(keys[slot], slot);
+    }
+  }
+
+  static PropertyLayout of(HelenusEntity entity) {
+    PropertyLayout layout = layouts.get(entity.getMappingInterface());
+    if (layout == null || layout.entity != entity) {
+      layout = new PropertyLayout(entity);
+      layouts.put(entity.getMappingInterface(), layout);
+    }
+    return layout;
+  }
+
+  /** The slot of the key, or -1. */
+  int slot(Object key) {
+    Integer slot = index.get(key);
+    return slot == null ? -1 : slot;
+  }
+
+  /** The ordinal of the property with this name, or -1. */
+  int ordinal(Object name) {
+    Integer slot = index.get(name);
+    return slot == null || slot >= properties.length ? -1 : slot;
+  }
+}
@@ -19,21 +19,33 @@ import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.Row;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
+import com.datastax.driver.core.TypeCodec;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import net.helenus.core.SessionRepository;
+import net.helenus.mapping.HelenusEntity;
 import net.helenus.mapping.HelenusProperty;
 
+/**
+ * Reads property values out of a {@link Row}. Values requested by property rather than by index
+ * go through a {@link DecodePlan} built once per {@link ColumnDefinitions} (i.e. per prepared
+ * statement, or per result set for unprepared ones) which holds, for each property read so far,
+ * its column index, codec (or {@link CollectionDecoder}) and read converter. Mapped UDTs and
+ * tuples, and lists and sets of them, are decoded from the column's bytes by a {@link
+ * NestedEntityDecoder}.
+ */
 public final class RowColumnValueProvider implements ColumnValueProvider {
 
   private final SessionRepository repository;
+  private final Cache<ColumnDefinitions, DecodePlan> plans =
+      CacheBuilder.newBuilder().weakKeys().build();
+  private volatile DecodePlan lastPlan;
 
   public RowColumnValueProvider(SessionRepository repository) {
     this.repository = repository;
@@ -45,6 +57,13 @@ public final class RowColumnValueProvider implements ColumnValueProvider {
 
     Row source = (Row) sourceObj;
 
+    if (columnIndex == -1) {
+      PlannedColumn column = planFor(source.getColumnDefinitions()).column(source, property);
+      if (column != null) {
+        return (V) column.read(source, immutable);
+      }
+    }
+
     Object value = null;
     if (columnIndex != -1) {
       value = readValueByIndex(source, columnIndex, immutable);
@@ -64,6 +83,101 @@ public final class RowColumnValueProvider implements ColumnValueProvider {
     return (V) value;
   }
 
+  /** Hashes the bytes of each of the entity's columns which is part of the row. */
+  EntityFingerprint fingerprint(Row source, HelenusEntity entity) {
+    PropertyLayout layout = PropertyLayout.of(entity);
+    DecodePlan plan = planFor(source.getColumnDefinitions());
+    int count = layout.properties.length;
+    DataType[] types = new DataType[count];
+    long[] hashes = new long[count];
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      PlannedColumn column = plan.column(source, layout.properties[ordinal]);
+      if (column != null) {
+        types[ordinal] = column.type;
+        hashes[ordinal] = EntityFingerprint.hash(source.getBytesUnsafe(column.index));
+      }
+    }
+    return new EntityFingerprint(layout, types, hashes);
+  }
+
+  private DecodePlan planFor(ColumnDefinitions definitions) {
+    DecodePlan plan = lastPlan;
+    if (plan == null || plan.definitions.get() != definitions) {
+      plan = plans.asMap().computeIfAbsent(definitions, DecodePlan::new);
+      lastPlan = plan;
+    }
+    return plan;
+  }
+
+  private final class DecodePlan {
+    // Weak as the plan is the value of a weak keyed cache entry.
+    private final WeakReference<ColumnDefinitions> definitions;
+    private final ConcurrentMap<HelenusProperty, Optional<PlannedColumn>> columns =
+        new ConcurrentHashMap<HelenusProperty, Optional<PlannedColumn>>();
+
+    DecodePlan(ColumnDefinitions definitions) {
+      this.definitions = new WeakReference<ColumnDefinitions>(definitions);
+    }
+
+    /** The planned column of the property, null when it is not part of the result set. */
+    PlannedColumn column(Row source, HelenusProperty property) {
+      Optional<PlannedColumn> column = columns.get(property);
+      if (column == null) {
+        ColumnDefinitions definitions = source.getColumnDefinitions();
+        int index = definitions.getIndexOf(property.getColumnName().getName());
+        column =
+            index < 0
+                ? Optional.empty()
+                : Optional.of(new PlannedColumn(index, definitions.getType(index), property));
+        columns.putIfAbsent(property, column);
+      }
+      return column.orElse(null);
+    }
+  }
+
+  private final class PlannedColumn {
+    private final int index;
+    private final DataType type;
+    private final NestedEntityDecoder nested;
+    private final CollectionDecoder collection;
+    private final TypeCodec<Object> codec;
+    private final Function<Object, Object> converter;
+
+    PlannedColumn(int index, DataType type, HelenusProperty property) {
+      this.index = index;
+      this.type = type;
+      this.nested = NestedEntityDecoder.forProperty(type, property, repository);
+      if (type.isCollection()) {
+        this.collection = new CollectionDecoder(type);
+        this.codec = null;
+      } else {
+        this.collection = null;
+        this.codec = codecFor(type);
+      }
+      this.converter = property.getReadConverter(repository).orElse(null);
+    }
+
+    Object read(Row source, boolean immutable) {
+      if (source.isNull(index)) {
+        return null;
+      }
+      ByteBuffer bytes = source.getBytesUnsafe(index);
+      if (nested != null) {
+        return nested.decode(type, bytes, immutable);
+      }
+      Object value;
+      if (collection == null) {
+        value = codec.deserialize(bytes, ProtocolVersion.NEWEST_SUPPORTED);
+      } else {
+        value = collection.decode(bytes, immutable);
+      }
+      if (value != null && converter != null) {
+        value = converter.apply(value);
+      }
+      return value;
+    }
+  }
+
   private Object readValueByIndex(Row source, int columnIndex, boolean immutable) {
 
     if (source.isNull(columnIndex)) {
@@ -75,24 +189,8 @@ public final class RowColumnValueProvider implements ColumnValueProvider {
     DataType columnType = columnDefinitions.getType(columnIndex);
 
     if (columnType.isCollection()) {
-
-      List<DataType> typeArguments = columnType.getTypeArguments();
-
-      switch (columnType.getName()) {
-        case SET:
-          Set set = source.getSet(columnIndex, codecFor(typeArguments.get(0)).getJavaType());
-          return immutable ? ImmutableSet.copyOf(set) : set;
-        case MAP:
-          Map map =
-              source.getMap(
-                  columnIndex,
-                  codecFor(typeArguments.get(0)).getJavaType(),
-                  codecFor(typeArguments.get(1)).getJavaType());
-          return immutable ? ImmutableMap.copyOf(map) : map;
-        case LIST:
-          List list = source.getList(columnIndex, codecFor(typeArguments.get(0)).getJavaType());
-          return immutable ? ImmutableList.copyOf(list) : list;
-      }
+      return new CollectionDecoder(columnType)
+          .decode(source.getBytesUnsafe(columnIndex), immutable);
     }
 
     ByteBuffer bytes = source.getBytesUnsafe(columnIndex);
@@ -112,24 +210,8 @@ public final class RowColumnValueProvider implements ColumnValueProvider {
     DataType columnType = columnDefinitions.getType(columnName);
 
     if (columnType.isCollection()) {
-
-      List<DataType> typeArguments = columnType.getTypeArguments();
-
-      switch (columnType.getName()) {
-        case SET:
-          Set set = source.getSet(columnName, codecFor(typeArguments.get(0)).getJavaType());
-          return immutable ? ImmutableSet.copyOf(set) : set;
-        case MAP:
-          Map map =
-              source.getMap(
-                  columnName,
-                  codecFor(typeArguments.get(0)).getJavaType(),
-                  codecFor(typeArguments.get(1)).getJavaType());
-          return immutable ? ImmutableMap.copyOf(map) : map;
-        case LIST:
-          List list = source.getList(columnName, codecFor(typeArguments.get(0)).getJavaType());
-          return immutable ? ImmutableList.copyOf(list) : list;
-      }
+      return new CollectionDecoder(columnType)
+          .decode(source.getBytesUnsafe(columnName), immutable);
     }
 
     ByteBuffer bytes = source.getBytesUnsafe(columnName);
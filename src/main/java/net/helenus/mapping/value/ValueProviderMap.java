@@ -15,27 +15,54 @@
  */
 package net.helenus.mapping.value;
 
+import com.datastax.driver.core.Row;
 import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import net.helenus.mapping.HelenusEntity;
-import net.helenus.mapping.HelenusProperty;
 import net.helenus.support.HelenusMappingException;
 
+/**
+ * A read-only view of an entity's values in a source (e.g. a {@link com.datastax.driver.core.Row}).
+ * Each property is decoded lazily, at most once, into a slot indexed by its ordinal.
+ */
 public final class ValueProviderMap implements Map<String, Object> {
 
+  private static final Object UNDECODED = new Object();
+
   private final Object source;
   private final ColumnValueProvider valueProvider;
   private final HelenusEntity entity;
   private final boolean immutable;
+  private final PropertyLayout layout;
+  private final Object[] values;
+  private EntityFingerprint fingerprint;
 
   public ValueProviderMap(Object source, ColumnValueProvider valueProvider, HelenusEntity entity) {
     this.source = source;
     this.valueProvider = valueProvider;
     this.entity = entity;
     this.immutable = entity.isDraftable();
+    this.layout = PropertyLayout.of(entity);
+    this.values = new Object[layout.properties.length];
+    Arrays.fill(values, UNDECODED);
+  }
+
+  public HelenusEntity getEntity() {
+    return entity;
+  }
+
+  /** The fingerprint of the row this map reads from, null for any other source. */
+  public EntityFingerprint fingerprint() {
+    if (fingerprint == null
+        && source instanceof Row
+        && valueProvider instanceof RowColumnValueProvider) {
+      fingerprint = ((RowColumnValueProvider) valueProvider).fingerprint((Row) source, entity);
+    }
+    return fingerprint;
   }
 
   private static void throwShouldNeverCall(String methodName) {
@@ -46,14 +73,23 @@ public final class ValueProviderMap implements Map<String, Object> {
   }
 
   public Object get(Object key, boolean immutable) {
-    if (key instanceof String) {
-      String name = (String) key;
-      HelenusProperty prop = entity.getProperty(name);
-      if (prop != null) {
-        return valueProvider.getColumnValue(source, -1, prop, immutable);
-      }
+    int ordinal = layout.ordinal(key);
+    if (ordinal < 0) {
+      return null;
     }
-    return null;
+    if (immutable != this.immutable) {
+      return valueProvider.getColumnValue(source, -1, layout.properties[ordinal], immutable);
+    }
+    return decode(ordinal);
+  }
+
+  private Object decode(int ordinal) {
+    Object value = values[ordinal];
+    if (value == UNDECODED) {
+      value = valueProvider.getColumnValue(source, -1, layout.properties[ordinal], immutable);
+      values[ordinal] = value;
+    }
+    return value;
   }
 
   @Override
@@ -63,30 +99,22 @@ public final class ValueProviderMap implements Map<String, Object> {
 
   @Override
   public Set<String> keySet() {
-    return entity
-        .getOrderedProperties()
-        .stream()
-        .map(p -> p.getPropertyName())
-        .collect(Collectors.toSet());
+    return layout.names;
   }
 
   @Override
   public int size() {
-    return entity.getOrderedProperties().size();
+    return values.length;
   }
 
   @Override
   public boolean isEmpty() {
-    return entity.getOrderedProperties().size() > 0;
+    return values.length == 0;
   }
 
   @Override
   public boolean containsKey(Object key) {
-    if (key instanceof String) {
-      String s = (String) key;
-      return keySet().contains(s);
-    }
-    return false;
+    return layout.ordinal(key) >= 0;
   }
 
   @Override
@@ -125,15 +153,14 @@ public final class ValueProviderMap implements Map<String, Object> {
 
   @Override
   public Set<java.util.Map.Entry<String, Object>> entrySet() {
-    return entity
-        .getOrderedProperties()
-        .stream()
-        .map(
-            p -> {
-              return new ValueProviderMap.Entry<String, Object>(
-                  p.getPropertyName(), valueProvider.getColumnValue(source, -1, p, immutable));
-            })
-        .collect(Collectors.toSet());
+    Set<java.util.Map.Entry<String, Object>> entries =
+        new LinkedHashSet<java.util.Map.Entry<String, Object>>(values.length * 2);
+    for (int ordinal = 0; ordinal < values.length; ordinal++) {
+      entries.add(
+          new ValueProviderMap.Entry<String, Object>(
+              layout.properties[ordinal].getPropertyName(), decode(ordinal)));
+    }
+    return entries;
   }
 
   @Override
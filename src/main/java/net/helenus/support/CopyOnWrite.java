@@ -0,0 +1,283 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.support;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Mutable views of collections which copy the collection on the first write only, leaving it
+ * untouched. A collection read from a row is thus materialized once no matter how many mutable
+ * maps of the entity are taken.
+ */
+public final class CopyOnWrite {
+
+  private CopyOnWrite() {}
+
+  /** Wraps an immutable list, set or map, any other value is returned as is. */
+  @SuppressWarnings("unchecked")
+  public static Object wrap(Object value) {
+    if (value instanceof ImmutableList) {
+      return new CopyOnWriteList<Object>((List<Object>) value);
+    } else if (value instanceof ImmutableSet) {
+      return new CopyOnWriteSet<Object>((Set<Object>) value);
+    } else if (value instanceof ImmutableMap) {
+      return new CopyOnWriteMap<Object, Object>((Map<Object, Object>) value);
+    }
+    return value;
+  }
+
+  public static <E> List<E> list(List<E> list) {
+    return new CopyOnWriteList<E>(list);
+  }
+
+  public static <E> Set<E> set(Set<E> set) {
+    return new CopyOnWriteSet<E>(set);
+  }
+
+  public static <K, V> Map<K, V> map(Map<K, V> map) {
+    return new CopyOnWriteMap<K, V>(map);
+  }
+
+  static final class CopyOnWriteList<E> extends AbstractList<E>
+      implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 5304958254431946573L;
+
+    private List<E> delegate;
+    private boolean copied;
+
+    CopyOnWriteList(List<E> delegate) {
+      this.delegate = delegate;
+    }
+
+    private List<E> mutable() {
+      if (!copied) {
+        delegate = new ArrayList<E>(delegate);
+        copied = true;
+      }
+      return delegate;
+    }
+
+    @Override
+    public E get(int index) {
+      return delegate.get(index);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+      return mutable().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+      mutable().add(index, element);
+      modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+      E previous = mutable().remove(index);
+      modCount++;
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      delegate = new ArrayList<E>();
+      copied = true;
+      modCount++;
+    }
+  }
+
+  static final class CopyOnWriteSet<E> extends AbstractSet<E> implements Serializable {
+    private static final long serialVersionUID = -1739126458937260851L;
+
+    private Set<E> delegate;
+    private boolean copied;
+
+    CopyOnWriteSet(Set<E> delegate) {
+      this.delegate = delegate;
+    }
+
+    private Set<E> mutable() {
+      if (!copied) {
+        delegate = new LinkedHashSet<E>(delegate);
+        copied = true;
+      }
+      return delegate;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return delegate.contains(o);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public boolean add(E e) {
+      return !delegate.contains(e) && mutable().add(e);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      return delegate.contains(o) && mutable().remove(o);
+    }
+
+    @Override
+    public void clear() {
+      delegate = new LinkedHashSet<E>();
+      copied = true;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      final boolean onCopy = copied;
+      final Iterator<E> iterator = delegate.iterator();
+      return new Iterator<E>() {
+        private E last;
+
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+          return last = iterator.next();
+        }
+
+        @Override
+        public void remove() {
+          if (onCopy) {
+            iterator.remove();
+          } else {
+            mutable().remove(last);
+          }
+        }
+      };
+    }
+  }
+
+  static final class CopyOnWriteMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = 2950741582372416093L;
+
+    private Map<K, V> delegate;
+    private boolean copied;
+
+    CopyOnWriteMap(Map<K, V> delegate) {
+      this.delegate = delegate;
+    }
+
+    private Map<K, V> mutable() {
+      if (!copied) {
+        delegate = new LinkedHashMap<K, V>(delegate);
+        copied = true;
+      }
+      return delegate;
+    }
+
+    @Override
+    public V get(Object key) {
+      return delegate.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return delegate.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public V put(K key, V value) {
+      return mutable().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+      return delegate.containsKey(key) ? mutable().remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+      delegate = new LinkedHashMap<K, V>();
+      copied = true;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return new AbstractSet<Map.Entry<K, V>>() {
+        @Override
+        public int size() {
+          return delegate.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          final boolean onCopy = copied;
+          final Iterator<Map.Entry<K, V>> iterator = delegate.entrySet().iterator();
+          return new Iterator<Map.Entry<K, V>>() {
+            private Map.Entry<K, V> last;
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+              last = iterator.next();
+              if (onCopy) {
+                return last;
+              }
+              return new SimpleEntry<K, V>(last) {
+                @Override
+                public V setValue(V value) {
+                  super.setValue(value);
+                  return put(getKey(), value);
+                }
+              };
+            }
+
+            @Override
+            public void remove() {
+              if (onCopy) {
+                iterator.remove();
+              } else {
+                mutable().remove(last.getKey());
+              }
+            }
+          };
+        }
+      };
+    }
+  }
+}
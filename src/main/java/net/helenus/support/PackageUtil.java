@@ -15,11 +15,14 @@
  */
 package net.helenus.support;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
@@ -31,6 +34,7 @@ import org.slf4j.LoggerFactory;
 public class PackageUtil {
 
   public static final String JAR_URL_SEPARATOR = "!/";
+  public static final String ENTITY_INDEX = "META-INF/helenus/entities";
   private static final Logger log = LoggerFactory.getLogger(PackageUtil.class);
 
   private static void doFetchInPath(
@@ -117,6 +121,59 @@ public class PackageUtil {
     return classes;
   }
 
+  /**
+   * The classes of the package (and its sub-packages) listed in the entity indexes written at build
+   * time by {@code net.helenus.mapping.processor.EntityProcessor}, or null if any classpath root
+   * holding the package has no index, in which case the package has to be scanned. Indexed names
+   * that no longer load are skipped with a warning.
+   */
+  public static Set<Class<?>> getIndexedClasses(String packagePath)
+      throws ClassNotFoundException, IOException {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader == null) {
+      throw new ClassNotFoundException("class loader not found for current thread");
+    }
+    String path = packagePath.replace('.', '/');
+    Set<Class<?>> classes = new HashSet<Class<?>>();
+    Enumeration<URL> roots = classLoader.getResources(path);
+    if (!roots.hasMoreElements()) {
+      return null;
+    }
+    while (roots.hasMoreElements()) {
+      String root = roots.nextElement().toString();
+      if (root.endsWith("/")) {
+        root = root.substring(0, root.length() - 1);
+      }
+      if (!root.endsWith(path)) {
+        return null;
+      }
+      URL index = new URL(root.substring(0, root.length() - path.length()) + ENTITY_INDEX);
+      BufferedReader reader;
+      try {
+        reader =
+            new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        return null;
+      }
+      try {
+        String name;
+        while ((name = reader.readLine()) != null) {
+          name = name.trim();
+          if (name.startsWith(packagePath + ".")) {
+            try {
+              classes.add(classLoader.loadClass(name));
+            } catch (ClassNotFoundException e) {
+              log.warn("skipping " + name + " listed in " + index + ", the class is not found");
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return classes;
+  }
+
   public static String fastReplace(String inString, String oldPattern, String newPattern) {
     if (inString == null) {
       return null;
@@ -0,0 +1,92 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import net.helenus.core.Helenus;
+import net.helenus.core.HelenusSession;
+import net.helenus.core.SessionInitializer;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import net.helenus.test.integration.core.nested.Venue;
+import net.helenus.test.integration.core.schema.Robot;
+import net.helenus.test.integration.core.schema.RobotsByModel;
+import net.helenus.test.integration.core.udtcollection.Book;
+import net.helenus.test.integration.core.usertype.Customer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelInitTest extends AbstractEmbeddedCassandraTest {
+
+  private static final Class<?>[] ENTITIES = {
+    Venue.class, Robot.class, RobotsByModel.class, Book.class, Customer.class
+  };
+
+  private static SessionInitializer init(SessionInitializer init, int parallelism) {
+    Helenus.clearDslCache();
+    init.initParallelism(parallelism);
+    for (Class<?> entity : ENTITIES) {
+      init.add(entity);
+    }
+    return init;
+  }
+
+  private static void assertMapped(HelenusSession session) {
+    Set<Class<?>> mapped = new HashSet<Class<?>>();
+    for (HelenusEntity entity : session.getSessionRepository().entities()) {
+      mapped.add(entity.getMappingInterface());
+    }
+    for (Class<?> entity : ENTITIES) {
+      Assert.assertTrue(entity.getName(), mapped.contains(entity));
+      Assert.assertSame(Helenus.dsl(entity), Helenus.dsl(entity));
+    }
+  }
+
+  private static void assertCreated() {
+    Assert.assertTrue(getSession().getCluster().getMetadata().checkSchemaAgreement());
+    for (String table : new String[] {"venue", "robot", "book", "customer"}) {
+      Assert.assertNotNull(
+          table,
+          getSession().getCluster().getMetadata().getKeyspace(getKeyspace()).getTable(table));
+    }
+  }
+
+  @Test
+  public void testSerialInit() {
+    HelenusSession session = init(Helenus.init(getSession()), 1).autoCreateDrop().get();
+    assertMapped(session);
+    assertCreated();
+  }
+
+  @Test
+  public void testParallelInit() {
+    HelenusSession session = init(Helenus.init(getSession()), 8).autoCreateDrop().get();
+    assertMapped(session);
+    assertCreated();
+  }
+
+  @Test
+  public void testParallelMappingWithoutSession() {
+    HelenusSession session = init(Helenus.init(null, "foo"), 8).get();
+    assertMapped(session);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParallelismMustBePositive() {
+    Helenus.init(getSession()).initParallelism(0);
+  }
+}
@@ -21,11 +21,15 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
 import net.helenus.core.Helenus;
 import net.helenus.core.HelenusSession;
 import net.helenus.core.UnitOfWork;
+import net.helenus.core.operation.UpdateOperation;
 import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -107,6 +111,45 @@ public class EntityDraftBuilderTest extends AbstractEmbeddedCassandraTest {
     Assert.assertEquals((long) s4.demand().get("NORAM"), 10L);
   }
 
+  @Test
+  public void testDraftCollectionChanges() throws Exception {
+
+    Supply s1 =
+        session
+            .<Supply>select(Supply.class)
+            .where(supply::id, eq(id))
+            .and(supply::region, eq(region))
+            .single()
+            .sync()
+            .orElse(null);
+
+    Supply.Draft d1 = s1.update();
+
+    List<String> suppliers = d1.suppliers();
+    suppliers.add("Bigfoot Supply, Inc.");
+    d1.suppliers(suppliers);
+
+    Set<String> shipments = d1.shipments();
+    shipments.add("Bigfoot, arriving soon.");
+    d1.shipments(shipments);
+
+    Map<String, Long> demand = d1.demand();
+    demand.put("LATAM", 50L);
+    d1.demand(demand);
+
+    UpdateOperation<Supply> update = session.update(d1);
+    String cql = update.buildStatement(false).toString();
+    Assert.assertTrue(cql, cql.contains("suppliers=suppliers+"));
+    Assert.assertTrue(cql, cql.contains("shipments=shipments+"));
+    Assert.assertTrue(cql, cql.contains("demand=demand+"));
+
+    Supply s2 = update.sync();
+    Assert.assertEquals("Bigfoot Supply, Inc.", s2.suppliers().get(s2.suppliers().size() - 1));
+    Assert.assertTrue(s2.shipments().contains("Bigfoot, arriving soon."));
+    Assert.assertEquals(50L, (long) s2.demand().get("LATAM"));
+    Assert.assertFalse(s1.suppliers().contains("Bigfoot Supply, Inc."));
+  }
+
   @Test
   public void testDraftMergeInNestedUow() throws Exception {
     Supply s1, s2, s3, s4, s5;
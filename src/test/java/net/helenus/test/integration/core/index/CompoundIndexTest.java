@@ -0,0 +1,197 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.index;
+
+import static net.helenus.core.Query.eq;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import net.helenus.core.Helenus;
+import net.helenus.core.HelenusSession;
+import net.helenus.core.UnitOfWork;
+import net.helenus.support.HelenusMappingException;
+import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompoundIndexTest extends AbstractEmbeddedCassandraTest {
+
+  Edition edition;
+
+  HelenusSession session;
+
+  @Before
+  public void beforeTest() {
+    session = Helenus.init(getSession()).showCql().add(Edition.class).autoCreateDrop().get();
+    edition = Helenus.dsl(Edition.class, session.getMetadata());
+  }
+
+  @Test
+  public void testSelectUsesHashColumn() throws TimeoutException {
+    insert(1L, "Penguin", 1999, "A");
+    insert(2L, "Penguin", 2001, "B");
+    insert(3L, "Vintage", 1999, "C");
+
+    String cql =
+        session
+            .select(edition::id)
+            .where(edition::publisher, eq("Penguin"))
+            .and(edition::year, eq(1999))
+            .buildStatement(false)
+            .toString();
+    Assert.assertTrue(cql, cql.contains("\"__idx_publisher_year\"="));
+    Assert.assertTrue(cql, cql.contains("publisher='Penguin'"));
+    Assert.assertTrue(cql, cql.contains("year=1999"));
+    Assert.assertTrue(cql, cql.contains("ALLOW FILTERING"));
+
+    Assert.assertEquals(ids(1L), select("Penguin", 1999));
+    Assert.assertEquals(ids(2L), select("Penguin", 2001));
+    Assert.assertEquals(ids(3L), select("Vintage", 1999));
+    Assert.assertEquals(ids(), select("Vintage", 2001));
+  }
+
+  @Test
+  public void testUpdateMaintainsHashColumn() throws TimeoutException {
+    insert(1L, "Penguin", 1999, "A");
+
+    session
+        .update()
+        .set(edition::publisher, "Vintage")
+        .set(edition::year, 2001)
+        .where(edition::id, eq(1L))
+        .sync();
+
+    Assert.assertEquals(ids(), select("Penguin", 1999));
+    Assert.assertEquals(ids(1L), select("Vintage", 2001));
+  }
+
+  @Test(expected = HelenusMappingException.class)
+  public void testUpdateOfPartOfTheIndexIsRejected() throws TimeoutException {
+    insert(1L, "Penguin", 1999, "A");
+
+    session.update().set(edition::year, 2001).where(edition::id, eq(1L)).sync();
+  }
+
+  @Test
+  public void testBatchedUpdatesOfAPojoMaintainHashColumn() throws TimeoutException {
+    insert(1L, "Penguin", 1999, "A");
+    Edition loaded =
+        session
+            .<Edition>select(Edition.class)
+            .where(edition::id, eq(1L))
+            .single()
+            .sync()
+            .orElse(null);
+    Assert.assertNotNull(loaded);
+
+    try (UnitOfWork uow = session.begin()) {
+      session
+          .<Edition>update(loaded)
+          .set(edition::publisher, "Penguin")
+          .set(edition::year, 2001)
+          .where(edition::id, eq(1L))
+          .batch(uow);
+      session
+          .<Edition>update(loaded)
+          .set(edition::title, "B")
+          .where(edition::id, eq(1L))
+          .batch(uow);
+      uow.commit();
+    }
+
+    Assert.assertEquals(ids(), select("Penguin", 1999));
+    Assert.assertEquals(ids(1L), select("Penguin", 2001));
+  }
+
+  @Test
+  public void testUpdateOfARowChangedByAnotherWriter() throws TimeoutException {
+    insert(1L, "Penguin", 1999, "A");
+    Edition loaded =
+        session
+            .<Edition>select(Edition.class)
+            .where(edition::id, eq(1L))
+            .single()
+            .sync()
+            .orElse(null);
+    Assert.assertNotNull(loaded);
+
+    // Another writer moves the edition to another publisher.
+    getSession().execute("UPDATE editions SET publisher = 'Vintage' WHERE id = 1");
+
+    try {
+      session.<Edition>update(loaded).set(edition::year, 2001).where(edition::id, eq(1L)).sync();
+      Assert.fail("the stale publisher of the pojo was hashed");
+    } catch (HelenusMappingException e) {
+      // Expected, the update doesn't know the publisher the row has now.
+    }
+
+    session
+        .<Edition>update(loaded)
+        .set(edition::publisher, "Vintage")
+        .set(edition::year, 2001)
+        .where(edition::id, eq(1L))
+        .sync();
+    Assert.assertEquals(ids(), select("Penguin", 2001));
+    Assert.assertEquals(ids(1L), select("Vintage", 2001));
+  }
+
+  @Test
+  public void testNullPropertyClearsHashColumn() throws TimeoutException {
+    insert(1L, "Penguin", 1999, "A");
+
+    Map<String, Object> values = new HashMap<>();
+    values.put("id", 1L);
+    values.put("year", 2001);
+    values.put("title", "B");
+    session.upsert(Helenus.map(Edition.class, values)).sync();
+
+    Assert.assertEquals(ids(), select("Penguin", 1999));
+    Assert.assertTrue(
+        getSession()
+            .execute("SELECT \"__idx_publisher_year\" FROM editions WHERE id = 1")
+            .one()
+            .isNull(0));
+  }
+
+  private void insert(long id, String publisher, int year, String title) throws TimeoutException {
+    session
+        .insert()
+        .value(edition::id, id)
+        .value(edition::publisher, publisher)
+        .value(edition::year, year)
+        .value(edition::title, title)
+        .sync();
+  }
+
+  private Set<Long> select(String publisher, int year) throws TimeoutException {
+    return session
+        .select(edition::id)
+        .where(edition::publisher, eq(publisher))
+        .and(edition::year, eq(year))
+        .sync()
+        .map(t -> t._1)
+        .collect(Collectors.toSet());
+  }
+
+  private static Set<Long> ids(Long... ids) {
+    return Arrays.stream(ids).collect(Collectors.toSet());
+  }
+}
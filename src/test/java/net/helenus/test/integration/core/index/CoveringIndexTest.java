@@ -0,0 +1,175 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.index;
+
+import static net.helenus.core.Query.eq;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import net.helenus.core.Helenus;
+import net.helenus.core.HelenusSession;
+import net.helenus.core.operation.BatchOperation;
+import net.helenus.support.HelenusException;
+import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoveringIndexTest extends AbstractEmbeddedCassandraTest {
+
+  Account account;
+
+  HelenusSession session;
+
+  @Before
+  public void beforeTest() {
+    session = Helenus.init(getSession()).showCql().add(Account.class).autoCreateDrop().get();
+    account = Helenus.dsl(Account.class, session.getMetadata());
+  }
+
+  @Test
+  public void testSelectUsesLookupTable() throws TimeoutException {
+    UUID id = insert("ann@example.com", "Ann");
+    insert("bob@example.com", "Bob");
+
+    String cql =
+        session
+            .select(account::id, account::name)
+            .where(account::email, eq("ann@example.com"))
+            .route()
+            .buildStatement(false)
+            .toString();
+    Assert.assertTrue(cql, cql.contains("FROM accounts_by_email"));
+    Assert.assertFalse(cql, cql.contains("ALLOW FILTERING"));
+
+    Assert.assertEquals(Optional.of(id + " Ann"), select("ann@example.com"));
+    Assert.assertEquals(Optional.empty(), select("carl@example.com"));
+  }
+
+  @Test
+  public void testUnroutedSelectUsesTable() {
+    String cql =
+        session
+            .select(account::id, account::name)
+            .where(account::email, eq("ann@example.com"))
+            .buildStatement(false)
+            .toString();
+    Assert.assertTrue(cql, cql.contains("FROM accounts "));
+  }
+
+  @Test
+  public void testSelectOfUncoveredColumnUsesTable() {
+    String cql =
+        session
+            .select(account::logins)
+            .where(account::email, eq("ann@example.com"))
+            .route()
+            .buildStatement(false)
+            .toString();
+    Assert.assertTrue(cql, cql.contains("FROM accounts "));
+  }
+
+  @Test
+  public void testUpdateMovesLookupRow() throws TimeoutException {
+    UUID id = insert("ann@example.com", "Ann");
+
+    session
+        .update()
+        .set(account::email, "ann@example.org")
+        .where(account::id, eq(id))
+        .sync();
+
+    Assert.assertEquals(Optional.empty(), select("ann@example.com"));
+    Assert.assertEquals(Optional.of(id + " Ann"), select("ann@example.org"));
+
+    session.update().set(account::name, "Anne").where(account::id, eq(id)).sync();
+
+    Assert.assertEquals(Optional.of(id + " Anne"), select("ann@example.org"));
+  }
+
+  @Test
+  public void testDeleteRemovesLookupRow() throws TimeoutException {
+    UUID id = insert("ann@example.com", "Ann");
+
+    session.delete().where(account::id, eq(id)).sync();
+
+    Assert.assertEquals(Optional.empty(), select("ann@example.com"));
+  }
+
+  @Test
+  public void testUpsertOfExistingRowMovesLookupRow() throws TimeoutException {
+    UUID id = insert("ann@example.com", "Ann");
+
+    session
+        .upsert()
+        .value(account::id, id)
+        .value(account::email, "ann@example.org")
+        .value(account::name, "Ann")
+        .value(account::logins, 1)
+        .sync();
+
+    Assert.assertEquals(Optional.empty(), select("ann@example.com"));
+    Assert.assertEquals(Optional.of(id + " Ann"), select("ann@example.org"));
+  }
+
+  @Test
+  public void testBatchedUpdatesMoveLookupRows() throws TimeoutException {
+    UUID ann = insert("ann@example.com", "Ann");
+    UUID bob = insert("bob@example.com", "Bob");
+
+    BatchOperation batch = new BatchOperation(session);
+    batch.add(session.update().set(account::email, "ann@example.org").where(account::id, eq(ann)));
+    batch.add(session.update().set(account::email, "bob@example.org").where(account::id, eq(bob)));
+    batch.sync();
+
+    Assert.assertEquals(Optional.empty(), select("ann@example.com"));
+    Assert.assertEquals(Optional.empty(), select("bob@example.com"));
+    Assert.assertEquals(Optional.of(ann + " Ann"), select("ann@example.org"));
+    Assert.assertEquals(Optional.of(bob + " Bob"), select("bob@example.org"));
+  }
+
+  @Test(expected = HelenusException.class)
+  public void testPreparedWriteIsRefused() {
+    session
+        .update()
+        .set(account::name, "Anne")
+        .where(account::id, eq(UUID.randomUUID()))
+        .prepare();
+  }
+
+  private UUID insert(String email, String name) throws TimeoutException {
+    UUID id = UUID.randomUUID();
+    session
+        .insert()
+        .value(account::id, id)
+        .value(account::email, email)
+        .value(account::name, name)
+        .value(account::logins, 0)
+        .sync();
+    return id;
+  }
+
+  private Optional<String> select(String email) throws TimeoutException {
+    return session
+        .select(account::id, account::name)
+        .where(account::email, eq(email))
+        .route()
+        .sync()
+        .map(t -> t._1 + " " + t._2)
+        .findFirst();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.index;
+
+import net.helenus.core.annotation.Cacheable;
+import net.helenus.mapping.annotation.Column;
+import net.helenus.mapping.annotation.CompoundIndex;
+import net.helenus.mapping.annotation.PartitionKey;
+import net.helenus.mapping.annotation.Table;
+
+@Table("editions")
+@Cacheable
+@CompoundIndex({"publisher", "year"})
+public interface Edition {
+
+  @PartitionKey(ordinal = 0)
+  long id();
+
+  @Column(ordinal = 1)
+  String publisher();
+
+  @Column(ordinal = 2)
+  int year();
+
+  @Column(ordinal = 3)
+  String title();
+}
@@ -0,0 +1,214 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.nested;
+
+import static net.helenus.core.Query.eq;
+
+import com.datastax.driver.core.UDTValue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import net.helenus.core.Helenus;
+import net.helenus.core.HelenusSession;
+import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class NestedDecodeTest extends AbstractEmbeddedCassandraTest {
+
+  static Venue venue;
+
+  static HelenusSession session;
+
+  @BeforeClass
+  public static void beforeTest() {
+    Helenus.clearDslCache();
+    session = Helenus.init(getSession()).showCql().add(Venue.class).autoCreateDrop().get();
+    venue = Helenus.dsl(Venue.class);
+  }
+
+  private static Street street(String name, int number) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("name", name);
+    map.put("number", number);
+    return Helenus.map(Street.class, map);
+  }
+
+  private static Location location(String city, Street street) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("city", city);
+    map.put("street", street);
+    return Helenus.map(Location.class, map);
+  }
+
+  private static Coordinates coordinates(Double latitude, Double longitude) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("latitude", latitude);
+    map.put("longitude", longitude);
+    return Helenus.map(Coordinates.class, map);
+  }
+
+  private static Venue read(int id) throws TimeoutException {
+    return session.select(Venue.class).where(venue::id, eq(id)).sync().findFirst().get();
+  }
+
+  private static void assertStreet(Street expected, Street actual) {
+    if (expected == null) {
+      Assert.assertNull(actual);
+      return;
+    }
+    Assert.assertEquals(expected.name(), actual.name());
+    Assert.assertEquals(expected.number(), actual.number());
+  }
+
+  private static void assertLocation(Location expected, Location actual) {
+    if (expected == null) {
+      Assert.assertNull(actual);
+      return;
+    }
+    Assert.assertEquals(expected.city(), actual.city());
+    assertStreet(expected.street(), actual.street());
+  }
+
+  private static void assertCoordinates(Coordinates expected, Coordinates actual) {
+    if (expected == null) {
+      Assert.assertNull(actual);
+      return;
+    }
+    Assert.assertEquals(expected.latitude(), actual.latitude());
+    Assert.assertEquals(expected.longitude(), actual.longitude());
+  }
+
+  @Test
+  public void testRoundTrip() throws TimeoutException {
+    Location location = location("Paris", street("Rue de Rivoli", 1));
+    Coordinates coordinates = coordinates(48.85, 2.35);
+    List<Location> history =
+        Arrays.asList(
+            location("Lyon", street("Rue Merciere", 2)), location("Nice", street("Promenade", 3)));
+    Set<Street> streets = new LinkedHashSet<Street>();
+    streets.add(street("Rue Royale", 4));
+    streets.add(street("Rue Cler", 5));
+    List<Coordinates> route = Arrays.asList(coordinates(1.0, 2.0), coordinates(3.0, 4.0));
+
+    session
+        .insert()
+        .value(venue::id, 1)
+        .value(venue::location, location)
+        .value(venue::coordinates, coordinates)
+        .value(venue::history, history)
+        .value(venue::streets, streets)
+        .value(venue::route, route)
+        .sync();
+
+    Venue actual = read(1);
+
+    assertLocation(location, actual.location());
+    assertCoordinates(coordinates, actual.coordinates());
+    Assert.assertEquals(history.size(), actual.history().size());
+    for (int i = 0; i < history.size(); i++) {
+      assertLocation(history.get(i), actual.history().get(i));
+    }
+    Assert.assertEquals(route.size(), actual.route().size());
+    for (int i = 0; i < route.size(); i++) {
+      assertCoordinates(route.get(i), actual.route().get(i));
+    }
+    Map<String, Street> byName = new HashMap<String, Street>();
+    for (Street street : actual.streets()) {
+      byName.put(street.name(), street);
+    }
+    Assert.assertEquals(streets.size(), byName.size());
+    for (Street street : streets) {
+      assertStreet(street, byName.get(street.name()));
+    }
+  }
+
+  @Test
+  public void testNullFields() throws TimeoutException {
+    Location location = location(null, street(null, 6));
+    Coordinates coordinates = coordinates(null, 2.35);
+    List<Location> history = Arrays.asList(location("Lyon", null), location(null, null));
+
+    session
+        .insert()
+        .value(venue::id, 2)
+        .value(venue::location, location)
+        .value(venue::coordinates, coordinates)
+        .value(venue::history, history)
+        .sync();
+
+    Venue actual = read(2);
+
+    assertLocation(location, actual.location());
+    assertCoordinates(coordinates, actual.coordinates());
+    Assert.assertEquals(history.size(), actual.history().size());
+    for (int i = 0; i < history.size(); i++) {
+      assertLocation(history.get(i), actual.history().get(i));
+    }
+    Assert.assertTrue(actual.streets() == null || actual.streets().isEmpty());
+    Assert.assertTrue(actual.route() == null || actual.route().isEmpty());
+  }
+
+  @Test
+  public void testSetKeepsTheOrderOfTheRow() throws TimeoutException {
+    Set<Street> streets = new LinkedHashSet<Street>();
+    for (int i = 0; i < 10; i++) {
+      streets.add(street("Street " + i, i));
+    }
+
+    session.insert().value(venue::id, 3).value(venue::streets, streets).sync();
+
+    List<String> expected = new ArrayList<String>();
+    for (UDTValue value :
+        session
+            .getSession()
+            .execute("SELECT streets FROM venue WHERE id = 3")
+            .one()
+            .getSet("streets", UDTValue.class)) {
+      expected.add(value.getString("name"));
+    }
+
+    List<String> actual = new ArrayList<String>();
+    Iterator<Street> it = read(3).streets().iterator();
+    while (it.hasNext()) {
+      actual.add(it.next().name());
+    }
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testMutableListOfUDTs() throws TimeoutException {
+    List<Location> history =
+        Arrays.asList(
+            location("Lyon", street("Rue Merciere", 2)), location("Nice", street("Promenade", 3)));
+
+    session.insert().value(venue::id, 4).value(venue::history, history).sync();
+
+    List<Location> actual = read(4).history();
+    Assert.assertTrue(actual instanceof ArrayList);
+    actual.add(location("Nantes", null));
+    Assert.assertEquals(3, actual.size());
+    assertLocation(history.get(0), actual.get(0));
+    assertLocation(history.get(1), actual.get(1));
+  }
+}
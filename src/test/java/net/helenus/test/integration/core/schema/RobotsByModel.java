@@ -0,0 +1,33 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.schema;
+
+import java.util.UUID;
+import net.helenus.mapping.annotation.ClusteringColumn;
+import net.helenus.mapping.annotation.MaterializedView;
+import net.helenus.mapping.annotation.PartitionKey;
+
+@MaterializedView("robots_by_model")
+public interface RobotsByModel extends Robot {
+
+  @ClusteringColumn
+  UUID id();
+
+  @PartitionKey
+  String model();
+
+  Arm arm();
+}
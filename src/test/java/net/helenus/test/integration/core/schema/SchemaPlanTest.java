@@ -0,0 +1,153 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.schema;
+
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.TableMetadata;
+import java.util.List;
+import net.helenus.core.Helenus;
+import net.helenus.core.SchemaPlan;
+import net.helenus.core.SessionInitializer;
+import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchemaPlanTest extends AbstractEmbeddedCassandraTest {
+
+  @Before
+  public void beforeTest() {
+    dropSchema();
+  }
+
+  private static void dropSchema() {
+    getSession().execute("DROP MATERIALIZED VIEW IF EXISTS robots_by_model");
+    getSession().execute("DROP TABLE IF EXISTS robot");
+    getSession().execute("DROP TYPE IF EXISTS arm");
+    getSession().execute("DROP TYPE IF EXISTS joint");
+  }
+
+  private static SessionInitializer init() {
+    return Helenus.init(getSession()).showCql().add(Robot.class).add(RobotsByModel.class);
+  }
+
+  private static KeyspaceMetadata keyspace() {
+    return getSession().getCluster().getMetadata().getKeyspace(getKeyspace());
+  }
+
+  /** The position of the first statement starting with the prefix and naming the object. */
+  private static int indexOf(List<String> statements, String prefix, String name) {
+    for (int i = 0; i < statements.size(); i++) {
+      String cql = statements.get(i);
+      if (cql.toUpperCase().startsWith(prefix) && cql.contains(name)) {
+        return i;
+      }
+    }
+    Assert.fail(prefix + " " + name + " not in " + statements);
+    return -1;
+  }
+
+  private static void assertCreatedInOrder(List<String> statements) {
+    int joint = indexOf(statements, "CREATE TYPE", "joint");
+    int arm = indexOf(statements, "CREATE TYPE", "arm");
+    int table = indexOf(statements, "CREATE TABLE", "robot");
+    int index = indexOf(statements, "CREATE", "INDEX");
+    int view = indexOf(statements, "CREATE MATERIALIZED VIEW", "robots_by_model");
+    Assert.assertTrue(statements.toString(), joint < arm);
+    Assert.assertTrue(statements.toString(), arm < table);
+    Assert.assertTrue(statements.toString(), table < index);
+    Assert.assertTrue(statements.toString(), table < view);
+  }
+
+  private static void assertApplied() {
+    KeyspaceMetadata keyspace = keyspace();
+    Assert.assertNotNull(keyspace.getUserType("joint"));
+    Assert.assertNotNull(keyspace.getUserType("arm"));
+    TableMetadata table = keyspace.getTable("robot");
+    Assert.assertNotNull(table);
+    Assert.assertFalse(table.getIndexes().isEmpty());
+    Assert.assertNotNull(keyspace.getMaterializedView("robots_by_model"));
+  }
+
+  @Test
+  public void testCreateDropPlanIsOrdered() {
+    List<String> statements = init().autoCreateDrop().planSchema().getStatements();
+
+    // Drops come first, each before what it depends on.
+    int view = indexOf(statements, "DROP MATERIALIZED VIEW", "robots_by_model");
+    int table = indexOf(statements, "DROP TABLE", "robot");
+    int arm = indexOf(statements, "DROP TYPE", "arm");
+    int joint = indexOf(statements, "DROP TYPE", "joint");
+    Assert.assertTrue(statements.toString(), view < table);
+    Assert.assertTrue(statements.toString(), table < arm);
+    Assert.assertTrue(statements.toString(), arm < joint);
+    Assert.assertTrue(statements.toString(), joint < indexOf(statements, "CREATE TYPE", "joint"));
+
+    assertCreatedInOrder(statements);
+  }
+
+  @Test
+  public void testPlanIsADryRun() {
+    SchemaPlan plan = init().autoCreateDrop().planSchema();
+
+    Assert.assertFalse(plan.isEmpty());
+    Assert.assertNull(keyspace().getTable("robot"));
+    Assert.assertNull(keyspace().getUserType("arm"));
+  }
+
+  @Test
+  public void testUpdatePlanCreatesMissingSchema() {
+    List<String> statements = init().autoUpdate().planSchema().getStatements();
+
+    assertCreatedInOrder(statements);
+  }
+
+  @Test
+  public void testUpdatePlanOfAnUpToDateSchema() {
+    init().autoCreateDrop().get();
+
+    List<String> statements = init().autoUpdate().planSchema().getStatements();
+
+    for (String cql : statements) {
+      Assert.assertFalse(cql, cql.toUpperCase().startsWith("CREATE TABLE"));
+      Assert.assertFalse(cql, cql.toUpperCase().startsWith("CREATE TYPE"));
+      Assert.assertFalse(cql, cql.toUpperCase().startsWith("ALTER"));
+    }
+    // Views are recreated on update.
+    Assert.assertTrue(
+        statements.toString(),
+        indexOf(statements, "DROP MATERIALIZED VIEW", "robots_by_model")
+            < indexOf(statements, "CREATE MATERIALIZED VIEW", "robots_by_model"));
+  }
+
+  @Test
+  public void testConcurrentApply() {
+    init().initParallelism(8).autoCreateDrop().get();
+    assertApplied();
+
+    init().initParallelism(8).autoUpdate().get();
+    assertApplied();
+  }
+
+  @Test
+  public void testSerialApply() {
+    init().initParallelism(1).autoCreateDrop().get();
+    assertApplied();
+
+    init().initParallelism(1).autoUpdate().get();
+    assertApplied();
+  }
+}
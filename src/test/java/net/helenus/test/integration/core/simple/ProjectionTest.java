@@ -0,0 +1,166 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.integration.core.simple;
+
+import static net.helenus.core.Query.eq;
+import static net.helenus.core.Query.in;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import net.helenus.core.Helenus;
+import net.helenus.core.HelenusSession;
+import net.helenus.core.UnitOfWork;
+import net.helenus.core.reflect.MapExportable;
+import net.helenus.core.operation.SelectOperation;
+import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ProjectionTest extends AbstractEmbeddedCassandraTest {
+
+  static User user;
+
+  static HelenusSession session;
+
+  @BeforeClass
+  public static void beforeTest() throws TimeoutException {
+    session = Helenus.init(getSession()).showCql().add(User.class).autoCreateDrop().get();
+    user = Helenus.dsl(User.class, session.getMetadata());
+
+    session
+        .insert(user)
+        .value(user::id, 200L)
+        .value(user::name, "bob")
+        .value(user::age, 42)
+        .value(user::type, UserType.USER)
+        .sync();
+  }
+
+  @Test
+  public void testProjectionSelectsItsColumns() throws TimeoutException {
+    String cql =
+        session
+            .select(User.class)
+            .mapTo(UserSummary.class)
+            .where(user::id, eq(200L))
+            .buildStatement(false)
+            .toString();
+    Assert.assertTrue(cql, cql.contains("override_name"));
+    Assert.assertFalse(cql, cql.contains("type"));
+
+    UserSummary summary =
+        session
+            .select(User.class)
+            .mapTo(UserSummary.class)
+            .where(user::id, eq(200L))
+            .sync()
+            .findFirst()
+            .get();
+    Assert.assertEquals("bob", summary.name());
+    Assert.assertEquals(Integer.valueOf(42), summary.age());
+  }
+
+  @Test
+  public void testAdaptiveProjectionLearnsTheColumnsRead() throws TimeoutException {
+    User first =
+        session
+            .select(User.class)
+            .adaptive("testAdaptive")
+            .uncached()
+            .where(user::id, eq(200L))
+            .single()
+            .sync()
+            .get();
+    Assert.assertEquals("bob", first.name());
+
+    SelectOperation<User> select =
+        session.select(User.class).adaptive("testAdaptive").where(user::id, eq(200L));
+    String cql = select.buildStatement(false).toString();
+    Assert.assertTrue(cql, cql.contains("override_name"));
+    Assert.assertFalse(cql, cql.contains("age"));
+
+    User second = select.single().sync().get();
+    Assert.assertEquals("bob", second.name());
+    // Not selected, read with the rest of the row.
+    Assert.assertEquals(Integer.valueOf(42), second.age());
+
+    cql =
+        session
+            .select(User.class)
+            .adaptive("testAdaptive")
+            .where(user::id, eq(200L))
+            .buildStatement(false)
+            .toString();
+    Assert.assertTrue(cql, cql.contains("age"));
+  }
+
+  @Test
+  public void testMissedPropertyIsReadForAllRowsAtOnce() throws TimeoutException {
+    for (long id = 201L; id <= 203L; id++) {
+      session
+          .upsert()
+          .value(user::id, id)
+          .value(user::name, "user" + id)
+          .value(user::age, (int) id)
+          .value(user::type, UserType.USER)
+          .sync();
+    }
+    Long[] ids = {201L, 202L, 203L};
+
+    session
+        .select(User.class)
+        .adaptive("testBatch")
+        .uncached()
+        .where(user::id, in(ids))
+        .sync()
+        .forEach(u -> Assert.assertNotNull(u.name()));
+
+    try (UnitOfWork uow = session.begin()) {
+      List<User> users =
+          session
+              .select(User.class)
+              .adaptive("testBatch")
+              .where(user::id, in(ids))
+              .sync(uow)
+              .collect(Collectors.toList());
+      Assert.assertEquals(3, users.size());
+      long lookups = uow.getDatabaseLookups();
+      for (User u : users) {
+        Assert.assertEquals(Integer.valueOf(u.id().intValue()), u.age());
+      }
+      // One read of every column of the three rows, in the unit of work.
+      Assert.assertEquals(lookups + 1, uow.getDatabaseLookups());
+    }
+  }
+
+  @Test
+  public void testProjectedEntityCanBeWritten() throws TimeoutException {
+    UserSummary summary =
+        session
+            .select(User.class)
+            .mapTo(UserSummary.class)
+            .where(user::id, eq(200L))
+            .sync()
+            .findFirst()
+            .get();
+
+    ((MapExportable) summary).put("name", "robert");
+    Assert.assertEquals("robert", summary.name());
+    Assert.assertEquals(Integer.valueOf(42), summary.age());
+  }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.TimeoutException;
 import net.helenus.core.Helenus;
 import net.helenus.core.HelenusSession;
 import net.helenus.core.Operator;
+import net.helenus.core.reflect.MapExportable;
 import net.helenus.support.Fun;
 import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
 import org.junit.Assert;
@@ -214,6 +215,63 @@ public class SimpleUserTest extends AbstractEmbeddedCassandraTest {
     }
   }
 
+  @Test
+  public void testUnchangedColumnsAreNotWritten() throws Exception {
+
+    UserImpl newUser = new UserImpl();
+    newUser.id = 101L;
+    newUser.name = "bob";
+    newUser.age = 20;
+    newUser.type = UserType.USER;
+
+    session.upsert(newUser).usingTimestamp(1000L).sync();
+
+    User loaded = session.<User>select(user).where(user::id, eq(101L)).single().sync().get();
+
+    // Nothing changed since it was loaded, the upsert is skipped.
+    session.upsert(loaded).elideUnchanged().sync();
+    Assert.assertEquals(1000L, writeTimeOf("age", 101L));
+    Assert.assertEquals(1000L, writeTimeOf("override_name", 101L));
+
+    // Only the changed column is written.
+    ((MapExportable) loaded).put("age", 21);
+    session.upsert(loaded).elideUnchanged().sync();
+    Assert.assertTrue(writeTimeOf("age", 101L) > 1000L);
+    Assert.assertEquals(1000L, writeTimeOf("override_name", 101L));
+
+    User actual = session.<User>select(user).where(user::id, eq(101L)).single().sync().get();
+    Assert.assertEquals(Integer.valueOf(21), actual.age());
+  }
+
+  @Test
+  public void testWritesAreNotElidedUnlessAsked() throws Exception {
+
+    UserImpl newUser = new UserImpl();
+    newUser.id = 102L;
+    newUser.name = "carol";
+    newUser.age = 30;
+    newUser.type = UserType.USER;
+
+    session.upsert(newUser).usingTimestamp(1000L).sync();
+
+    User loaded = session.<User>select(user).where(user::id, eq(102L)).single().sync().get();
+
+    session.upsert(loaded).sync();
+    Assert.assertTrue(writeTimeOf("override_name", 102L) > 1000L);
+
+    // Values set explicitly are written even when they match the loaded ones.
+    long before = writeTimeOf("age", 102L);
+    session.<User>update(loaded).set(user::age, 30).where(user::id, eq(102L)).sync();
+    Assert.assertTrue(writeTimeOf("age", 102L) > before);
+  }
+
+  private static long writeTimeOf(String column, long id) {
+    return getSession()
+        .execute("SELECT writetime(" + column + ") FROM simple_users WHERE id = " + id)
+        .one()
+        .getLong(0);
+  }
+
   private void assertUsers(User expected, User actual) {
     Assert.assertEquals(expected.id(), actual.id());
     Assert.assertEquals(expected.name(), actual.name());
@@ -18,11 +18,18 @@ package net.helenus.test.integration.core.unitofwork;
 import static net.helenus.core.Query.eq;
 
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import javax.cache.CacheManager;
 import javax.cache.Caching;
 import javax.cache.configuration.MutableConfiguration;
@@ -38,12 +45,15 @@ import net.helenus.mapping.annotation.Constraints;
 import net.helenus.mapping.annotation.Index;
 import net.helenus.mapping.annotation.PartitionKey;
 import net.helenus.mapping.annotation.Table;
+import net.helenus.support.HelenusException;
 import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import ca.exprofesso.guava.jcache.GuavaCachingProvider;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.utils.UUIDs;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -473,6 +483,290 @@ public class UnitOfWorkTest extends AbstractEmbeddedCassandraTest {
     //Assert.assertTrue(w4.writtenAt(widget::name) == w6.writtenAt(widget::name));
   }
 
+  @Test
+  public void testBatchedWritesToTheSameRowAreCoalesced() throws Exception {
+    UUID key = UUIDs.timeBased();
+    String a = RandomString.make(10);
+    String b = RandomString.make(10);
+    Widget w1, w2;
+
+    ByteArrayOutputStream cql = new ByteArrayOutputStream();
+    HelenusSession recording =
+        Helenus.init(getSession())
+            .showCql()
+            .printTo(new PrintStream(cql, true))
+            .add(Widget.class)
+            .autoValidate()
+            .consistencyLevel(ConsistencyLevel.ONE)
+            .get();
+
+    try (UnitOfWork uow = recording.begin()) {
+      w1 =
+          recording
+              .<Widget>upsert(widget)
+              .value(widget::id, key)
+              .value(widget::name, RandomString.make(20))
+              .value(widget::a, RandomString.make(10))
+              .batch(uow);
+      w1 =
+          recording
+              .<Widget>update(w1)
+              .set(widget::a, RandomString.make(10))
+              .where(widget::id, eq(key))
+              .batch(uow);
+      w1 = recording.<Widget>update(w1).set(widget::b, b).where(widget::id, eq(key)).batch(uow);
+      w1 = recording.<Widget>update(w1).set(widget::a, a).where(widget::id, eq(key)).batch(uow);
+      uow.commit();
+    }
+
+    // The four writes of the row were sent as a single statement.
+    String batch = cql.toString();
+    Assert.assertEquals(batch, 1, StringUtils.countMatches(batch, key.toString()));
+
+    w2 =
+        session
+            .<Widget>select(Widget.class)
+            .where(widget::id, eq(key))
+            .uncached()
+            .single()
+            .sync()
+            .orElse(null);
+    Assert.assertNotNull(w2);
+    Assert.assertEquals(a, w2.a());
+    Assert.assertEquals(b, w2.b());
+  }
+
+  @Test
+  public void testPrefetchedEntitiesAreCacheHits() throws Exception {
+    UUID key1 = UUIDs.timeBased();
+    UUID key2 = UUIDs.timeBased();
+    Widget w1, w2, w3;
+
+    // Written around Helenus so that no cache holds the rows.
+    for (UUID key : new UUID[] {key1, key2}) {
+      getSession()
+          .execute(
+              QueryBuilder.insertInto("widget")
+                  .value("id", key)
+                  .value("name", RandomString.make(20)));
+    }
+
+    try (UnitOfWork uow = session.begin()) {
+      uow.prefetch(
+          session.<Widget>select(Widget.class).where(widget::id, eq(key1)).single(),
+          session.<Widget>select(Widget.class).where(widget::id, eq(key2)).single());
+      Assert.assertEquals(2, uow.getDatabaseLookups());
+      Assert.assertEquals(0, uow.getCacheHits());
+
+      w1 =
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(key1))
+              .single()
+              .sync(uow)
+              .orElse(null);
+      w2 =
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(key1))
+              .single()
+              .sync(uow)
+              .orElse(null);
+      w3 =
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(key2))
+              .single()
+              .sync(uow)
+              .orElse(null);
+
+      // Every read was answered by what the prefetch loaded.
+      Assert.assertEquals(2, uow.getDatabaseLookups());
+      Assert.assertEquals(3, uow.getCacheHits());
+      uow.commit();
+    }
+
+    Assert.assertNotNull(w1);
+    Assert.assertSame(w1, w2);
+    Assert.assertNotNull(w3);
+    Assert.assertEquals(key2, w3.id());
+  }
+
+  @Test
+  public void testPrefetchOfAWriteSendsNothing() throws Exception {
+    UUID key1 = UUIDs.timeBased();
+    UUID key2 = UUIDs.timeBased();
+
+    try (UnitOfWork uow = session.begin()) {
+      try {
+        uow.prefetch(
+            session.<Widget>select(Widget.class).where(widget::id, eq(key1)).single(),
+            session.insert(widget).value(widget::id, key2).value(widget::name, "written"));
+        Assert.fail("a write was prefetched");
+      } catch (HelenusException e) {
+        // expected
+      }
+      Assert.assertEquals(0, uow.getDatabaseLookups());
+    }
+
+    Assert.assertNull(
+        getSession()
+            .execute(QueryBuilder.select().from("widget").where(QueryBuilder.eq("id", key2)))
+            .one());
+  }
+
+  @Test
+  public void testConcurrentUnitOfWork() throws Exception {
+    List<UUID> keys = new ArrayList<UUID>();
+    for (int i = 0; i < 32; i++) {
+      UUID key = UUIDs.timeBased();
+      session
+          .<Widget>insert(widget)
+          .value(widget::id, key)
+          .value(widget::name, RandomString.make(20))
+          .sync();
+      keys.add(key);
+    }
+
+    try (UnitOfWork uow = session.beginConcurrent()) {
+      List<Widget> found =
+          keys.parallelStream()
+              .map(
+                  key -> {
+                    try {
+                      return session
+                          .<Widget>select(Widget.class)
+                          .where(widget::id, eq(key))
+                          .single()
+                          .sync(uow)
+                          .orElse(null);
+                    } catch (TimeoutException e) {
+                      throw new RuntimeException(e);
+                    }
+                  })
+              .collect(Collectors.toList());
+      uow.commit();
+
+      Assert.assertEquals(keys.size(), found.size());
+      for (int i = 0; i < keys.size(); i++) {
+        Assert.assertEquals(keys.get(i), found.get(i).id());
+      }
+    }
+  }
+
+  @Test
+  public void testReadOnlyUnitOfWork() throws Exception {
+    UUID key = UUIDs.timeBased();
+    Widget w1, w2;
+
+    session
+        .<Widget>insert(widget)
+        .value(widget::id, key)
+        .value(widget::name, RandomString.make(20))
+        .sync();
+
+    try (UnitOfWork uow = session.beginReadOnly()) {
+      w1 =
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(key))
+              .single()
+              .sync(uow)
+              .orElse(null);
+      w2 =
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(key))
+              .single()
+              .sync(uow)
+              .orElse(null);
+      Assert.assertNotNull(w1);
+      Assert.assertEquals(w1, w2);
+
+      try {
+        session.update(w1).set(widget::a, RandomString.make(10)).sync(uow);
+        Assert.fail("writes should be rejected");
+      } catch (HelenusException e) {
+        // expected
+      }
+      uow.commit();
+    }
+  }
+
+  @Test
+  public void testStreamingUnitOfWorkFlushesInChunks() throws Exception {
+    List<UUID> keys = new ArrayList<UUID>();
+
+    try (UnitOfWork uow = session.begin()) {
+      uow.setFlushThreshold(10, 1, TimeUnit.MINUTES).setMaxCachedEntries(20);
+      for (int i = 0; i < 25; i++) {
+        UUID key = UUIDs.timeBased();
+        session
+            .<Widget>upsert(widget)
+            .value(widget::id, key)
+            .value(widget::name, RandomString.make(20))
+            .batch(uow);
+        keys.add(key);
+      }
+
+      // The first twenty rows were flushed when the threshold was reached.
+      Widget w =
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(keys.get(0)))
+              .uncached()
+              .single()
+              .sync()
+              .orElse(null);
+      Assert.assertNotNull(w);
+
+      uow.commit();
+    }
+
+    for (UUID key : keys) {
+      Assert.assertTrue(
+          session
+              .<Widget>select(Widget.class)
+              .where(widget::id, eq(key))
+              .uncached()
+              .single()
+              .sync()
+              .isPresent());
+    }
+  }
+
+  @Test
+  public void testBatchedWritesOutliveABoundedCache() throws Exception {
+    List<UUID> keys = new ArrayList<UUID>();
+
+    try (UnitOfWork uow = session.begin()) {
+      uow.setMaxCachedEntries(2);
+      for (int i = 0; i < 5; i++) {
+        UUID key = UUIDs.timeBased();
+        session
+            .<Widget>upsert(widget)
+            .value(widget::id, key)
+            .value(widget::name, RandomString.make(20))
+            .batch(uow);
+        keys.add(key);
+      }
+
+      // Nothing was written yet, each row is read back from the cache of the unit of work.
+      for (UUID key : keys) {
+        Widget w =
+            session
+                .<Widget>select(Widget.class)
+                .where(widget::id, eq(key))
+                .single()
+                .sync(uow)
+                .orElse(null);
+        Assert.assertNotNull(w);
+      }
+      Assert.assertEquals(0, uow.getDatabaseLookups());
+      uow.commit();
+    }
+  }
+
   @Test
   public void testInsertNoOp() throws Exception {
     Widget w1, w2;
@@ -26,6 +26,8 @@ import net.helenus.core.ConflictingUnitOfWorkException;
 import net.helenus.core.Helenus;
 import net.helenus.core.HelenusSession;
 import net.helenus.core.UnitOfWork;
+import net.helenus.core.operation.QueryPlan;
+import net.helenus.support.HelenusException;
 import net.helenus.test.integration.build.AbstractEmbeddedCassandraTest;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -38,6 +40,7 @@ import org.junit.Test;
 public class MaterializedViewTest extends AbstractEmbeddedCassandraTest {
 
   static Cyclist cyclist;
+  static UUID cid = UUID.randomUUID();
   static HelenusSession session;
 
   static Date dateFromString(String dateInString) {
@@ -64,7 +67,7 @@ public class MaterializedViewTest extends AbstractEmbeddedCassandraTest {
     try {
       session
           .insert(cyclist)
-          .value(cyclist::cid, UUID.randomUUID())
+          .value(cyclist::cid, cid)
           .value(cyclist::age, 18)
           .value(cyclist::birthday, dateFromString("1997-02-08"))
           .value(cyclist::country, "Netherlands")
@@ -111,4 +114,36 @@ public class MaterializedViewTest extends AbstractEmbeddedCassandraTest {
     Assert.assertEquals(c1, c2);
     uow.commit();
   }
+
+  @Test
+  public void testSelectIsPlannedOnTableUnlessRouted() {
+    QueryPlan plan = session.select(Cyclist.class).where(cyclist::cid, eq(cid)).explain();
+    Assert.assertEquals(QueryPlan.Source.TABLE, plan.getSource());
+  }
+
+  @Test
+  public void testRoutedSelectIsPlannedOnView() throws TimeoutException {
+    QueryPlan plan = session.select(Cyclist.class).where(cyclist::cid, eq(cid)).route().explain();
+    Assert.assertEquals(QueryPlan.Source.MATERIALIZED_VIEW, plan.getSource());
+    Assert.assertEquals(QueryPlan.Access.PARTITION, plan.getAccess());
+    Assert.assertFalse(plan.isFiltering());
+
+    Cyclist c =
+        session
+            .<Cyclist>select(Cyclist.class)
+            .where(cyclist::cid, eq(cid))
+            .route()
+            .single()
+            .sync()
+            .orElse(null);
+    Assert.assertNotNull(c);
+    Assert.assertEquals("Pascal EENKHOORN", c.name());
+  }
+
+  @Test(expected = HelenusException.class)
+  public void testFullScanIsRefused() throws TimeoutException {
+    // A session of its own, the entities are already mapped and their schema made.
+    HelenusSession refusing = Helenus.init(getSession()).refuseFullScans().get();
+    refusing.select(Cyclist.class).where(cyclist::name, eq("Pascal EENKHOORN")).sync();
+  }
 }
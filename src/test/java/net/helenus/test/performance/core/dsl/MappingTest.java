@@ -18,6 +18,7 @@ package net.helenus.test.performance.core.dsl;
 import java.util.HashMap;
 import java.util.Map;
 import net.helenus.core.Helenus;
+import net.helenus.core.reflect.GeneratedMapperInstantiator;
 import org.junit.Test;
 
 public class MappingTest {
@@ -63,6 +64,44 @@ public class MappingTest {
     System.out.println("ReflectionAccess = " + t1);
   }
 
+  @Test
+  public void testGeneratedConstructor() {
+
+    GeneratedMapperInstantiator.INSTANCE.instantiate(
+        Elevator.class, fixture, Elevator.class.getClassLoader());
+
+    long t0 = System.currentTimeMillis();
+
+    for (int i = 0; i != 100000; ++i) {
+      GeneratedMapperInstantiator.INSTANCE.instantiate(
+          Elevator.class, fixture, Elevator.class.getClassLoader());
+    }
+
+    long t1 = System.currentTimeMillis() - t0;
+
+    System.out.println("GeneratedConstructor = " + t1);
+  }
+
+  @Test
+  public void testGeneratedAccess() {
+
+    Elevator elevator =
+        GeneratedMapperInstantiator.INSTANCE.instantiate(
+            Elevator.class, fixture, Elevator.class.getClassLoader());
+
+    long t0 = System.currentTimeMillis();
+
+    for (int i = 0; i != 100000; ++i) {
+      elevator.height();
+      elevator.price();
+      elevator.name();
+    }
+
+    long t1 = System.currentTimeMillis() - t0;
+
+    System.out.println("GeneratedAccess = " + t1);
+  }
+
   @Test
   public void testJavaAccess() {
 
@@ -0,0 +1,67 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core;
+
+import static org.mockito.Mockito.mock;
+
+import com.codahale.metrics.MetricRegistry;
+import net.helenus.core.HelenusSession;
+import net.helenus.core.MetricsUnitOfWorkTelemetry;
+import net.helenus.core.UnitOfWork;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsUnitOfWorkTelemetryTest {
+
+  private final HelenusSession session = mock(HelenusSession.class);
+
+  private UnitOfWork uow(String purpose) {
+    return new UnitOfWork(session).setPurpose(purpose);
+  }
+
+  @Test
+  public void testTimerPerPurposeAndOutcome() {
+    MetricRegistry metrics = new MetricRegistry();
+    MetricsUnitOfWorkTelemetry telemetry = new MetricsUnitOfWorkTelemetry(metrics, 0.0);
+
+    telemetry.record(uow("load"), true);
+    telemetry.record(uow("load"), true);
+    telemetry.record(uow("load"), false);
+    telemetry.record(uow(null), true);
+
+    Assert.assertEquals(2, metrics.timer("net.helenus.UOW.load.committed").getCount());
+    Assert.assertEquals(1, metrics.timer("net.helenus.UOW.load.aborted").getCount());
+    Assert.assertEquals(1, metrics.timer("net.helenus.UOW.unnamed.committed").getCount());
+    Assert.assertEquals(0, metrics.meter("net.helenus.UOW.cache-hits").getCount());
+  }
+
+  @Test
+  public void testPurposesAreCapped() {
+    MetricRegistry metrics = new MetricRegistry();
+    MetricsUnitOfWorkTelemetry telemetry = new MetricsUnitOfWorkTelemetry(metrics, 0.0, 2);
+
+    telemetry.record(uow("a"), true);
+    telemetry.record(uow("b"), true);
+    telemetry.record(uow("c"), true);
+    telemetry.record(uow("d"), true);
+    telemetry.record(uow("a"), true);
+
+    Assert.assertEquals(2, metrics.timer("net.helenus.UOW.a.committed").getCount());
+    Assert.assertEquals(1, metrics.timer("net.helenus.UOW.b.committed").getCount());
+    Assert.assertEquals(2, metrics.timer("net.helenus.UOW.other.committed").getCount());
+    Assert.assertFalse(metrics.getTimers().containsKey("net.helenus.UOW.c.committed"));
+  }
+}
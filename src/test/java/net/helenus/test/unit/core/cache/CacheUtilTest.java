@@ -0,0 +1,82 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.helenus.core.Helenus;
+import net.helenus.core.cache.CacheUtil;
+import net.helenus.core.reflect.Entity;
+import net.helenus.mapping.annotation.PartitionKey;
+import net.helenus.mapping.annotation.Table;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheUtilTest {
+
+  @Table
+  public interface Gadget extends Entity {
+    @PartitionKey
+    Long id();
+
+    String name();
+
+    String color();
+
+    Integer size();
+  }
+
+  private static Gadget gadget(Object... keyValues) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      map.put((String) keyValues[i], keyValues[i + 1]);
+    }
+    return Helenus.map(Gadget.class, map);
+  }
+
+  @Test
+  public void testMergeIsLastWriteWins() throws Exception {
+    String nameWritten = CacheUtil.writeTimeKey("name");
+    String colorWritten = CacheUtil.writeTimeKey("color");
+
+    Gadget to =
+        gadget("id", 1L, "name", "old", nameWritten, 10L, "color", "red", colorWritten, 30L);
+    Gadget from =
+        gadget(
+            "id", 1L, "name", "new", nameWritten, 20L, "color", "blue", colorWritten, 25L, "size",
+            3);
+
+    Assert.assertSame(to, CacheUtil.merge(to, from));
+    Assert.assertEquals("new", to.name());
+    Assert.assertEquals(Long.valueOf(20L), to.writtenAt("name"));
+    Assert.assertEquals("red", to.color());
+    Assert.assertEquals(Long.valueOf(30L), to.writtenAt("color"));
+    Assert.assertEquals(Integer.valueOf(3), to.size());
+  }
+
+  @Test
+  public void testMergeWithoutWriteTimesTakesTheOtherValue() throws Exception {
+    Gadget to = gadget("id", 1L, "name", "old");
+    Gadget from = gadget("id", 1L, "name", "new", CacheUtil.ttlKey("name"), new int[] {60});
+
+    CacheUtil.merge(to, from);
+
+    Assert.assertEquals("new", to.name());
+    Assert.assertEquals(Integer.valueOf(60), to.ttlOf("name"));
+    Assert.assertSame(from, CacheUtil.merge(null, from));
+    Assert.assertSame(to, CacheUtil.merge(to, null));
+  }
+}
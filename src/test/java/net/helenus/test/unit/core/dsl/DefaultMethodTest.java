@@ -0,0 +1,65 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core.dsl;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.helenus.core.reflect.ReflectionMapperInstantiator;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DefaultMethodTest {
+
+  private static Rectangle rectangle(int width, int height, String color) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("width", width);
+    map.put("height", height);
+    map.put("color", color);
+    return ReflectionMapperInstantiator.INSTANCE.instantiate(
+        Rectangle.class, map, Rectangle.class.getClassLoader());
+  }
+
+  @Test
+  public void testTransientDefaultIsInvokedOnEachProxy() throws Exception {
+    Rectangle small = rectangle(2, 3, null);
+    Rectangle large = rectangle(10, 20, null);
+
+    // The handle is cached after the first call, it must not stay bound to that proxy.
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(6, small.area());
+      Assert.assertEquals(200, large.area());
+    }
+  }
+
+  @Test
+  public void testTransientDefaultWithArguments() throws Exception {
+    Rectangle small = rectangle(2, 3, null);
+    Rectangle large = rectangle(10, 20, null);
+
+    for (int i = 1; i < 4; i++) {
+      Assert.assertEquals(6 * i, small.scaled(i));
+      Assert.assertEquals(200 * i, large.scaled(i));
+    }
+  }
+
+  @Test
+  public void testDefaultGetterIsTheFallbackForNull() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("white", rectangle(1, 1, null).color());
+      Assert.assertEquals("red", rectangle(1, 1, "red").color());
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core.dsl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import net.helenus.core.Helenus;
+import net.helenus.core.reflect.GeneratedMapperInstantiator;
+import net.helenus.core.reflect.MapExportable;
+import net.helenus.support.HelenusException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeneratedMapperTest {
+
+  private static <E> E map(Class<E> iface, Map<String, Object> src) {
+    return GeneratedMapperInstantiator.INSTANCE.instantiate(iface, src, iface.getClassLoader());
+  }
+
+  @Test
+  public void testMap() throws Exception {
+
+    Map<String, Object> map = new HashMap<String, Object>();
+
+    map.put("id", 123L);
+    map.put("active", Boolean.TRUE);
+
+    Account account = map(Account.class, map);
+
+    Assert.assertFalse(Proxy.isProxyClass(account.getClass()));
+    Assert.assertEquals(Long.valueOf(123L), account.id());
+    Assert.assertTrue(account.active());
+    Assert.assertNull(account.time());
+    Assert.assertNotNull(account.draft());
+    Assert.assertEquals(Account.class, account.getClass().getInterfaces()[0]);
+  }
+
+  @Test
+  public void testPrimitive() throws Exception {
+
+    Map<String, Object> map = new HashMap<String, Object>();
+
+    map.put("id", 123L);
+    map.put("active", null);
+
+    Account account = map(Account.class, map);
+
+    Assert.assertFalse(account.active());
+  }
+
+  @Test
+  public void testMapExportable() throws Exception {
+
+    Map<String, Object> map = new HashMap<String, Object>();
+
+    map.put("id", 123L);
+
+    Account account = map(Account.class, map);
+    MapExportable exportable = (MapExportable) account;
+
+    Assert.assertEquals(Long.valueOf(123L), account.id());
+    Assert.assertTrue(exportable.toReadSet().contains("id"));
+    Assert.assertFalse(exportable.toReadSet().contains("active"));
+
+    exportable.put("active", Boolean.TRUE);
+    Assert.assertTrue(account.active());
+    Assert.assertEquals(Boolean.TRUE, exportable.toMap().get("active"));
+
+    Assert.assertEquals(account, Helenus.map(Account.class, exportable.toMap(true)));
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+
+    Map<String, Object> map = new HashMap<String, Object>();
+
+    map.put("id", 123L);
+    map.put("active", Boolean.TRUE);
+
+    Account account = map(Account.class, map);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(account);
+    }
+    Object copy;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = in.readObject();
+    }
+
+    Assert.assertEquals(account.getClass(), copy.getClass());
+    Assert.assertEquals(account, copy);
+  }
+
+  @Test(expected = HelenusException.class)
+  public void testWrongMethods() throws Exception {
+
+    WrongAccount wrongAccount = map(WrongAccount.class, new HashMap<String, Object>());
+
+    wrongAccount.id();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core.dsl;
+
+import java.util.Optional;
+import net.helenus.core.Getter;
+import net.helenus.core.Helenus;
+import net.helenus.core.reflect.HelenusPropertyNode;
+import net.helenus.core.reflect.PropertyNodeGetter;
+import net.helenus.mapping.MappingUtil;
+import net.helenus.support.DslPropertyException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GetterResolutionTest {
+
+  static Account account;
+  static AccountWithCollections collections;
+  static boolean readActive;
+
+  @BeforeClass
+  public static void beforeTests() {
+    account = Helenus.dsl(Account.class);
+    collections = Helenus.dsl(AccountWithCollections.class);
+  }
+
+  private static String resolve(Getter<?> getter) {
+    return MappingUtil.resolveMappingProperty(getter).getProperty().getPropertyName();
+  }
+
+  @Test
+  public void testDslGetter() throws Exception {
+    Assert.assertEquals("id", resolve(account::id));
+    Assert.assertEquals("active", resolve(() -> account.active()));
+    Assert.assertEquals("name", resolve(() -> collections.name()));
+    Assert.assertEquals("properties", resolve(collections::properties));
+  }
+
+  @Test
+  public void testGetterWithoutStateIsResolvedOnEachCall() throws Exception {
+    // Captures nothing, yet its property depends on a static field.
+    Getter<Object> getter = () -> readActive ? account.active() : account.id();
+    try {
+      for (int i = 0; i < 3; i++) {
+        readActive = false;
+        Assert.assertEquals("id", resolve(getter));
+        readActive = true;
+        Assert.assertEquals("active", resolve(getter));
+      }
+    } finally {
+      readActive = false;
+    }
+  }
+
+  @Test
+  public void testPropertyNodeGetter() throws Exception {
+    HelenusPropertyNode node =
+        new HelenusPropertyNode(Helenus.entity(Account.class).getProperty("id"), Optional.empty());
+    Assert.assertSame(node, MappingUtil.resolveMappingProperty(new PropertyNodeGetter<>(node)));
+  }
+
+  @Test(expected = DslPropertyException.class)
+  public void testDslThrowsOutsideOfResolution() throws Exception {
+    resolve(account::id);
+    account.id();
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core.dsl;
+
+import net.helenus.mapping.annotation.PartitionKey;
+import net.helenus.mapping.annotation.Table;
+import net.helenus.mapping.annotation.Transient;
+
+@Table
+public interface Rectangle {
+
+  @PartitionKey
+  String name();
+
+  int width();
+
+  int height();
+
+  default String color() {
+    return "white";
+  }
+
+  @Transient
+  default int area() {
+    return width() * height();
+  }
+
+  @Transient
+  default int scaled(int factor) {
+    return area() * factor;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.core.operation;
+
+import static org.mockito.Mockito.mock;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import net.helenus.core.AbstractSessionOperations;
+import net.helenus.core.operation.AbstractOperation;
+import net.helenus.core.operation.BatchOperation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchOperationTest {
+
+  private AbstractSessionOperations session;
+
+  @Before
+  public void beforeTest() {
+    session = mock(AbstractSessionOperations.class);
+  }
+
+  @Test
+  public void testSinglePartitionIsUnlogged() {
+    BatchOperation batch = new BatchOperation(session);
+    for (int i = 0; i < 3; i++) {
+      batch.add(new Write(session, "p1", false));
+    }
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 1, count(cql, "BEGIN UNLOGGED BATCH"));
+    Assert.assertEquals(cql, 0, count(cql, "BEGIN BATCH"));
+  }
+
+  @Test
+  public void testPartitionsAreUnloggedByDefault() {
+    BatchOperation batch = new BatchOperation(session);
+    batch.add(new Write(session, "p1", false));
+    batch.add(new Write(session, "p2", false));
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 2, count(cql, "BEGIN UNLOGGED BATCH"));
+    Assert.assertEquals(cql, 0, count(cql, "BEGIN BATCH"));
+  }
+
+  @Test
+  public void testPartitionsAreGroupedWhenUnlogged() {
+    BatchOperation batch = new BatchOperation(session).setLogged(false);
+    batch.add(new Write(session, "p1", false));
+    batch.add(new Write(session, "p2", false));
+    batch.add(new Write(session, "p1", false));
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 2, count(cql, "BEGIN UNLOGGED BATCH"));
+    Assert.assertEquals(cql, 3, count(cql, "UPDATE"));
+  }
+
+  @Test
+  public void testPartitionsShareOneLoggedBatch() {
+    BatchOperation batch = new BatchOperation(session).logged();
+    batch.add(new Write(session, "p1", false));
+    batch.add(new Write(session, "p2", false));
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 1, count(cql, "BEGIN BATCH"));
+    Assert.assertEquals(cql, 0, count(cql, "BEGIN UNLOGGED BATCH"));
+  }
+
+  @Test
+  public void testCountersAreBatchedApart() {
+    BatchOperation batch = new BatchOperation(session);
+    batch.add(new Write(session, "p1", false));
+    batch.add(new Write(session, "p1", true));
+    batch.add(new Write(session, "p2", true));
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 1, count(cql, "BEGIN UNLOGGED BATCH"));
+    Assert.assertEquals(cql, 2, count(cql, "BEGIN COUNTER BATCH"));
+  }
+
+  @Test
+  public void testUnloggedBatchesAreChunked() {
+    BatchOperation batch = new BatchOperation(session).setLogged(false).setMaxBatchSize(2);
+    for (int i = 0; i < 5; i++) {
+      batch.add(new Write(session, "p1", false));
+    }
+    for (int i = 0; i < 3; i++) {
+      batch.add(new Write(session, "c1", true));
+    }
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 3, count(cql, "BEGIN UNLOGGED BATCH"));
+    Assert.assertEquals(cql, 2, count(cql, "BEGIN COUNTER BATCH"));
+  }
+
+  @Test
+  public void testLoggedBatchIsNeverChunked() {
+    BatchOperation batch = new BatchOperation(session).logged().setMaxBatchSize(2);
+    for (int i = 0; i < 5; i++) {
+      batch.add(new Write(session, "p" + i, false));
+    }
+    batch.add(new Write(session, null, false));
+    String cql = batch.toString(false);
+    Assert.assertEquals(cql, 1, count(cql, "BEGIN BATCH"));
+    Assert.assertEquals(cql, 6, count(cql, "UPDATE"));
+  }
+
+  private static int count(String s, String part) {
+    int count = 0;
+    for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + part.length())) {
+      count++;
+    }
+    return count;
+  }
+
+  /** A write to a partition, never coalesced as it doesn't tell its row. */
+  private static class Write extends AbstractOperation<Void, Write> {
+    private final String partition;
+    private final boolean counter;
+
+    Write(AbstractSessionOperations session, String partition, boolean counter) {
+      super(session);
+      this.partition = partition;
+      this.counter = counter;
+    }
+
+    @Override
+    public Statement buildStatement(boolean cached) {
+      return new SimpleStatement(
+          counter
+              ? "UPDATE counters SET n = n + 1 WHERE id = '" + partition + "'"
+              : "UPDATE rows SET v = 1 WHERE id = '" + partition + "'");
+    }
+
+    @Override
+    public Void transform(ResultSet resultSet) {
+      return null;
+    }
+
+    @Override
+    public String partitionKey() {
+      return partition;
+    }
+
+    @Override
+    public String rowKey() {
+      return null;
+    }
+
+    @Override
+    public boolean isCounterOperation() {
+      return counter;
+    }
+  }
+}
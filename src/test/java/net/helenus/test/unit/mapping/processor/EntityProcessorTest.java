@@ -0,0 +1,124 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.mapping.processor;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import net.helenus.core.reflect.GeneratedMapperInstantiator;
+import net.helenus.mapping.processor.EntityProcessor;
+import net.helenus.support.PackageUtil;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class EntityProcessorTest {
+
+  private static final String BOOK =
+      "package sample;\n"
+          + "import net.helenus.mapping.annotation.*;\n"
+          + "@Table\n"
+          + "public interface Book {\n"
+          + "  @PartitionKey java.util.UUID id();\n"
+          + "  String title();\n"
+          + "  int pages();\n"
+          + "  default String subtitle() { return \"none\"; }\n"
+          + "  @Transient default String label() { return title() + \": \" + subtitle(); }\n"
+          + "}\n";
+
+  @Test
+  public void testGeneratesEntityAndIndex() throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Assume.assumeNotNull(compiler);
+
+    Path output = Files.createTempDirectory("helenus-processor");
+    URI uri = URI.create("string:///sample/Book.java");
+    JavaFileObject source =
+        new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+          @Override
+          public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return BOOK;
+          }
+        };
+    List<String> options =
+        Arrays.asList("-d", output.toString(), "-classpath", System.getProperty("java.class.path"));
+    JavaCompiler.CompilationTask task =
+        compiler.getTask(null, null, null, options, null, Collections.singletonList(source));
+    task.setProcessors(Collections.singletonList(new EntityProcessor()));
+    Assert.assertTrue(task.call());
+
+    Assert.assertTrue(new File(output.toFile(), "sample/Book$$HelenusEntity.class").exists());
+    List<String> index =
+        Files.readAllLines(output.resolve(PackageUtil.ENTITY_INDEX), StandardCharsets.UTF_8);
+    Assert.assertEquals(Collections.singletonList("sample.Book"), index);
+
+    try (URLClassLoader loader =
+        new URLClassLoader(new URL[] {output.toUri().toURL()}, getClass().getClassLoader())) {
+      Class<?> book = loader.loadClass("sample.Book");
+      Map<String, Object> src = new HashMap<String, Object>();
+      src.put("title", "Dune");
+
+      Object entity = GeneratedMapperInstantiator.INSTANCE.instantiate(book, src, loader);
+
+      Assert.assertEquals(loader.loadClass("sample.Book$$HelenusEntity"), entity.getClass());
+      Assert.assertEquals("Dune", book.getMethod("title").invoke(entity));
+      Assert.assertEquals(0, book.getMethod("pages").invoke(entity));
+      Assert.assertEquals("Dune: none", book.getMethod("label").invoke(entity));
+    }
+  }
+
+  @Test
+  public void testIndexSkipsMissingClassesAndDefersToUnindexedRoots() throws Exception {
+    Path indexed = Files.createTempDirectory("helenus-indexed");
+    Files.createDirectories(indexed.resolve("sample"));
+    Path index = indexed.resolve(PackageUtil.ENTITY_INDEX);
+    Files.createDirectories(index.getParent());
+    Files.write(index, Collections.singletonList("sample.Gone"), StandardCharsets.UTF_8);
+    Path unindexed = Files.createTempDirectory("helenus-unindexed");
+    Files.createDirectories(unindexed.resolve("sample"));
+
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    try (URLClassLoader one = new URLClassLoader(new URL[] {indexed.toUri().toURL()}, null);
+        URLClassLoader both =
+            new URLClassLoader(
+                new URL[] {indexed.toUri().toURL(), unindexed.toUri().toURL()}, null)) {
+      thread.setContextClassLoader(one);
+      Set<Class<?>> classes = PackageUtil.getIndexedClasses("sample");
+      Assert.assertNotNull(classes);
+      Assert.assertTrue(classes.isEmpty());
+
+      thread.setContextClassLoader(both);
+      Assert.assertNull(PackageUtil.getIndexedClasses("sample"));
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+}
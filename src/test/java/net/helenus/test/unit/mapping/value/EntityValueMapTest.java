@@ -0,0 +1,90 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.mapping.value;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import net.helenus.core.Helenus;
+import net.helenus.core.cache.CacheUtil;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.value.EntityValueMap;
+import net.helenus.test.unit.core.dsl.Account;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityValueMapTest {
+
+  private final HelenusEntity entity = Helenus.entity(Account.class);
+
+  @Test
+  public void testBehavesAsAMap() throws Exception {
+    Map<String, Object> expected = new HashMap<String, Object>();
+    expected.put("id", 123L);
+    expected.put("active", null);
+    expected.put(CacheUtil.writeTimeKey("is_active"), 42L);
+    expected.put("unknownField", "he-he");
+
+    Map<String, Object> map = new EntityValueMap(entity, expected);
+
+    Assert.assertEquals(expected, map);
+    Assert.assertEquals(map, expected);
+    Assert.assertEquals(expected.hashCode(), map.hashCode());
+    Assert.assertEquals(4, map.size());
+    Assert.assertTrue(map.containsKey("active"));
+    Assert.assertFalse(map.containsKey("time"));
+    Assert.assertEquals(42L, map.get(CacheUtil.writeTimeKey("is_active")));
+
+    Assert.assertEquals(123L, map.put("id", 456L));
+    Assert.assertEquals("he-he", map.remove("unknownField"));
+    Assert.assertNull(map.remove("time"));
+    Assert.assertEquals(3, map.size());
+
+    Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+    while (it.hasNext()) {
+      if (it.next().getKey().equals("id")) {
+        it.remove();
+      }
+    }
+    Assert.assertEquals(2, map.size());
+    Assert.assertFalse(map.containsKey("id"));
+  }
+
+  @Test
+  public void testCopyIsIndependent() throws Exception {
+    EntityValueMap map = new EntityValueMap(entity);
+    map.put("id", 123L);
+
+    EntityValueMap copy = new EntityValueMap(map);
+    copy.put("id", 456L);
+
+    Assert.assertEquals(123L, map.get("id"));
+    Assert.assertEquals(456L, copy.get("id"));
+  }
+
+  @Test
+  public void testSerializesAsHashMap() throws Exception {
+    EntityValueMap map = new EntityValueMap(entity);
+    map.put("id", 123L);
+
+    Object copy = SerializationUtils.<Serializable>clone(map);
+
+    Assert.assertEquals(HashMap.class, copy.getClass());
+    Assert.assertEquals(map, copy);
+  }
+}
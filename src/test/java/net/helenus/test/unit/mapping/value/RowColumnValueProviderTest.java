@@ -0,0 +1,101 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.mapping.value;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TypeCodec;
+import net.helenus.core.Helenus;
+import net.helenus.mapping.HelenusProperty;
+import net.helenus.mapping.value.RowColumnValueProvider;
+import net.helenus.test.unit.core.dsl.Account;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RowColumnValueProviderTest {
+
+  private final HelenusProperty id = Helenus.entity(Account.class).getProperty("id");
+  private final RowColumnValueProvider provider = new RowColumnValueProvider(null);
+
+  private static ColumnDefinitions definitions(int index) {
+    ColumnDefinitions definitions = mock(ColumnDefinitions.class);
+    when(definitions.getIndexOf("id")).thenReturn(index);
+    if (index >= 0) {
+      when(definitions.getType(index)).thenReturn(DataType.bigint());
+    }
+    return definitions;
+  }
+
+  private static Row row(ColumnDefinitions definitions, int index, long id) {
+    Row row = mock(Row.class);
+    when(row.getColumnDefinitions()).thenReturn(definitions);
+    when(row.getBytesUnsafe(index))
+        .thenReturn(TypeCodec.bigint().serialize(id, ProtocolVersion.NEWEST_SUPPORTED));
+    return row;
+  }
+
+  private Object read(Row row) {
+    return provider.getColumnValue(row, -1, id, false);
+  }
+
+  @Test
+  public void testPlanIsReusedForRowsOfTheSameShape() {
+    ColumnDefinitions definitions = definitions(0);
+
+    for (long i = 0; i < 3; i++) {
+      Assert.assertEquals(i, read(row(definitions, 0, i)));
+    }
+
+    verify(definitions, times(1)).getIndexOf("id");
+    verify(definitions, times(1)).getType(0);
+  }
+
+  @Test
+  public void testPlanIsBuiltPerColumnDefinitions() {
+    ColumnDefinitions first = definitions(0);
+    ColumnDefinitions second = definitions(2);
+
+    for (long i = 0; i < 3; i++) {
+      Assert.assertEquals(i, read(row(first, 0, i)));
+      Assert.assertEquals(i + 10, read(row(second, 2, i + 10)));
+    }
+
+    verify(first, times(1)).getIndexOf("id");
+    verify(second, times(1)).getIndexOf("id");
+    verify(second, times(1)).getType(2);
+  }
+
+  @Test
+  public void testMissingColumnIsPlannedOnce() {
+    ColumnDefinitions definitions = definitions(-1);
+
+    for (int i = 0; i < 3; i++) {
+      Row row = mock(Row.class);
+      when(row.getColumnDefinitions()).thenReturn(definitions);
+      when(row.isNull("id")).thenReturn(true);
+      Assert.assertNull(read(row));
+    }
+
+    verify(definitions, times(1)).getIndexOf("id");
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.mapping.value;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import net.helenus.core.Helenus;
+import net.helenus.mapping.HelenusEntity;
+import net.helenus.mapping.HelenusProperty;
+import net.helenus.mapping.value.ColumnValueProvider;
+import net.helenus.mapping.value.ValueProviderMap;
+import net.helenus.test.unit.core.dsl.Account;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ValueProviderMapTest {
+
+  private final HelenusEntity entity = Helenus.entity(Account.class);
+  private final HelenusProperty id = entity.getProperty("id");
+  private final Object source = new Object();
+  private ColumnValueProvider provider;
+  private boolean immutable;
+
+  @Before
+  public void beforeTest() {
+    provider = mock(ColumnValueProvider.class);
+    when(provider.getColumnValue(any(), anyInt(), any(HelenusProperty.class), anyBoolean()))
+        .thenReturn(123L);
+    immutable = entity.isDraftable();
+  }
+
+  @Test
+  public void testValueIsDecodedOnce() {
+    ValueProviderMap map = new ValueProviderMap(source, provider, entity);
+
+    Assert.assertEquals(123L, map.get("id"));
+    Assert.assertEquals(123L, map.get("id"));
+    Assert.assertEquals(123L, map.get("id", immutable));
+
+    verify(provider, times(1)).getColumnValue(source, -1, id, immutable);
+  }
+
+  @Test
+  public void testOtherMutabilityIsNotMemoized() {
+    ValueProviderMap map = new ValueProviderMap(source, provider, entity);
+
+    Assert.assertEquals(123L, map.get("id"));
+    Assert.assertEquals(123L, map.get("id", !immutable));
+    Assert.assertEquals(123L, map.get("id", !immutable));
+    Assert.assertEquals(123L, map.get("id"));
+
+    verify(provider, times(1)).getColumnValue(source, -1, id, immutable);
+    verify(provider, times(2)).getColumnValue(source, -1, id, !immutable);
+  }
+
+  @Test
+  public void testEntrySetDecodesEachPropertyOnce() {
+    ValueProviderMap map = new ValueProviderMap(source, provider, entity);
+
+    map.get("id");
+    Assert.assertEquals(map.size(), map.entrySet().size());
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      Assert.assertEquals(123L, entry.getValue());
+    }
+
+    for (HelenusProperty property : entity.getOrderedProperties()) {
+      verify(provider, times(1)).getColumnValue(source, -1, property, immutable);
+    }
+  }
+
+  @Test
+  public void testUnknownKeyIsNotDecoded() {
+    ValueProviderMap map = new ValueProviderMap(source, provider, entity);
+
+    Assert.assertNull(map.get("unknown"));
+    Assert.assertFalse(map.containsKey("unknown"));
+    Assert.assertTrue(map.containsKey("id"));
+
+    verify(provider, never())
+        .getColumnValue(eq(source), anyInt(), any(HelenusProperty.class), anyBoolean());
+  }
+
+  @Test
+  public void testKeySetIsSharedPerEntity() {
+    ValueProviderMap map = new ValueProviderMap(source, provider, entity);
+    ValueProviderMap other = new ValueProviderMap(new Object(), provider, entity);
+
+    Assert.assertSame(map.keySet(), other.keySet());
+    Assert.assertEquals(entity.getOrderedProperties().size(), map.keySet().size());
+    Assert.assertTrue(map.keySet().contains("id"));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ *      Copyright (C) 2015 The Helenus Authors
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package net.helenus.test.unit.support;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.helenus.support.CopyOnWrite;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CopyOnWriteTest {
+
+  @Test
+  public void testList() {
+
+    ImmutableList<String> source = ImmutableList.of("a", "b");
+    List<String> list = (List<String>) CopyOnWrite.wrap(source);
+
+    Assert.assertEquals(source, list);
+
+    list.add("c");
+    list.remove("a");
+
+    Assert.assertEquals(ImmutableList.of("b", "c"), list);
+    Assert.assertEquals(ImmutableList.of("a", "b"), source);
+  }
+
+  @Test
+  public void testSet() {
+
+    ImmutableSet<Integer> source = ImmutableSet.of(1, 2, 3);
+    Set<Integer> set = (Set<Integer>) CopyOnWrite.wrap(source);
+
+    Assert.assertEquals(source, set);
+    Assert.assertFalse(set.add(1));
+
+    Iterator<Integer> it = set.iterator();
+    while (it.hasNext()) {
+      if (it.next() == 2) {
+        it.remove();
+      }
+    }
+
+    Assert.assertEquals(ImmutableSet.of(1, 3), set);
+    Assert.assertEquals(3, source.size());
+  }
+
+  @Test
+  public void testMap() {
+
+    ImmutableMap<String, Integer> source = ImmutableMap.of("a", 1, "b", 2);
+    Map<String, Integer> map = (Map<String, Integer>) CopyOnWrite.wrap(source);
+
+    Assert.assertEquals(source, map);
+
+    for (Map.Entry<String, Integer> e : map.entrySet()) {
+      e.setValue(e.getValue() * 10);
+    }
+    map.remove("b");
+
+    Assert.assertEquals(ImmutableMap.of("a", 10), map);
+    Assert.assertEquals(ImmutableMap.of("a", 1, "b", 2), source);
+  }
+
+  @Test
+  public void testOther() {
+
+    Object value = "value";
+    Assert.assertSame(value, CopyOnWrite.wrap(value));
+  }
+}